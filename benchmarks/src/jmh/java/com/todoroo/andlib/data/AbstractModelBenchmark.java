@@ -0,0 +1,60 @@
+package com.todoroo.andlib.data;
+
+import android.content.ContentValues;
+
+import com.todoroo.astrid.data.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class AbstractModelBenchmark {
+
+    private Task task;
+    private ContentValues changes;
+
+    @Setup
+    public void setUp() {
+        task = new Task();
+        task.setId(1L);
+        task.setTitle("Jog");
+        task.setImportance(Task.IMPORTANCE_MUST_DO);
+        task.setDueDate(1400000000000L);
+        task.setNotes("around the park");
+        task.markSaved();
+
+        Task edit = new Task();
+        edit.setTitle("Jog twice");
+        edit.setCompletionDate(1400000000000L);
+        changes = edit.getSetValues();
+    }
+
+    @Benchmark
+    public Object getValues() {
+        return task.getTitle() + task.getImportance() + task.getDueDate() + task.getNotes() + task.getRecurrence();
+    }
+
+    @Benchmark
+    public Task setValues() {
+        Task model = new Task();
+        model.setTitle("Jog");
+        model.setImportance(Task.IMPORTANCE_MUST_DO);
+        model.setDueDate(1400000000000L);
+        model.setNotes("around the park");
+        return model;
+    }
+
+    @Benchmark
+    public ContentValues mergeWith() {
+        AbstractModel model = task.clone();
+        model.mergeWith(changes);
+        return model.getMergedValues();
+    }
+
+    @Benchmark
+    public AbstractModel cloneModel() {
+        return task.clone();
+    }
+}
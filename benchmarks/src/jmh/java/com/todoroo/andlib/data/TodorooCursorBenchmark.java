@@ -0,0 +1,60 @@
+package com.todoroo.andlib.data;
+
+import android.database.MatrixCursor;
+
+import com.todoroo.astrid.data.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reads tasks out of an in-memory cursor shaped like a full task query.
+ */
+@State(Scope.Thread)
+public class TodorooCursorBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private MatrixCursor cursor;
+
+    @Setup
+    public void setUp() {
+        String[] columns = new String[Task.PROPERTIES.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Task.PROPERTIES[i].getColumnName();
+        }
+        cursor = new MatrixCursor(columns, rows);
+        for (int row = 0; row < rows; row++) {
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = Task.PROPERTIES[i] instanceof Property.StringProperty ? "task " + row : (Object) (long) row;
+            }
+            cursor.addRow(values);
+        }
+    }
+
+    @Benchmark
+    public long materialize() {
+        long sum = 0;
+        TodorooCursor<Task> tasks = new TodorooCursor<>(cursor, Task.PROPERTIES);
+        for (tasks.moveToFirst(); !tasks.isAfterLast(); tasks.moveToNext()) {
+            Task task = new Task(tasks);
+            sum += task.getId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readProperties() {
+        long sum = 0;
+        TodorooCursor<Task> tasks = new TodorooCursor<>(cursor, Task.PROPERTIES);
+        for (tasks.moveToFirst(); !tasks.isAfterLast(); tasks.moveToNext()) {
+            sum += tasks.get(Task.DUE_DATE) + tasks.get(Task.TITLE).length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,46 @@
+package com.todoroo.andlib.sql;
+
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final String UUID = "1234567890";
+
+    @Benchmark
+    public String criterion() {
+        return Criterion.and(
+                TaskCriteria.activeAndVisible(),
+                Criterion.or(Task.DUE_DATE.lt(1400000000000L), Task.IMPORTANCE.eq(Task.IMPORTANCE_DO_OR_DIE)),
+                Task.TITLE.like("%jog%")).toString();
+    }
+
+    @Benchmark
+    public String tagQuery() {
+        return Query.select(Task.PROPERTIES).from(Task.TABLE)
+                .join(Join.inner(Metadata.TABLE.as("mtags"), Task.UUID.eq(Field.field("mtags." + TaskToTagMetadata.TASK_UUID.name))))
+                .where(Criterion.and(
+                        Field.field("mtags." + Metadata.KEY.name).eq(TaskToTagMetadata.KEY),
+                        Field.field("mtags." + TaskToTagMetadata.TAG_UUID.name).eq(UUID),
+                        Field.field("mtags." + Metadata.DELETION_DATE.name).eq(0),
+                        TaskCriteria.activeAndVisible()))
+                .orderBy(SortHelper.defaultTaskOrder())
+                .toString();
+    }
+
+    @Benchmark
+    public String queryTemplate() {
+        return new QueryTemplate()
+                .where(TaskCriteria.activeAndVisible())
+                .orderBy(SortHelper.orderForSortType(SortHelper.SORT_DUE))
+                .toString();
+    }
+}
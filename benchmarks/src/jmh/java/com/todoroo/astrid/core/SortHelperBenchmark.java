@@ -0,0 +1,26 @@
+package com.todoroo.astrid.core;
+
+import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class SortHelperBenchmark {
+
+    private static final String SQL = new QueryTemplate().where(TaskCriteria.activeAndVisible()).toString();
+
+    @Param({"0", "2", "3"})
+    public int sort;
+
+    @Param({"0", "7"})
+    public int flags;
+
+    @Benchmark
+    public String adjustQueryForFlagsAndSort() {
+        return SortHelper.adjustQueryForFlagsAndSort(SQL, flags, sort);
+    }
+}
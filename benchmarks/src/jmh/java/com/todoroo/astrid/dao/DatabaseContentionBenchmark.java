@@ -0,0 +1,101 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A sync thread writing batches of task updates in transactions while two
+ * threads page through the task list, with and without write-ahead logging.
+ * Compare the scroll scores to see how long readers wait behind writers.
+ */
+@State(Scope.Group)
+public class DatabaseContentionBenchmark {
+
+    private static final int TASKS = 5000;
+    private static final int SYNC_BATCH = 50;
+    private static final int PAGE = 50;
+
+    private static final String LIST_QUERY = Query.select(Task.ID, Task.TITLE, Task.DUE_DATE, Task.IMPORTANCE)
+            .from(Task.TABLE)
+            .where(TaskCriteria.activeAndVisible())
+            .orderBy(Order.asc(Task.DUE_DATE))
+            .toString();
+
+    @Param({"false", "true"})
+    public boolean writeAheadLogging;
+
+    private File file;
+    private JdbcDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("contention", ".db");
+        file.delete();
+        database = new JdbcDatabase(file.getPath(), writeAheadLogging);
+        new DatasetGenerator(database, 42).generate(TASKS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Benchmark
+    @Group("syncAndScroll")
+    @GroupThreads(1)
+    public int sync() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int updated = 0;
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < SYNC_BATCH; i++) {
+                ContentValues values = new ContentValues();
+                values.put(Task.MODIFICATION_DATE.name, random.nextLong());
+                updated += database.update(Task.TABLE.name, values, Task.ID.name + " = " + (1 + random.nextInt(TASKS)));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return updated;
+    }
+
+    @Benchmark
+    @Group("syncAndScroll")
+    @GroupThreads(2)
+    public long scroll() {
+        long sum = 0;
+        Cursor cursor = database.rawQuery(LIST_QUERY + " LIMIT " + PAGE + " OFFSET " +
+                ThreadLocalRandom.current().nextInt(TASKS / 2));
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                sum += cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return sum;
+    }
+}
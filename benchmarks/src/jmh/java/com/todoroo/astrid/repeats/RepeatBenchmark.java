@@ -0,0 +1,68 @@
+package com.todoroo.astrid.repeats;
+
+import com.google.ical.values.Frequency;
+import com.google.ical.values.RRule;
+import com.google.ical.values.Weekday;
+import com.google.ical.values.WeekdayNum;
+import com.todoroo.astrid.data.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class RepeatBenchmark {
+
+    @Param({"DAILY", "WEEKLY", "MONTHLY", "YEARLY"})
+    public String frequency;
+
+    @Param({"false", "true"})
+    public boolean repeatAfterCompletion;
+
+    private Task task;
+    private String recurrence;
+
+    @Setup
+    public void setUp() {
+        RRule rrule = new RRule();
+        rrule.setFreq(Frequency.valueOf(frequency));
+        rrule.setInterval(2);
+        if (rrule.getFreq() == Frequency.WEEKLY) {
+            List<WeekdayNum> days = new ArrayList<>();
+            days.add(new WeekdayNum(0, Weekday.MO));
+            days.add(new WeekdayNum(0, Weekday.WE));
+            days.add(new WeekdayNum(0, Weekday.FR));
+            rrule.setByDay(days);
+        }
+        recurrence = rrule.toIcal();
+
+        long dueDate = new GregorianCalendar(2010, 7, 1, 10, 4).getTimeInMillis();
+        task = new Task();
+        task.setRecurrence(recurrence + (repeatAfterCompletion ? ";FROM=COMPLETION" : ""));
+        task.setDueDate(Task.createDueDate(Task.URGENCY_SPECIFIC_DAY_TIME, dueDate));
+        task.setCompletionDate(dueDate + 3600000L);
+        task.setRepeatUntil(0L);
+    }
+
+    @Benchmark
+    public long parseRRule() throws ParseException {
+        return new RRule(recurrence).getInterval();
+    }
+
+    @Benchmark
+    public long computeNextDueDate() throws ParseException {
+        return RepeatTaskCompleteListener.computeNextDueDate(task, recurrence, repeatAfterCompletion);
+    }
+
+    @Benchmark
+    public long[] computeNextTenDueDates() throws ParseException {
+        return RepeatTaskCompleteListener.computeNextDueDates(task, 10);
+    }
+}
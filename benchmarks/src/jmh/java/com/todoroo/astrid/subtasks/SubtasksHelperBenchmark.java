@@ -0,0 +1,53 @@
+package com.todoroo.astrid.subtasks;
+
+import com.todoroo.astrid.subtasks.AstridOrderedListUpdater.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parses serialized manual orderings: a list of top level tasks where every
+ * other task has two subtasks.
+ */
+@State(Scope.Benchmark)
+public class SubtasksHelperBenchmark {
+
+    @Param({"50", "500"})
+    public int tasks;
+
+    private String serializedTree;
+    private Node tree;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("[\"-1\"");
+        int id = 0;
+        for (int i = 0; i < tasks; i++) {
+            if (i % 2 == 0) {
+                builder.append(", \"").append(++id).append('"');
+            } else {
+                builder.append(", [\"").append(++id).append("\", \"").append(++id).append("\", \"").append(++id).append("\"]");
+            }
+        }
+        serializedTree = builder.append(']').toString();
+        tree = AstridOrderedListUpdater.buildTreeModel(serializedTree, null);
+    }
+
+    @Benchmark
+    public String[] getStringIdArray() {
+        return SubtasksHelper.getStringIdArray(serializedTree);
+    }
+
+    @Benchmark
+    public Node buildTreeModel() {
+        return AstridOrderedListUpdater.buildTreeModel(serializedTree, null);
+    }
+
+    @Benchmark
+    public String serializeTree() {
+        return AstridOrderedListUpdater.serializeTree(tree);
+    }
+}
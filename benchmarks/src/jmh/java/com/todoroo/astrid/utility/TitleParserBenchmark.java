@@ -0,0 +1,47 @@
+package com.todoroo.astrid.utility;
+
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TagService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+/**
+ * Quick-add titles taken from TitleParserTest. Tag markup is left out since
+ * resolving tags is a database lookup.
+ */
+@State(Scope.Benchmark)
+public class TitleParserBenchmark {
+
+    private static final String[] TITLES = {
+            "Jog",
+            "Jog on Jan. 12.", "Jog on September 12.", "Jog on May 12.",
+            "Jog on 4/12/13", "Jog on 12/12/13",
+            "Jog on 23:21.", "Jog at 8:33 PM.", "Jog at 8 PM.", "Jog at 8 o'clock AM.",
+            "Jog 8 AM", "at 8:00 AM", "Jog at 12:30 PM Friday", "Do something on 12:30 PM",
+            "Jog today", "Jog tomorrow", "Jog monday", "Jog sat.",
+            "Jog priority 0", "Jog lowest priority", "Jog bang 1", "Jog !", "!2 jog",
+            "Jog highest priority", "Jog bang bang bang", "Jog !!!!!!!!!!!!!",
+            "Jog daily", "Jog every day", "Jog every 3 days.", "Jog weekly", "Jog every 2 weeks",
+            "Jog monthly", "Jog every 6 months", "Jog every week starting from today",
+            "Buy milk and eggs on the way home", "Call the plumber about the kitchen sink"
+    };
+
+    private final TagService tagService = new TagService(null, null, null, null);
+
+    @Benchmark
+    public int parseCorpus() {
+        int markup = 0;
+        for (String title : TITLES) {
+            Task task = new Task();
+            task.setTitle(title);
+            if (TitleParser.parse(tagService, task, new ArrayList<String>())) {
+                markup++;
+            }
+        }
+        return markup;
+    }
+}
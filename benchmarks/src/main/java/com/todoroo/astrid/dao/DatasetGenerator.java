@@ -0,0 +1,230 @@
+package com.todoroo.astrid.dao;
+
+import com.google.ical.values.Frequency;
+import com.google.ical.values.RRule;
+import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills a database with a reproducible population of tasks, tags, Google
+ * Tasks metadata, alarms and manual orderings. The same seed always
+ * produces the same rows.
+ */
+public class DatasetGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] WORDS = {
+            "call", "email", "buy", "fix", "review", "plan", "book", "pay", "clean", "write",
+            "milk", "report", "dentist", "car", "taxes", "garden", "slides", "flight", "rent", "invoice"
+    };
+
+    private final Database database;
+    private final Random random;
+    private final long now;
+
+    private int tags = 40;
+    private int maxTagsPerTask = 3;
+    private int gtasksLists = 8;
+    private double gtasksFraction = 0.6;
+    private double alarmFraction = 0.2;
+    private double completedFraction = 0.3;
+    private double deletedFraction = 0.05;
+    private double dueDateFraction = 0.4;
+    private double repeatingFraction = 0.1;
+
+    public DatasetGenerator(Database database, long seed) {
+        this.database = database;
+        this.random = new Random(seed);
+        this.now = DateUtilities.now();
+    }
+
+    public DatasetGenerator setTags(int tags) {
+        this.tags = tags;
+        return this;
+    }
+
+    public DatasetGenerator setGtasksLists(int gtasksLists) {
+        this.gtasksLists = gtasksLists;
+        return this;
+    }
+
+    public DatasetGenerator setCompletedFraction(double completedFraction) {
+        this.completedFraction = completedFraction;
+        return this;
+    }
+
+    public DatasetGenerator setDeletedFraction(double deletedFraction) {
+        this.deletedFraction = deletedFraction;
+        return this;
+    }
+
+    /**
+     * Insert <code>count</code> tasks along with their tags, metadata and
+     * one manual ordering per tag
+     */
+    public void generate(int count) {
+        database.openForWriting();
+
+        List<TagData> tagData = createTags();
+        List<List<Long>> tagMembers = new ArrayList<>();
+        for (int i = 0; i < tagData.size(); i++) {
+            tagMembers.add(new ArrayList<Long>());
+        }
+
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && i % BATCH_SIZE == 0) {
+                    database.setTransactionSuccessful();
+                    database.endTransaction();
+                    database.beginTransaction();
+                }
+
+                Task task = createTask(i);
+                long id = insert(Task.TABLE.name, task);
+                for (int tag : pickTags()) {
+                    TagData tagDatum = tagData.get(tag);
+                    insert(Metadata.TABLE.name, TaskToTagMetadata.newTagMetadata(
+                            id, task.getUUID(), tagDatum.getName(), tagDatum.getUuid()));
+                    tagMembers.get(tag).add(id);
+                }
+                if (random.nextDouble() < gtasksFraction) {
+                    insert(Metadata.TABLE.name, createGtasksMetadata(id, i));
+                }
+                if (random.nextDouble() < alarmFraction) {
+                    insert(Metadata.TABLE.name, createAlarm(id));
+                }
+            }
+
+            for (int i = 0; i < tagData.size(); i++) {
+                insert(TaskListMetadata.TABLE.name, createOrdering(tagData.get(i), tagMembers.get(i)));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private List<TagData> createTags() {
+        List<TagData> result = new ArrayList<>();
+        for (int i = 0; i < tags; i++) {
+            TagData tagData = new TagData();
+            tagData.setName(WORDS[i % WORDS.length] + (i / WORDS.length == 0 ? "" : " " + i / WORDS.length));
+            tagData.setUUID(uuid());
+            tagData.setId(insert(TagData.TABLE.name, tagData));
+            result.add(tagData);
+        }
+        return result;
+    }
+
+    private Task createTask(int index) {
+        Task task = new Task();
+        task.setUuid(uuid());
+        task.setTitle(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + index);
+        task.setImportance(random.nextInt(Task.IMPORTANCE_NONE + 1));
+        long created = now - (long) (random.nextDouble() * 365 * DateUtilities.ONE_DAY);
+        task.setCreationDate(created);
+        long modified = created + (long) (random.nextDouble() * (now - created));
+        task.setModificationDate(modified);
+        if (random.nextDouble() < dueDateFraction) {
+            long dueDate = now + (long) ((random.nextDouble() - 0.3) * 60 * DateUtilities.ONE_DAY);
+            int urgency = random.nextBoolean() ? Task.URGENCY_SPECIFIC_DAY : Task.URGENCY_SPECIFIC_DAY_TIME;
+            task.setDueDate(Task.createDueDate(urgency, dueDate));
+            if (random.nextDouble() < repeatingFraction) {
+                RRule rrule = new RRule();
+                rrule.setFreq(Frequency.values()[Frequency.DAILY.ordinal() + random.nextInt(4)]);
+                rrule.setInterval(1 + random.nextInt(3));
+                task.setRecurrence(rrule.toIcal());
+            }
+        }
+        if (random.nextDouble() < completedFraction) {
+            task.setCompletionDate(modified);
+        }
+        if (random.nextDouble() < deletedFraction) {
+            task.setDeletionDate(modified);
+        }
+        return task;
+    }
+
+    private int[] pickTags() {
+        if (tags == 0) {
+            return new int[0];
+        }
+        int[] result = new int[random.nextInt(maxTagsPerTask + 1)];
+        for (int i = 0; i < result.length; i++) {
+            int tag = random.nextInt(tags);
+            for (int j = 0; j < i; j++) {
+                if (result[j] == tag) {
+                    tag = (tag + 1) % tags;
+                    j = -1;
+                }
+            }
+            result[i] = tag;
+        }
+        return result;
+    }
+
+    private Metadata createGtasksMetadata(long taskId, int index) {
+        Metadata metadata = new Metadata();
+        metadata.setKey(GtasksMetadata.METADATA_KEY);
+        metadata.setTask(taskId);
+        metadata.setValue(GtasksMetadata.ID, Long.toHexString(random.nextLong()));
+        metadata.setValue(GtasksMetadata.LIST_ID, "list-" + random.nextInt(Math.max(1, gtasksLists)));
+        metadata.setValue(GtasksMetadata.PARENT_TASK, 0L);
+        metadata.setValue(GtasksMetadata.INDENT, 0);
+        metadata.setValue(GtasksMetadata.ORDER, (long) index);
+        metadata.setValue(GtasksMetadata.GTASKS_ORDER, (long) index);
+        metadata.setValue(GtasksMetadata.LAST_SYNC, now);
+        metadata.setDeletionDate(0L);
+        return metadata;
+    }
+
+    private Metadata createAlarm(long taskId) {
+        Metadata metadata = new Metadata();
+        metadata.setKey(AlarmFields.METADATA_KEY);
+        metadata.setTask(taskId);
+        metadata.setValue(AlarmFields.TIME, now + (long) (random.nextDouble() * 30 * DateUtilities.ONE_DAY));
+        metadata.setValue(AlarmFields.TYPE, AlarmFields.TYPE_SINGLE);
+        metadata.setDeletionDate(0L);
+        return metadata;
+    }
+
+    /** flat ordering where every fifth task is indented under the previous one */
+    private TaskListMetadata createOrdering(TagData tagData, List<Long> taskIds) {
+        StringBuilder tree = new StringBuilder("[\"-1\"");
+        for (int i = 0; i < taskIds.size(); i++) {
+            if (i % 5 == 4) {
+                tree.setLength(tree.lastIndexOf(","));
+                String previous = taskIds.get(i - 1).toString();
+                tree.append(", [\"").append(previous).append("\", \"").append(taskIds.get(i)).append("\"]");
+            } else {
+                tree.append(", \"").append(taskIds.get(i)).append('"');
+            }
+        }
+        tree.append(']');
+
+        TaskListMetadata ordering = new TaskListMetadata();
+        ordering.setTagUUID(tagData.getUuid());
+        ordering.setTaskIDs(tree.toString());
+        return ordering;
+    }
+
+    private long insert(String table, AbstractModel model) {
+        return database.insert(table, AbstractModel.ID_PROPERTY.name, model.getMergedValues());
+    }
+
+    private String uuid() {
+        return Long.toString(Math.abs(random.nextLong()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+
+/**
+ * {@link Database} running on {@link JdbcDatabaseDriver}. New databases are
+ * created and old ones upgraded with the same code the app uses, tracking the
+ * schema version in <code>PRAGMA user_version</code>.
+ */
+public class JdbcDatabase extends Database {
+
+    private final String path;
+    private final boolean writeAheadLogging;
+    private JdbcDatabaseDriver driver;
+
+    /**
+     * @param path database file, or ":memory:" for an in-memory database
+     * that lives until {@link #close()}
+     */
+    public JdbcDatabase(String path) {
+        this(path, false);
+    }
+
+    /**
+     * @param writeAheadLogging open the file with write-ahead logging, see
+     * {@link JdbcDatabaseDriver#enableWriteAheadLogging()}
+     */
+    public JdbcDatabase(String path, boolean writeAheadLogging) {
+        this.path = path;
+        this.writeAheadLogging = writeAheadLogging;
+    }
+
+    @Override
+    public String getName() {
+        return path;
+    }
+
+    @Override
+    synchronized DatabaseDriver open(boolean writable) {
+        if (driver != null && driver.isOpen()) {
+            return driver;
+        }
+        driver = new JdbcDatabaseDriver(path);
+        if (writeAheadLogging) {
+            driver.enableWriteAheadLogging();
+        }
+
+        int version = getUserVersion(driver);
+        if (version != VERSION) {
+            driver.beginTransaction();
+            try {
+                if (version == 0) {
+                    onCreate(driver);
+                } else {
+                    onUpgrade(driver, version, VERSION);
+                }
+                driver.execSQL("PRAGMA user_version = " + VERSION);
+                driver.setTransactionSuccessful();
+            } finally {
+                driver.endTransaction();
+            }
+        }
+        return driver;
+    }
+
+    private static int getUserVersion(DatabaseDriver driver) {
+        Cursor cursor = driver.rawQuery("PRAGMA user_version", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.text.TextUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link DatabaseDriver} backed by the SQLite JDBC driver, for running the
+ * app's schema and queries on a plain JVM. Query results are copied into a
+ * {@link MatrixCursor}. Nested transactions follow the Android semantics:
+ * the outermost transaction commits only if every level was marked
+ * successful.
+ * <p>
+ * Like the platform, writes from different threads are serialized for the
+ * length of a transaction. With {@link #enableWriteAheadLogging()} each
+ * thread that is not in a transaction reads through its own connection.
+ */
+public class JdbcDatabaseDriver implements DatabaseDriver {
+
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private final String path;
+    private final Connection connection;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Connection> readers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Connection> reader = new ThreadLocal<>();
+
+    private volatile boolean writeAheadLogging;
+    private int transactionDepth = 0;
+    private boolean transactionSuccessful;
+    private boolean transactionFailed;
+
+    /**
+     * @param path database file, or ":memory:" for an in-memory database
+     */
+    public JdbcDatabaseDriver(String path) {
+        this.path = path;
+        connection = connect();
+    }
+
+    /**
+     * Switch a file database to write-ahead logging. Must not be called
+     * in a transaction
+     */
+    public void enableWriteAheadLogging() {
+        execSQL("PRAGMA journal_mode=WAL");
+        writeAheadLogging = true;
+    }
+
+    @Override
+    public void execSQL(String sql) {
+        writeLock.lock();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        try (PreparedStatement statement = getReadConnection().prepareStatement(sql)) {
+            bind(statement, 1, selectionArgs);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return toCursor(resultSet);
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        String sql = SQLiteQueryBuilder.buildQueryString(false, table, columns, selection, groupBy, having, orderBy, null);
+        return rawQuery(sql, selectionArgs);
+    }
+
+    @Override
+    public long insertOrThrow(String table, String nullColumnHack, ContentValues values) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append('(');
+        List<Object> args = new ArrayList<>();
+        if (values == null || values.size() == 0) {
+            sql.append(nullColumnHack).append(") VALUES (NULL)");
+        } else {
+            StringBuilder placeholders = new StringBuilder();
+            for (Map.Entry<String, Object> entry : values.valueSet()) {
+                if (!args.isEmpty()) {
+                    sql.append(',');
+                    placeholders.append(',');
+                }
+                sql.append(entry.getKey());
+                placeholders.append('?');
+                args.add(entry.getValue());
+            }
+            sql.append(") VALUES (").append(placeholders).append(')');
+        }
+
+        writeLock.lock();
+        try {
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                bind(statement, 1, args.toArray());
+                statement.executeUpdate();
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT last_insert_rowid()")) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            if (!args.isEmpty()) {
+                sql.append(',');
+            }
+            sql.append(entry.getKey()).append("=?");
+            args.add(entry.getValue());
+        }
+        if (!TextUtils.isEmpty(whereClause)) {
+            sql.append(" WHERE ").append(whereClause);
+        }
+
+        writeLock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int index = bind(statement, 1, args.toArray());
+            bind(statement, index, whereArgs);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        String sql = "DELETE FROM " + table;
+        if (!TextUtils.isEmpty(whereClause)) {
+            sql += " WHERE " + whereClause;
+        }
+
+        writeLock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bind(statement, 1, whereArgs);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // --- transactions
+
+    /**
+     * Holds the write lock until the matching {@link #endTransaction()}
+     */
+    @Override
+    public void beginTransaction() {
+        writeLock.lock();
+        try {
+            if (transactionDepth == 0) {
+                connection.setAutoCommit(false);
+                transactionFailed = false;
+            }
+        } catch (SQLException e) {
+            writeLock.unlock();
+            throw translate(e);
+        }
+        transactionDepth++;
+        transactionSuccessful = false;
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("no transaction pending");
+        }
+        transactionSuccessful = true;
+    }
+
+    @Override
+    public void endTransaction() {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("no transaction pending");
+        }
+        try {
+            if (!transactionSuccessful) {
+                transactionFailed = true;
+            }
+            transactionSuccessful = false;
+            if (--transactionDepth > 0) {
+                return;
+            }
+            if (transactionFailed) {
+                connection.rollback();
+            } else {
+                connection.commit();
+            }
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // --- lifecycle
+
+    @Override
+    public boolean isOpen() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (Connection connection : readers) {
+                connection.close();
+            }
+            readers.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw translate(e);
+        }
+    }
+
+    // --- helpers
+
+    private Connection connect() {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            return DriverManager.getConnection("jdbc:sqlite:" + path);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Threads in a transaction read their own writes on the main connection
+     */
+    private Connection getReadConnection() {
+        if (!writeAheadLogging || writeLock.isHeldByCurrentThread()) {
+            return connection;
+        }
+        Connection connection = reader.get();
+        if (connection == null) {
+            connection = connect();
+            reader.set(connection);
+            readers.add(connection);
+        }
+        return connection;
+    }
+
+    private static int bind(PreparedStatement statement, int index, Object[] args) throws SQLException {
+        if (args == null) {
+            return index;
+        }
+        for (Object arg : args) {
+            if (arg instanceof Boolean) {
+                statement.setInt(index++, (Boolean) arg ? 1 : 0);
+            } else {
+                statement.setObject(index++, arg);
+            }
+        }
+        return index;
+    }
+
+    private static Cursor toCursor(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+        }
+        MatrixCursor cursor = new MatrixCursor(columns);
+        while (resultSet.next()) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    private static SQLiteException translate(SQLException e) {
+        if (e.getErrorCode() == SQLITE_CONSTRAINT) {
+            return new SQLiteConstraintException(e.getMessage());
+        }
+        return new SQLiteException(e.getMessage(), e);
+    }
+}
@@ -0,0 +1,112 @@
+package com.todoroo.astrid.adapter;
+
+import android.database.MatrixCursor;
+
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.astrid.data.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tasks.scheduling.BackgroundExecutor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TaskListSnapshotTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("snapshot", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void roundTripsSavedColumns() throws Exception {
+        TodorooCursor<Task> cursor = live(3);
+
+        TodorooCursor<Task> snapshot = TaskListSnapshot.decode(
+                ByteBuffer.wrap(TaskListSnapshot.encode(cursor)), TaskAdapter.PROPERTIES);
+
+        assertEquals(3, snapshot.getCount());
+        snapshot.moveToPosition(1);
+        assertEquals(Long.valueOf(2), snapshot.get(Task.ID));
+        assertEquals("task 2", snapshot.get(Task.TITLE));
+        assertEquals(Integer.valueOf(Task.IMPORTANCE_MUST_DO), snapshot.get(Task.IMPORTANCE));
+        assertEquals(Long.valueOf(2000), snapshot.get(Task.DUE_DATE));
+        assertEquals(Long.valueOf(0), snapshot.get(Task.COMPLETION_DATE));
+        assertEquals("work  |  home", snapshot.get(TaskAdapter.TAGS));
+        assertEquals(Long.valueOf(0), snapshot.get(Task.HIDE_UNTIL));
+    }
+
+    @Test
+    public void keepsFirstPageOnly() throws Exception {
+        TodorooCursor<Task> snapshot = TaskListSnapshot.decode(
+                ByteBuffer.wrap(TaskListSnapshot.encode(live(100))), TaskAdapter.PROPERTIES);
+
+        assertEquals(TaskListSnapshot.PAGE_SIZE, snapshot.getCount());
+    }
+
+    @Test
+    public void readsWrittenFile() throws Exception {
+        TaskListSnapshot snapshot = new TaskListSnapshot(file, new BackgroundExecutor());
+        assertNull(snapshot.read(TaskAdapter.PROPERTIES));
+
+        snapshot.write(TaskListSnapshot.encode(live(2)));
+
+        assertEquals(2, snapshot.read(TaskAdapter.PROPERTIES).getCount());
+    }
+
+    @Test
+    public void ignoresTruncatedFile() throws Exception {
+        byte[] page = TaskListSnapshot.encode(live(2));
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(page, 0, page.length / 2);
+        } finally {
+            output.close();
+        }
+
+        assertNull(new TaskListSnapshot(file, new BackgroundExecutor()).read(TaskAdapter.PROPERTIES));
+    }
+
+    private static TodorooCursor<Task> live(int rows) {
+        Property<?>[] properties = TaskAdapter.PROPERTIES;
+        String[] columns = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            columns[i] = properties[i].getColumnName();
+        }
+        MatrixCursor cursor = new MatrixCursor(columns);
+        for (int i = 1; i <= rows; i++) {
+            MatrixCursor.RowBuilder row = cursor.newRow();
+            for (String column : columns) {
+                if (column.equals(Task.ID.getColumnName())) {
+                    row.add((long) i);
+                } else if (column.equals(Task.TITLE.getColumnName())) {
+                    row.add("task " + i);
+                } else if (column.equals(Task.IMPORTANCE.getColumnName())) {
+                    row.add(Task.IMPORTANCE_MUST_DO);
+                } else if (column.equals(Task.DUE_DATE.getColumnName())) {
+                    row.add(i * 1000L);
+                } else if (column.equals(TaskAdapter.TAGS.getColumnName())) {
+                    row.add("work  |  home");
+                } else {
+                    row.add(null);
+                }
+            }
+        }
+        return new TodorooCursor<>(cursor, properties);
+    }
+}
@@ -0,0 +1,158 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.Callback;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.todoroo.astrid.dao.DatabaseFixture.NOW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveDaoTest {
+
+    private static final long CUTOFF = NOW - 1000;
+
+    @Rule
+    public final DatabaseFixture fixture = new DatabaseFixture();
+
+    private JdbcDatabase database;
+    private ArchiveDao dao;
+
+    @Before
+    public void setUp() {
+        database = fixture.getDatabase();
+        dao = new ArchiveDao(database);
+    }
+
+    @Test
+    public void archivesOldTasksWithMetadata() {
+        long completed = fixture.insertTask(CUTOFF - 1, 0);
+        long deleted = fixture.insertTask(0, CUTOFF - 1);
+        fixture.insertTask(NOW, 0);
+        fixture.insertTask(0, 0);
+        fixture.insertLink(completed, "1");
+        fixture.insertLink(deleted, "1");
+
+        assertEquals(2, dao.archive(CUTOFF));
+
+        assertEquals(2, fixture.countRows(Task.TABLE.name));
+        assertEquals(2, fixture.countRows(ArchiveDao.TASKS_ARCHIVE));
+        assertEquals(0, fixture.countRows(Metadata.TABLE.name));
+        assertEquals(2, fixture.countRows(ArchiveDao.METADATA_ARCHIVE));
+    }
+
+    @Test
+    public void keepsTasksWaitingForSync() {
+        long task = fixture.insertTask(CUTOFF - 1, 0);
+        new SyncOutboxDao(database).enqueue(task, 1, false);
+
+        assertEquals(0, dao.archive(CUTOFF));
+    }
+
+    @Test
+    public void restoreMovesTaskBackWithSameId() {
+        long task = fixture.insertTask(CUTOFF - 1, 0);
+        fixture.insertLink(task, "1");
+        dao.archive(CUTOFF);
+
+        assertTrue(dao.restore(task));
+
+        assertEquals(1, fixture.countRows(Task.TABLE.name));
+        assertEquals(1, fixture.countRows(Metadata.TABLE.name));
+        assertEquals(0, fixture.countRows(ArchiveDao.TASKS_ARCHIVE));
+        assertFalse(dao.restore(task));
+    }
+
+    @Test
+    public void restoreByMetadata() {
+        long task = fixture.insertTask(CUTOFF - 1, 0);
+        fixture.insertLink(task, "1");
+        dao.archive(CUTOFF);
+
+        assertFalse(dao.restore(TaskToTagMetadata.TAG_UUID.eq("2")));
+        assertTrue(dao.restore(TaskToTagMetadata.TAG_UUID.eq("1")));
+        assertEquals(1, fixture.countRows(Task.TABLE.name));
+    }
+
+    @Test
+    public void restoreByUuid() {
+        long task = fixture.insertTask(CUTOFF - 1, 0);
+        ContentValues values = new ContentValues();
+        values.put(Task.UUID.name, "1234");
+        database.update(Task.TABLE.name, values, Task.ID.name + " = " + task);
+        dao.archive(CUTOFF);
+
+        assertEquals(0, dao.restoreByUuid("5678"));
+        assertEquals(task, dao.restoreByUuid("1234"));
+        assertEquals(1, fixture.countRows(Task.TABLE.name));
+    }
+
+    @Test
+    public void queryMetadataReadsArchive() {
+        long archived = fixture.insertTask(CUTOFF - 1, 0);
+        fixture.insertLink(archived, "1");
+        fixture.insertLink(fixture.insertTask(0, 0), "1");
+        dao.archive(CUTOFF);
+
+        final List<Long> tasks = new ArrayList<>();
+        dao.queryMetadata(TaskToTagMetadata.TAG_UUID.eq("1"), new Callback<Metadata>() {
+            @Override
+            public void apply(Metadata metadata) {
+                tasks.add(metadata.getTask());
+            }
+        });
+
+        assertEquals(2, tasks.size());
+        assertTrue(tasks.contains(archived));
+    }
+
+    @Test
+    public void completedFilterReadsArchive() {
+        long archived = fixture.insertTask(CUTOFF - 1, 0);
+        fixture.insertLink(archived, "1");
+        fixture.insertLink(fixture.insertTask(NOW, 0), "1");
+        fixture.insertLink(fixture.insertTask(0, 0), "1");
+        dao.archive(CUTOFF);
+
+        String sql = "WHERE " + Task.COMPLETION_DATE.gt(0) + " AND " + Task.ID + " IN (SELECT " + Metadata.TASK +
+                " FROM " + Metadata.TABLE + " WHERE " + TaskToTagMetadata.TAG_UUID.eq("1") + ")";
+        assertTrue(ArchiveDao.includesArchive(sql));
+        TodorooCursor<Task> cursor = dao.query(sql, Task.ID);
+        try {
+            assertEquals(2, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void updatesArchivedTasksMatchingCriterion() {
+        fixture.insertTask(CUTOFF - 1, 0);
+        fixture.insertTask(0, CUTOFF - 1);
+        dao.archive(CUTOFF);
+        Task template = new Task();
+        template.setDeletionDate(NOW);
+
+        assertEquals(1, dao.update(Task.COMPLETION_DATE.gt(0), template));
+
+        assertEquals(2, fixture.countRows(ArchiveDao.TASKS_ARCHIVE + " WHERE " + Task.DELETION_DATE.name + " > 0"));
+        assertEquals(2, dao.purgeDeleted());
+    }
+
+    @Test
+    public void activeFilterDoesNotReadArchive() {
+        assertFalse(ArchiveDao.includesArchive("WHERE " + TaskDao.TaskCriteria.activeAndVisible()));
+    }
+}
@@ -0,0 +1,117 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Database opened before and closed after each test, with helpers to
+ * insert tasks and tag links and to count rows
+ */
+public class DatabaseFixture extends ExternalResource {
+
+    public static final long NOW = 1430000000000L;
+
+    private final boolean onDisk;
+    private File file;
+    private JdbcDatabase database;
+
+    public DatabaseFixture() {
+        this(false);
+    }
+
+    /**
+     * @param onDisk true to keep the database in a temporary file instead of
+     *               in memory, such as for tests of the file's size
+     */
+    public DatabaseFixture(boolean onDisk) {
+        this.onDisk = onDisk;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        String path = ":memory:";
+        if (onDisk) {
+            file = File.createTempFile("fixture", ".db");
+            file.delete();
+            path = file.getPath();
+        }
+        database = new JdbcDatabase(path);
+        database.openForWriting();
+    }
+
+    @Override
+    protected void after() {
+        database.close();
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    public JdbcDatabase getDatabase() {
+        return database;
+    }
+
+    public long insertTask() {
+        return insertTask(0, 0);
+    }
+
+    public long insertTask(long completed, long deleted) {
+        return insertTask(completed, deleted, 0);
+    }
+
+    public long insertTask(long completed, long deleted, long hideUntil) {
+        ContentValues values = new ContentValues();
+        values.put(Task.TITLE.name, "task");
+        values.put(Task.COMPLETION_DATE.name, completed);
+        values.put(Task.DELETION_DATE.name, deleted);
+        values.put(Task.HIDE_UNTIL.name, hideUntil);
+        return database.insert(Task.TABLE.name, null, values);
+    }
+
+    public long insertLink(long task, String tagUuid) {
+        return insertLink(task, tagUuid, 0);
+    }
+
+    public long insertLink(long task, String tagUuid, long deleted) {
+        ContentValues values = new ContentValues();
+        values.put(Metadata.TASK.name, task);
+        values.put(Metadata.KEY.name, TaskToTagMetadata.KEY);
+        values.put(TaskToTagMetadata.TAG_UUID.name, tagUuid);
+        values.put(Metadata.DELETION_DATE.name, deleted);
+        return database.insert(Metadata.TABLE.name, null, values);
+    }
+
+    /**
+     * @return number of rows in the table, which may be followed by a where
+     * clause
+     */
+    public int countRows(String table) {
+        return count("SELECT COUNT(1) FROM " + table);
+    }
+
+    /**
+     * @return first column of the first row of the query, such as a count
+     */
+    public int count(String sql) {
+        return count(database, sql);
+    }
+
+    public static int count(Database database, String sql) {
+        Cursor cursor = database.rawQuery(sql);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.astrid.data.Metadata;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.todoroo.astrid.dao.DatabaseFixture.NOW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseMaintenanceTest {
+
+    @Rule
+    public final DatabaseFixture fixture = new DatabaseFixture(true);
+
+    private JdbcDatabase database;
+    private DatabaseMaintenance maintenance;
+
+    @Before
+    public void setUp() {
+        database = fixture.getDatabase();
+        maintenance = new DatabaseMaintenance(database, new MetadataDao(database));
+    }
+
+    @Test
+    public void purgesOldTombstonesOnly() {
+        long task = fixture.insertTask();
+        fixture.insertLink(task, "1", NOW - 1000);
+        fixture.insertLink(task, "1", NOW + 1000);
+        fixture.insertLink(task, "1", 0);
+
+        assertEquals(1, maintenance.purgeTombstones(NOW));
+        assertEquals(2, fixture.countRows(Metadata.TABLE.name));
+    }
+
+    @Test
+    public void removesRowsOfMissingTasks() {
+        long task = fixture.insertTask();
+        fixture.insertLink(task, "1", 0);
+        fixture.insertLink(task + 1, "1", 0);
+        new SyncOutboxDao(database).enqueue(task + 1, 1, false);
+
+        assertEquals(2, maintenance.removeDangling());
+        assertEquals(1, fixture.countRows(Metadata.TABLE.name));
+    }
+
+    @Test
+    public void analyzeWritesStatistics() {
+        fixture.insertLink(fixture.insertTask(), "1", 0);
+
+        maintenance.analyze();
+
+        assertTrue(fixture.countRows("sqlite_stat1") > 0);
+    }
+
+    @Test
+    public void fragmentedDatabaseRebuiltForIncrementalMode() {
+        long task = fixture.insertTask();
+        for (int i = 0; i < 2000; i++) {
+            fixture.insertLink(task, "1", NOW - 1000);
+        }
+        maintenance.purgeTombstones(NOW);
+        long size = maintenance.getSize();
+        assertTrue(maintenance.getFreeSize() > 0);
+        assertFalse(maintenance.vacuum(10));
+
+        assertTrue(maintenance.rebuildIfFragmented());
+
+        assertTrue(maintenance.isIncremental());
+        assertEquals(0, maintenance.getFreeSize());
+        assertTrue(maintenance.getSize() < size);
+        assertFalse(maintenance.rebuildIfFragmented());
+    }
+
+    @Test
+    public void smallFreelistNotRebuilt() {
+        long task = fixture.insertTask();
+        for (int i = 0; i < 2000; i++) {
+            fixture.insertLink(task, "1", 0);
+        }
+        fixture.insertLink(task, "1", NOW - 1000);
+        maintenance.purgeTombstones(NOW);
+
+        assertFalse(maintenance.rebuildIfFragmented());
+        assertFalse(maintenance.isIncremental());
+    }
+}
@@ -0,0 +1,118 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteConstraintException;
+
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JdbcDatabaseTest {
+
+    @Rule
+    public final DatabaseFixture fixture = new DatabaseFixture();
+
+    private JdbcDatabase database;
+
+    @Before
+    public void setUp() {
+        database = fixture.getDatabase();
+    }
+
+    @Test
+    public void createsSchema() {
+        assertEquals(Database.VERSION, fixture.count("PRAGMA user_version"));
+        assertEquals(1, fixture.count("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name = 't_rid'"));
+    }
+
+    @Test
+    public void uniqueUuidIsEnforced() {
+        ContentValues values = new ContentValues();
+        values.put(Task.UUID.name, "1");
+        database.insert(Task.TABLE.name, null, values);
+        try {
+            database.insert(Task.TABLE.name, null, values);
+            fail();
+        } catch (SQLiteConstraintException expected) {
+        }
+    }
+
+    @Test
+    public void nestedTransactionRollsBackOuter() {
+        database.beginTransaction();
+        try {
+            database.beginTransaction();
+            try {
+                database.insert(Task.TABLE.name, null, titled("a"));
+            } finally {
+                database.endTransaction();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        assertEquals(0, fixture.count("SELECT COUNT(*) FROM tasks"));
+    }
+
+    @Test
+    public void readersDoNotWaitForWriteTransaction() throws Exception {
+        File file = File.createTempFile("wal", ".db");
+        file.delete();
+        final JdbcDatabase wal = new JdbcDatabase(file.getPath(), true);
+        wal.openForWriting();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            wal.beginTransaction();
+            try {
+                wal.insert(Task.TABLE.name, null, titled("a"));
+                Future<Integer> count = reader.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return DatabaseFixture.count(wal, "SELECT COUNT(*) FROM tasks");
+                    }
+                });
+                assertEquals(0, (int) count.get(1, TimeUnit.SECONDS));
+                wal.setTransactionSuccessful();
+            } finally {
+                wal.endTransaction();
+            }
+            assertEquals(1, DatabaseFixture.count(wal, "SELECT COUNT(*) FROM tasks"));
+        } finally {
+            reader.shutdown();
+            wal.close();
+            for (String suffix : new String[] { "", "-wal", "-shm" }) {
+                new File(file.getPath() + suffix).delete();
+            }
+        }
+    }
+
+    @Test
+    public void generatesSeededDataset() {
+        new DatasetGenerator(database, 42).setDeletedFraction(0).generate(2000);
+
+        assertEquals(2000, fixture.count("SELECT COUNT(*) FROM tasks"));
+        assertEquals(40, fixture.count("SELECT COUNT(*) FROM tagdata"));
+        assertEquals(40, fixture.count("SELECT COUNT(*) FROM task_list_metadata"));
+        assertTrue(fixture.count("SELECT COUNT(*) FROM metadata WHERE key = '" + TaskToTagMetadata.KEY + "'") > 0);
+    }
+
+    private static ContentValues titled(String title) {
+        ContentValues values = new ContentValues();
+        values.put(Task.TITLE.name, title);
+        return values;
+    }
+}
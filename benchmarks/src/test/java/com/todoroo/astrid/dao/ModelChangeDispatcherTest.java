@@ -0,0 +1,129 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.data.DatabaseDao;
+import com.todoroo.andlib.data.ModelChange;
+import com.todoroo.astrid.data.SyncFlags;
+import com.todoroo.astrid.data.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ModelChangeDispatcherTest {
+
+    private JdbcDatabase database;
+    private DatabaseDao<Task> dao;
+    private final BlockingQueue<ModelChange> changes = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        database = new JdbcDatabase(":memory:");
+        database.openForWriting();
+        dao = new DatabaseDao<>(database, Task.class);
+        database.getModelChanges().captureFlag(SyncFlags.GTASKS_SUPPRESS_SYNC);
+        database.getModelChanges().subscribe(Task.TABLE, ModelChange.columns(Task.TITLE, Task.DUE_DATE),
+                new ModelChange.Listener() {
+                    @Override
+                    public void onModelChanged(ModelChange change) {
+                        changes.add(change);
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void deliversChangesInOrderWithColumns() throws InterruptedException {
+        Task first = task("first");
+        Task second = task("second");
+        second.setDueDate(1000L);
+        dao.saveExisting(second);
+
+        ModelChange change = next();
+        assertEquals(first.getId(), change.getId());
+        assertTrue(change.isChanged(Task.TITLE));
+        assertEquals(second.getId(), next().getId());
+        change = next();
+        assertEquals(second.getId(), change.getId());
+        assertTrue(change.isChanged(Task.DUE_DATE));
+        assertFalse(change.isChanged(Task.TITLE));
+    }
+
+    @Test
+    public void ignoresColumnsNotSubscribed() throws InterruptedException {
+        Task task = task("task");
+        next();
+        task.setImportance(Task.IMPORTANCE_MUST_DO);
+        dao.saveExisting(task);
+        task.setTitle("renamed");
+        dao.saveExisting(task);
+
+        ModelChange change = next();
+        assertTrue(change.isChanged(Task.TITLE));
+        assertNull(changes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void publishesAfterCommit() throws InterruptedException {
+        database.beginTransaction();
+        try {
+            task("task");
+            assertNull(changes.poll(100, TimeUnit.MILLISECONDS));
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        next();
+    }
+
+    @Test
+    public void dropsChangesFromRolledBackTransaction() throws InterruptedException {
+        database.beginTransaction();
+        try {
+            task("task");
+        } finally {
+            database.endTransaction();
+        }
+        assertNull(changes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void capturesFlagForOneSave() throws InterruptedException {
+        Task task = new Task();
+        task.setTitle("task");
+        task.putTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC, true);
+        dao.createNew(task);
+        assertTrue(next().hasFlag(SyncFlags.GTASKS_SUPPRESS_SYNC));
+
+        task.setTitle("renamed");
+        dao.saveExisting(task);
+        assertFalse(next().hasFlag(SyncFlags.GTASKS_SUPPRESS_SYNC));
+    }
+
+    private Task task(String title) {
+        Task task = new Task();
+        task.setTitle(title);
+        dao.createNew(task);
+        return task;
+    }
+
+    private ModelChange next() throws InterruptedException {
+        ModelChange change = changes.poll(1, TimeUnit.SECONDS);
+        if (change == null) {
+            throw new AssertionError("no change delivered");
+        }
+        return change;
+    }
+}
@@ -0,0 +1,36 @@
+package com.todoroo.astrid.dao;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryProfilerTest {
+
+    @Test
+    public void normalizeStripsLiterals() {
+        assertEquals("SELECT * FROM tasks WHERE title = ? AND dueDate > ?",
+                QueryProfiler.normalize("SELECT *  FROM tasks\nWHERE title = 'it''s' AND dueDate > 1400000000000"));
+    }
+
+    @Test
+    public void slowStatementsAlwaysRecorded() {
+        QueryProfiler profiler = new QueryProfiler();
+        assertTrue(profiler.shouldRecord(TimeUnit.MILLISECONDS.toNanos(QueryProfiler.SLOW_QUERY_MILLIS)));
+    }
+
+    @Test
+    public void reportGroupsByTemplate() {
+        JdbcDatabase database = new JdbcDatabase(":memory:");
+        database.openForWriting();
+        for (int i = 0; i < QueryProfiler.SAMPLE_RATE * 2; i++) {
+            database.rawQuery("SELECT * FROM tasks WHERE _id = " + i).close();
+        }
+        String report = database.getProfiler().getReport();
+        database.close();
+
+        assertTrue(report, report.contains("SELECT * FROM tasks WHERE _id = ?"));
+    }
+}
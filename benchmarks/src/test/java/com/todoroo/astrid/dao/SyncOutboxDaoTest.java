@@ -0,0 +1,67 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.astrid.data.SyncOutbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyncOutboxDaoTest {
+
+    private JdbcDatabase database;
+    private SyncOutboxDao dao;
+
+    @Before
+    public void setUp() {
+        database = new JdbcDatabase(":memory:");
+        database.openForWriting();
+        dao = new SyncOutboxDao(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void coalescesChangesToSameTask() {
+        dao.enqueue(1, 2, false);
+        dao.enqueue(1, 4, false);
+        dao.enqueue(1, 0, true);
+
+        List<SyncOutbox> entries = dao.getAll();
+        assertEquals(1, entries.size());
+        assertEquals(6, entries.get(0).getFields());
+        assertTrue(entries.get(0).isMove());
+    }
+
+    @Test
+    public void retryHidesEntryUntilNextAttempt() {
+        dao.enqueue(1, 2, false);
+        SyncOutbox entry = dao.getAll().get(0);
+        long now = entry.getQueued();
+
+        dao.retryAt(entry, now + 5000);
+
+        assertTrue(dao.getReady(now, now, 10).isEmpty());
+        assertEquals(1, dao.getReady(now + 5000, now, 10).size());
+        assertEquals(1, dao.getAll().get(0).getAttempts());
+    }
+
+    @Test
+    public void changeDuringPushIsKept() {
+        dao.enqueue(1, 2, false);
+        SyncOutbox pushed = dao.getAll().get(0);
+        pushed.setQueued(pushed.getQueued() - 1); // simulate a change after the entry was read
+
+        dao.remove(pushed);
+
+        assertFalse(dao.getAll().isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.todoroo.astrid.dao.DatabaseFixture.NOW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TagCountDaoTest {
+
+    @Rule
+    public final DatabaseFixture fixture = new DatabaseFixture();
+
+    private JdbcDatabase database;
+    private TagCountDao dao;
+
+    @Before
+    public void setUp() {
+        database = fixture.getDatabase();
+        dao = new TagCountDao(database);
+    }
+
+    @Test
+    public void countsMatchAggregateForGeneratedDataset() {
+        new DatasetGenerator(database, 42).generate(2000);
+
+        assertEquals(aggregate(), dao.getVisibleCounts(NOW));
+    }
+
+    @Test
+    public void completingAndReopeningTaskAdjustsCounts() {
+        long task = fixture.insertTask();
+        fixture.insertLink(task, "1");
+        fixture.insertLink(task, "2");
+
+        setCompleted(task, NOW);
+        assertNull(dao.getVisibleCounts(NOW).get("1"));
+
+        setCompleted(task, 0);
+        assertEquals(Integer.valueOf(1), dao.getVisibleCounts(NOW).get("1"));
+        assertEquals(aggregate(), dao.getVisibleCounts(NOW));
+    }
+
+    @Test
+    public void deletedLinkIsNotCounted() {
+        long task = fixture.insertTask();
+        long link = fixture.insertLink(task, "1");
+        fixture.insertLink(fixture.insertTask(), "1");
+
+        ContentValues values = new ContentValues();
+        values.put(Metadata.DELETION_DATE.name, NOW);
+        database.update(Metadata.TABLE.name, values, Metadata.ID.name + " = " + link);
+
+        assertEquals(Integer.valueOf(1), dao.getVisibleCounts(NOW).get("1"));
+    }
+
+    @Test
+    public void hiddenTasksAreNotCounted() {
+        fixture.insertLink(fixture.insertTask(0, 0, NOW + 1000), "1");
+        fixture.insertLink(fixture.insertTask(), "1");
+
+        assertEquals(Integer.valueOf(1), dao.getVisibleCounts(NOW).get("1"));
+    }
+
+    @Test
+    public void deletingTaskAdjustsCounts() {
+        long task = fixture.insertTask();
+        fixture.insertLink(task, "1");
+        fixture.insertLink(fixture.insertTask(), "1");
+
+        database.delete(Task.TABLE.name, Task.ID.name + " = " + task, null);
+
+        assertEquals(Integer.valueOf(1), dao.getVisibleCounts(NOW).get("1"));
+    }
+
+    private void setCompleted(long task, long completed) {
+        ContentValues values = new ContentValues();
+        values.put(Task.COMPLETION_DATE.name, completed);
+        database.update(Task.TABLE.name, values, Task.ID.name + " = " + task);
+    }
+
+    private Map<String, Integer> aggregate() {
+        Map<String, Integer> counts = new HashMap<>();
+        Cursor cursor = database.rawQuery("SELECT value2, COUNT(1) FROM metadata INNER JOIN tasks ON metadata.task = tasks._id" +
+                " WHERE metadata.key = '" + TaskToTagMetadata.KEY + "' AND metadata.deleted = 0" +
+                " AND tasks.completed = 0 AND tasks.deleted = 0 AND tasks.hideUntil < " + NOW + " GROUP BY value2");
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                counts.put(cursor.getString(0), cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,136 @@
+package com.todoroo.astrid.gtasks.api;
+
+import com.google.api.client.util.Data;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.tasks.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link GtasksInvoker} against a local server that replays scripted
+ * responses
+ */
+public class GtasksInvokerTest {
+
+    private static final String QUOTA = "{\"error\":{\"errors\":[{\"reason\":\"userRateLimitExceeded\"}],\"code\":403}}";
+
+    private ScriptedGtasksServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ScriptedGtasksServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void retriesServerErrors() throws IOException {
+        server.respond(503, "");
+        server.respond(500, "");
+
+        assertEquals("Inbox", server.newInvoker(newPolicy()).allGtaskLists().getItems().get(0).getTitle());
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    public void doesNotRetryBadRequest() {
+        server.respondByDefault(400, "", 0);
+
+        try {
+            server.newInvoker(newPolicy()).allGtaskLists();
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    public void pausesAfterRepeatedQuotaErrors() throws IOException {
+        server.respondByDefault(403, QUOTA, 0);
+        GtasksInvoker invoker = server.newInvoker(newPolicy());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.allGtaskLists();
+                fail();
+            } catch (SyncPausedException e) {
+                fail();
+            } catch (IOException expected) {
+            }
+        }
+        assertEquals(GtasksRequestPolicy.BREAKER_THRESHOLD, server.getRequests());
+
+        try {
+            invoker.allGtaskLists();
+            fail();
+        } catch (SyncPausedException expected) {
+        }
+        assertEquals(GtasksRequestPolicy.BREAKER_THRESHOLD, server.getRequests());
+    }
+
+    @Test
+    public void readTimeoutIsBounded() throws IOException {
+        server.respondByDefault(200, ScriptedGtasksServer.LISTS, 2000);
+        RequestPolicy policy = new GtasksRequestPolicy(1000, 100, 1, 60000) {
+            @Override
+            public long onFailure(int attempt, int statusCode, boolean quotaExceeded) {
+                return -1;
+            }
+
+            @Override
+            public int getReadTimeout() {
+                return 100;
+            }
+        };
+
+        try {
+            server.newInvoker(policy).allGtaskLists();
+            fail();
+        } catch (SocketTimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void patchSendsOnlyChangedFields() throws IOException {
+        server.respondByDefault(200, "{\"id\":\"2\"}", 0);
+        Task task = new Task();
+        task.setId("2");
+        task.setTitle("New title");
+        task.setDue(Data.nullOf(DateTime.class));
+
+        server.newInvoker(newPolicy()).patchGtask("1", task);
+
+        assertEquals("PATCH", server.getLastMethod());
+        assertTrue(server.getLastQuery().contains("fields=id"));
+        assertTrue(server.getLastBody().contains("\"title\":\"New title\""));
+        assertTrue(server.getLastBody().contains("\"due\":null"));
+        assertFalse(server.getLastBody().contains("notes"));
+    }
+
+    @Test
+    public void listPullRequestsOnlyReadFields() throws IOException {
+        server.respondByDefault(200, "{}", 0);
+
+        server.newInvoker(newPolicy()).getAllGtasksFromListId("1", false, false, 0);
+
+        assertTrue(URLDecoder.decode(server.getLastQuery(), "UTF-8").contains("fields=items(id,title,notes,due,completed,deleted,hidden,updated,parent,position)"));
+    }
+
+    private static GtasksRequestPolicy newPolicy() {
+        return new GtasksRequestPolicy(1000, 100, 1, 60000);
+    }
+}
@@ -0,0 +1,130 @@
+package com.todoroo.astrid.gtasks.api;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.tasks.sync.SyncTelemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local server that replays scripted responses to {@link GtasksInvoker}
+ * requests and records the last request
+ */
+public class ScriptedGtasksServer {
+
+    public static final String LISTS = "{\"kind\":\"tasks#taskLists\",\"items\":[{\"id\":\"1\",\"title\":\"Inbox\"}]}";
+
+    private final LinkedBlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Response fallback = new Response(200, LISTS, 0);
+    private volatile String lastMethod;
+    private volatile String lastQuery;
+    private volatile String lastBody;
+    private final HttpServer server;
+
+    public ScriptedGtasksServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                record(exchange);
+                Response response = responses.poll();
+                if (response == null) {
+                    response = fallback;
+                }
+                response.send(exchange);
+            }
+        });
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /** queue a response for the next request */
+    public void respond(int status, String body) {
+        responses.add(new Response(status, body, 0));
+    }
+
+    /** respond to all requests that have no queued response */
+    public void respondByDefault(int status, String body, long delay) {
+        fallback = new Response(status, body, delay);
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public String getLastMethod() {
+        return lastMethod;
+    }
+
+    public String getLastQuery() {
+        return lastQuery;
+    }
+
+    public String getLastBody() {
+        return lastBody;
+    }
+
+    public GtasksInvoker newInvoker(RequestPolicy policy) {
+        String rootUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+        return new GtasksInvoker(null, null, new SyncTelemetry(null), policy, new NetHttpTransport(),
+                rootUrl, "key", "token");
+    }
+
+    private void record(HttpExchange exchange) throws IOException {
+        Headers headers = exchange.getRequestHeaders();
+        String override = headers.getFirst("X-HTTP-Method-Override");
+        lastMethod = override == null ? exchange.getRequestMethod() : override;
+        lastQuery = exchange.getRequestURI().getRawQuery();
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(headers.getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            body.write(buffer, 0, read);
+        }
+        lastBody = body.toString("UTF-8");
+    }
+
+    private static class Response {
+        final int status;
+        final byte[] body;
+        final long delay;
+
+        Response(int status, String body, long delay) {
+            this.status = status;
+            this.body = body.getBytes();
+            this.delay = delay;
+        }
+
+        void send(HttpExchange exchange) throws IOException {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+}
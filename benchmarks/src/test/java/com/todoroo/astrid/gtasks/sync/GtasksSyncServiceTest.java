@@ -0,0 +1,137 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import android.content.ContentValues;
+
+import com.todoroo.astrid.dao.ArchiveDao;
+import com.todoroo.astrid.dao.DatabaseFixture;
+import com.todoroo.astrid.dao.JdbcDatabase;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.SyncOutboxDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.SyncOutbox;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.gtasks.GtasksMetadataService;
+import com.todoroo.astrid.gtasks.GtasksPreferenceService;
+import com.todoroo.astrid.gtasks.api.GtasksRequestPolicy;
+import com.todoroo.astrid.gtasks.api.ScriptedGtasksServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.tasks.Broadcaster;
+import org.tasks.sync.SyncTelemetry;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pushes outbox entries to a local server that replays scripted responses
+ */
+public class GtasksSyncServiceTest {
+
+    private static final String CREATED = "{\"id\":\"2\"}";
+
+    @Rule
+    public final DatabaseFixture fixture = new DatabaseFixture();
+
+    private JdbcDatabase database;
+    private ScriptedGtasksServer server;
+    private SyncOutboxDao syncOutboxDao;
+    private GtasksMetadataService gtasksMetadataService;
+    private GtasksMetadata gtasksMetadata;
+    private MetadataDao metadataDao;
+    private GtasksSyncService service;
+
+    @Before
+    public void setUp() throws IOException {
+        database = fixture.getDatabase();
+        server = new ScriptedGtasksServer();
+        GtasksPreferenceService preferences = new GtasksPreferenceService(null) {
+            @Override
+            public String getDefaultList() {
+                return "1";
+            }
+        };
+        Broadcaster broadcaster = new Broadcaster(null) {
+            @Override
+            public void refresh() {
+            }
+        };
+        ArchiveDao archiveDao = new ArchiveDao(database);
+        metadataDao = new MetadataDao(database);
+        TaskDao taskDao = new TaskDao(database, metadataDao, archiveDao, broadcaster, null, null, null, null);
+        syncOutboxDao = new SyncOutboxDao(database);
+        gtasksMetadataService = new GtasksMetadataService(taskDao, metadataDao, archiveDao);
+        gtasksMetadata = new GtasksMetadata(preferences);
+        service = new GtasksSyncService(null, database, metadataDao, gtasksMetadataService, taskDao, preferences,
+                null, gtasksMetadata, new SyncTelemetry(null), syncOutboxDao, null);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void createSendsAllFieldsOfUnsyncedTask() {
+        long task = insertTask("task");
+        syncOutboxDao.enqueue(task, GtasksSyncService.getFields(Task.DUE_DATE), false);
+        server.respond(200, CREATED);
+
+        service.flushOutbox(server.newInvoker(new GtasksRequestPolicy()));
+
+        assertEquals("POST", server.getLastMethod());
+        assertTrue(server.getLastBody().contains("\"title\":\"task\""));
+        assertTrue(server.getLastBody().contains("\"notes\":\"notes\""));
+        assertTrue(server.getLastBody().contains("\"due\":"));
+        assertEquals("2", gtasksMetadataService.getTaskMetadata(task).getValue(GtasksMetadata.ID));
+        assertTrue(syncOutboxDao.getAll().isEmpty());
+    }
+
+    @Test
+    public void untitledTaskStaysInOutbox() {
+        long task = insertTask("");
+        syncOutboxDao.enqueue(task, GtasksSyncService.getFields(Task.DUE_DATE), false);
+
+        service.flushOutbox(server.newInvoker(new GtasksRequestPolicy()));
+
+        assertEquals(0, server.getRequests());
+        List<SyncOutbox> entries = syncOutboxDao.getAll();
+        assertEquals(1, entries.size());
+        assertEquals(1, entries.get(0).getAttempts());
+    }
+
+    @Test
+    public void recreatesTaskMissingOnServer() {
+        long task = insertTask("task");
+        Metadata metadata = gtasksMetadata.createEmptyMetadata(task);
+        metadata.setValue(GtasksMetadata.ID, "9");
+        metadataDao.persist(metadata);
+        syncOutboxDao.enqueue(task, GtasksSyncService.getFields(Task.DUE_DATE), false);
+        server.respond(404, "");
+        server.respond(200, CREATED);
+
+        service.flushOutbox(server.newInvoker(new GtasksRequestPolicy()));
+
+        assertEquals(2, server.getRequests());
+        assertEquals("POST", server.getLastMethod());
+        assertTrue(server.getLastBody().contains("\"title\":\"task\""));
+        assertTrue(server.getLastBody().contains("\"notes\":\"notes\""));
+        assertEquals("2", gtasksMetadataService.getTaskMetadata(task).getValue(GtasksMetadata.ID));
+        assertTrue(syncOutboxDao.getAll().isEmpty());
+    }
+
+    private long insertTask(String title) {
+        ContentValues values = new ContentValues();
+        values.put(Task.TITLE.name, title);
+        values.put(Task.NOTES.name, "notes");
+        values.put(Task.DUE_DATE.name, DatabaseFixture.NOW);
+        return database.insert(Task.TABLE.name, null, values);
+    }
+}
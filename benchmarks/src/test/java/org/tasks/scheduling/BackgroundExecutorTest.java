@@ -0,0 +1,131 @@
+package org.tasks.scheduling;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BackgroundExecutorTest {
+
+    private BackgroundExecutor executor;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        executor = new BackgroundExecutor();
+    }
+
+    @Test
+    public void coalescesQueuedJobsWithSameKey() throws Exception {
+        block(Lane.MAINTENANCE);
+
+        Future<?> first = executor.execute(Lane.MAINTENANCE, "refresh", count());
+        Future<?> second = executor.execute(Lane.MAINTENANCE, "refresh", count());
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+
+        assertSame(first, second);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void queuesAgainOnceJobStarted() throws Exception {
+        Future<?> running = executor.execute(Lane.MAINTENANCE, "refresh", new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                await(release);
+            }
+        });
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        Future<?> next = executor.execute(Lane.MAINTENANCE, "refresh", count());
+        release.countDown();
+        next.get(1, TimeUnit.SECONDS);
+
+        assertNotSame(running, next);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void cancelDropsQueuedJobs() throws Exception {
+        block(Lane.MAINTENANCE);
+
+        Future<?> cancelled = executor.execute(Lane.MAINTENANCE, "refresh", count());
+        executor.cancel("refresh");
+        release.countDown();
+        executor.execute(Lane.MAINTENANCE, count()).get(1, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void cancelStopsSchedule() throws Exception {
+        executor.schedule(Lane.UI_CRITICAL, "tick", 10, 10, count());
+        Thread.sleep(100);
+        executor.cancel("tick");
+        Thread.sleep(50);
+        int count = runs.get();
+        Thread.sleep(100);
+
+        assertTrue(count > 0);
+        assertEquals(count, runs.get());
+    }
+
+    @Test
+    public void failureDoesNotStopLane() throws Exception {
+        executor.execute(Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failed");
+            }
+        });
+        executor.execute(Lane.MAINTENANCE, count()).get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, runs.get());
+        for (int i = 0; i < 100 && !executor.getReport().contains("completed 1, failed 1"); i++) {
+            Thread.sleep(10); // counters are updated after waiters are released
+        }
+        assertTrue(executor.getReport().contains("completed 1, failed 1"));
+    }
+
+    private void block(Lane lane) throws InterruptedException {
+        executor.execute(lane, new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                await(release);
+            }
+        });
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+    }
+
+    private Runnable count() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
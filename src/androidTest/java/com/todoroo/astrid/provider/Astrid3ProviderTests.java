@@ -5,6 +5,8 @@
  */
 package com.todoroo.astrid.provider;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.database.Cursor;
@@ -18,6 +20,10 @@ import com.todoroo.astrid.data.StoreObject;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.test.DatabaseTestCase;
 
+import org.tasks.BuildConfig;
+
+import java.util.ArrayList;
+
 public class Astrid3ProviderTests extends DatabaseTestCase {
 
     String[] PROJECTION = new String[] {
@@ -351,4 +357,42 @@ public class Astrid3ProviderTests extends DatabaseTestCase {
         assertEquals(20, cursor.getInt(0));
     }
 
+    /** Test inserting and updating many rows in one call */
+    public void testBatchOperations() throws Exception {
+        ContentResolver resolver = getContext().getContentResolver();
+        Uri uri = Task.CONTENT_URI;
+
+        ContentValues[] values = new ContentValues[3];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues();
+            values[i].put(Task.TITLE.name, "task " + i);
+        }
+        assertEquals(3, resolver.bulkInsert(uri, values));
+
+        Cursor cursor = resolver.query(uri, PROJECTION, null, null, null);
+        assertEquals(3, cursor.getCount());
+        cursor.close();
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newUpdate(uri)
+                .withValue(Task.IMPORTANCE.name, Task.IMPORTANCE_MUST_DO)
+                .withSelection(Task.TITLE.name + " = ?", new String[] { "task 0" })
+                .build());
+        operations.add(ContentProviderOperation.newDelete(uri)
+                .withSelection(Task.TITLE.name + " = ?", new String[] { "task 1" })
+                .build());
+        ContentProviderResult[] results = resolver.applyBatch(BuildConfig.APPLICATION_ID, operations);
+        assertEquals(1, results[0].count.intValue());
+        assertEquals(1, results[1].count.intValue());
+
+        cursor = resolver.query(uri, new String[] { Task.IMPORTANCE.name },
+                Task.TITLE.name + " = 'task 0'", null, null);
+        cursor.moveToFirst();
+        assertEquals(Task.IMPORTANCE_MUST_DO, cursor.getInt(0));
+        cursor.close();
+
+        cursor = resolver.query(uri, PROJECTION, null, null, null);
+        assertEquals(2, cursor.getCount());
+        cursor.close();
+    }
 }
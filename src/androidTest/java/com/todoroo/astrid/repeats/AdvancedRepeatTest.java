@@ -208,6 +208,31 @@ public class AdvancedRepeatTest extends AndroidTestCase {
         }
     }
 
+    // --- batch tests
+
+    public void testNextDueDatesFollowDueDate() throws ParseException {
+        buildRRule(2, Frequency.DAILY);
+        task.setRecurrence(rrule.toIcal());
+        long dayWithTime = Task.createDueDate(Task.URGENCY_SPECIFIC_DAY_TIME, newDateTime(2010, 8, 1, 10, 4, 0).getTime());
+        task.setDueDate(dayWithTime);
+
+        long[] dueDates = RepeatTaskCompleteListener.computeNextDueDates(task, 3);
+        assertEquals(3, dueDates.length);
+        for (int i = 0; i < dueDates.length; i++) {
+            assertDateTimeEquals(dayWithTime + (i + 1) * 2 * DateUtilities.ONE_DAY, dueDates[i]);
+        }
+    }
+
+    public void testNextDueDatesStopAtRepeatUntil() throws ParseException {
+        buildRRule(1, Frequency.DAILY);
+        task.setRecurrence(rrule.toIcal());
+        long dayWithTime = Task.createDueDate(Task.URGENCY_SPECIFIC_DAY_TIME, newDateTime(2010, 8, 1, 10, 4, 0).getTime());
+        task.setDueDate(dayWithTime);
+        task.setRepeatUntil(dayWithTime + 2 * DateUtilities.ONE_DAY + DateUtilities.ONE_HOUR);
+
+        assertEquals(2, RepeatTaskCompleteListener.computeNextDueDates(task, 5).length);
+    }
+
     // --- helpers
 
     private void computeNextDueDate(boolean fromComplete) throws ParseException{
@@ -0,0 +1,67 @@
+package com.todoroo.astrid.service;
+
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import javax.inject.Inject;
+
+import static java.util.Arrays.asList;
+
+public class TaskDetailLoaderTest extends DatabaseTestCase {
+
+    @Inject TaskDetailLoader taskDetailLoader;
+    @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+
+    public void testMissingTask() {
+        assertNull(taskDetailLoader.get(1234L));
+    }
+
+    public void testLoadsTagsAndAlarmsInOrder() {
+        Task task = new Task();
+        task.setTitle("task");
+        taskDao.persist(task);
+
+        metadataDao.persist(TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), "beta", "1"));
+        metadataDao.persist(TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), "Alpha", "2"));
+        Metadata deleted = TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), "gone", "3");
+        deleted.setDeletionDate(1L);
+        metadataDao.persist(deleted);
+        metadataDao.persist(alarm(task.getId(), 200L));
+        metadataDao.persist(alarm(task.getId(), 100L));
+
+        TaskDetails details = taskDetailLoader.get(task.getId());
+
+        assertEquals(task.getId(), details.getTask().getId());
+        assertEquals(asList("Alpha", "beta"), details.getTagNames());
+        assertEquals(asList(100L, 200L), details.getAlarms());
+        assertTrue(details.getGeofences().isEmpty());
+        assertTrue(details.getAttachments().isEmpty());
+        assertFalse(details.calendarEventExists());
+    }
+
+    public void testPrefetchedDetailsAreUsedOnce() {
+        Task task = new Task();
+        task.setTitle("task");
+        taskDao.persist(task);
+
+        taskDetailLoader.prefetch(task.getId());
+        TaskDetails prefetched = taskDetailLoader.get(task.getId());
+
+        assertNotSame(prefetched, taskDetailLoader.get(task.getId()));
+    }
+
+    private static Metadata alarm(long taskId, long time) {
+        Metadata metadata = new Metadata();
+        metadata.setKey(AlarmFields.METADATA_KEY);
+        metadata.setTask(taskId);
+        metadata.setValue(AlarmFields.TIME, time);
+        metadata.setValue(AlarmFields.TYPE, AlarmFields.TYPE_SINGLE);
+        return metadata;
+    }
+}
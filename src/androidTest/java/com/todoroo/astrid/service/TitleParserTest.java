@@ -46,6 +46,15 @@ public class TitleParserTest extends DatabaseTestCase {
       assertEquals(task.getRecurrence(), nothing.getRecurrence());
   }
 
+  /** test that titles with words and numbers but no markup are only trimmed */
+  public void testNoMarkup() {
+      Task task = new Task();
+      insertTitleAddTask("  Jog 2 laps around the monument  ", task);
+      assertEquals("Jog 2 laps around the monument", task.getTitle());
+      assertFalse(task.hasDueDate());
+      assertEquals("", task.getRecurrence());
+  }
+
   /** Tests correct date is parsed **/
   public void testMonthDate() {
       Task task = new Task();
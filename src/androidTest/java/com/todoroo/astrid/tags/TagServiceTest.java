@@ -0,0 +1,87 @@
+package com.todoroo.astrid.tags;
+
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.Collections;
+
+import javax.inject.Inject;
+
+import static java.util.Arrays.asList;
+
+public class TagServiceTest extends DatabaseTestCase {
+
+    @Inject TagService tagService;
+    @Inject TagDictionary tagDictionary;
+    @Inject TagDataDao tagDataDao;
+    @Inject TaskDao taskDao;
+
+    public void testSynchronizeCreatesTagsAndLinks() {
+        Task task = newTask();
+
+        tagService.synchronizeTags(task.getId(), asList("Alpha", "beta"));
+
+        assertEquals(asList("Alpha", "beta"), tagService.getTagNames(task.getId()));
+        assertNotNull(tagDataDao.getTagByName("alpha", TagData.UUID));
+    }
+
+    public void testSynchronizeRemovesMissingTags() {
+        Task task = newTask();
+        tagService.synchronizeTags(task.getId(), asList("Alpha", "beta", "gamma"));
+
+        tagService.synchronizeTags(task.getId(), asList("beta", "delta"));
+
+        assertEquals(asList("beta", "delta"), tagService.getTagNames(task.getId()));
+    }
+
+    public void testSynchronizeToEmptyRemovesAllTags() {
+        Task task = newTask();
+        tagService.synchronizeTags(task.getId(), asList("Alpha", "beta"));
+
+        tagService.synchronizeTags(task.getId(), Collections.<String>emptyList());
+
+        assertTrue(tagService.getTagNames(task.getId()).isEmpty());
+    }
+
+    public void testExistingTagMatchedIgnoringCase() {
+        Task task = newTask();
+        tagService.synchronizeTags(task.getId(), asList("Alpha"));
+
+        tagService.synchronizeTags(task.getId(), asList("ALPHA"));
+
+        assertEquals(asList("Alpha"), tagService.getTagNames(task.getId()));
+        assertEquals("Alpha", tagService.getTagWithCase("alpha"));
+    }
+
+    public void testBulkAdd() {
+        Task first = newTask();
+        Task second = newTask();
+        tagService.synchronizeTags(first.getId(), asList("beta"));
+
+        tagService.addTags(Task.ID.in(asList(first.getId(), second.getId())), asList("Alpha", "beta"));
+
+        assertEquals(asList("Alpha", "beta"), tagService.getTagNames(first.getId()));
+        assertEquals(asList("Alpha", "beta"), tagService.getTagNames(second.getId()));
+    }
+
+    public void testRenameUpdatesDictionary() {
+        Task task = newTask();
+        tagService.synchronizeTags(task.getId(), asList("Alpha"));
+        String uuid = tagDictionary.getUuid("alpha");
+
+        tagService.rename(uuid, "Omega");
+
+        assertNull(tagDictionary.getUuid("alpha"));
+        assertEquals(uuid, tagDictionary.getUuid("omega"));
+    }
+
+    private Task newTask() {
+        Task task = new Task();
+        task.setTitle("task");
+        taskDao.persist(task);
+        return task;
+    }
+}
@@ -2,6 +2,7 @@ package org.tasks.injection;
 
 import android.content.Context;
 
+import org.tasks.scheduling.BackgroundExecutor;
 import org.tasks.scheduling.BackupServiceTests;
 import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDaoTests;
@@ -15,10 +16,12 @@ import com.todoroo.astrid.provider.Astrid3ProviderTests;
 import com.todoroo.astrid.reminders.ReminderServiceTest;
 import com.todoroo.astrid.repeats.NewRepeatTests;
 import com.todoroo.astrid.service.QuickAddMarkupTest;
+import com.todoroo.astrid.service.TaskDetailLoaderTest;
 import com.todoroo.astrid.service.TitleParserTest;
 import com.todoroo.astrid.subtasks.SubtasksHelperTest;
 import com.todoroo.astrid.subtasks.SubtasksMovingTest;
 import com.todoroo.astrid.subtasks.SubtasksTestCase;
+import com.todoroo.astrid.tags.TagServiceTest;
 import com.todoroo.astrid.sync.NewSyncTestCase;
 import com.todoroo.astrid.sync.SyncModelTest;
 
@@ -37,8 +40,10 @@ import dagger.Provides;
         Astrid3ProviderTests.class,
         NewRepeatTests.class,
         QuickAddMarkupTest.class,
+        TaskDetailLoaderTest.class,
         TitleParserTest.class,
         SubtasksTestCase.class,
+        TagServiceTest.class,
         NewSyncTestCase.class,
         TaskTest.class,
         ReminderServiceTest.class,
@@ -65,6 +70,12 @@ public class TestModule {
         };
     }
 
+    @Singleton
+    @Provides
+    public BackgroundExecutor getBackgroundExecutor() {
+        return new BackgroundExecutor();
+    }
+
     @Singleton
     @Provides
     @ForApplication
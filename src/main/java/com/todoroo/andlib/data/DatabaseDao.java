@@ -16,8 +16,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
 
 /**
  * DAO for reading data from an instance of {@link Database}. If you
@@ -37,10 +38,17 @@ public class DatabaseDao<TYPE extends AbstractModel> {
 
     private Database database;
 
+    /** column name to its bit in a {@link ModelChange} mask */
+    private final Map<String, Long> columnBits = new HashMap<>();
+
     public DatabaseDao(Database database, Class<TYPE> modelClass) {
         this.modelClass = modelClass;
         this.database = database;
         table = database.getTable(this.modelClass);
+        Property<?>[] properties = table.getProperties();
+        for (int i = 0; i < properties.length; i++) {
+            columnBits.put(properties[i].name, ModelChange.bit(i));
+        }
         try {
             modelClass.getConstructor(); // check for default constructor
         } catch (NoSuchMethodException e) {
@@ -55,21 +63,22 @@ public class DatabaseDao<TYPE extends AbstractModel> {
 
     // --- listeners
 
-    public interface ModelUpdateListener<MTYPE> {
-        public void onModelUpdated(MTYPE model);
-    }
-
-    private final ArrayList<ModelUpdateListener<TYPE>> listeners = new ArrayList<>();
-
-    public void addListener(ModelUpdateListener<TYPE> listener) {
-        listeners.add(listener);
-    }
-
+    /**
+     * Hand a change record for the columns written to the database, which
+     * delivers it to subscribers once the write is committed
+     */
     protected void onModelUpdated(TYPE model) {
-        TYPE modelCopy = (TYPE) model.clone();
-        for(ModelUpdateListener<TYPE> listener : listeners) {
-            listener.onModelUpdated(modelCopy);
+        long columns = 0;
+        ContentValues values = model.getSetValues();
+        if (values != null) {
+            for (String column : values.keySet()) {
+                Long bit = columnBits.get(column);
+                if (bit != null) {
+                    columns |= bit;
+                }
+            }
         }
+        database.onModelSaved(table, model, columns);
     }
 
     // --- dao methods
@@ -137,7 +146,7 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         for(int i = 0; i < properties.length; i++) {
             fields[i] = properties[i].name;
         }
-        return new TodorooCursor<>(database.getDatabase().query(table.name,
+        return new TodorooCursor<>(database.query(table.name,
                 fields, selection, selectionArgs, null, null, null),
                 properties);
     }
@@ -218,15 +227,13 @@ public class DatabaseDao<TYPE extends AbstractModel> {
     }
 
     private boolean insertOrUpdateAndRecordChanges(TYPE item, DatabaseChangeOp op) {
-        final AtomicBoolean result = new AtomicBoolean(false);
-        synchronized(database) {
-            result.set(op.makeChange());
-            if (result.get()) {
-                onModelUpdated(item);
-                item.markSaved();
-            }
+        // writes are serialized by SQLite, readers do not wait on this dao
+        boolean result = op.makeChange();
+        if (result) {
+            onModelUpdated(item);
+            item.markSaved();
         }
-        return result.get();
+        return result;
     }
 
     /**
@@ -0,0 +1,83 @@
+package com.todoroo.andlib.data;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Record of a saved model: its table, id and a bitmask of the columns that
+ * were written. Bit <code>i</code> stands for the i-th property of the
+ * table, properties past the 63rd share the last bit.
+ */
+public final class ModelChange {
+
+    public interface Listener {
+        void onModelChanged(ModelChange change);
+    }
+
+    private static final int MAX_BIT = 63;
+
+    private final Table table;
+    private final long id;
+    private final long columns;
+    private final Set<String> flags;
+
+    public ModelChange(Table table, long id, long columns, Set<String> flags) {
+        this.table = table;
+        this.id = id;
+        this.columns = columns;
+        this.flags = flags == null ? Collections.<String>emptySet() : flags;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getColumns() {
+        return columns;
+    }
+
+    public boolean isChanged(Property<?> property) {
+        return (columns & columns(property)) != 0;
+    }
+
+    /**
+     * @return true if the flag was set as a transitory on the saved model
+     */
+    public boolean hasFlag(String flag) {
+        return flags.contains(flag);
+    }
+
+    /**
+     * @return column mask for the given properties, which must all belong
+     * to the same table
+     */
+    public static long columns(Property<?>... properties) {
+        long mask = 0;
+        if (properties.length == 0) {
+            return mask;
+        }
+        Property<?>[] all = properties[0].table.getProperties();
+        for (Property<?> property : properties) {
+            for (int i = 0; i < all.length; i++) {
+                if (all[i].name.equals(property.name)) {
+                    mask |= bit(i);
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    static long bit(int index) {
+        return 1L << Math.min(index, MAX_BIT);
+    }
+
+    @Override
+    public String toString() {
+        return table.name + "/" + id + " columns=" + Long.toHexString(columns) + " flags=" + flags;
+    }
+}
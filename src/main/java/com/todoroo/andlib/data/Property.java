@@ -265,6 +265,10 @@ public abstract class Property<TYPE> extends Field implements Cloneable {
             super(table, name, flags);
         }
 
+        protected LongProperty(String name, String expression) {
+            super(null, name, expression);
+        }
+
         @Override
         public <RETURN, PARAMETER> RETURN accept(
                 PropertyVisitor<RETURN, PARAMETER> visitor, PARAMETER data) {
@@ -303,6 +307,14 @@ public abstract class Property<TYPE> extends Field implements Cloneable {
         }
     }
 
+    /** Runs a SQL function and returns the result as a long */
+    public static class LongFunctionProperty extends LongProperty {
+        public LongFunctionProperty(String function, String columnName) {
+            super(columnName, function);
+            alias = columnName;
+        }
+    }
+
     /** Counting in aggregated tables. Returns the result of COUNT(1) */
     public static final class CountProperty extends IntegerFunctionProperty {
         public CountProperty() {
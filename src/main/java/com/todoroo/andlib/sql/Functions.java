@@ -36,6 +36,10 @@ public final class Functions {
                 newType + ")");
     }
 
+    public static Field min(Field field) {
+        return new Field("MIN(" + field.toString() + ")");
+    }
+
     public static Field length(StringProperty field) {
         return new Field("LENGTH(" + field.toString() + ")");
     }
@@ -43,7 +43,6 @@ import com.todoroo.astrid.actfm.ActFmCameraModule.CameraResultCallback;
 import com.todoroo.astrid.alarms.AlarmService;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.dao.MetadataDao;
-import com.todoroo.astrid.dao.TagDataDao;
 import com.todoroo.astrid.dao.TaskAttachmentDao;
 import com.todoroo.astrid.dao.UserActivityDao;
 import com.todoroo.astrid.data.RemoteModel;
@@ -58,6 +57,8 @@ import com.todoroo.astrid.helper.TaskEditControlSet;
 import com.todoroo.astrid.notes.EditNoteActivity;
 import com.todoroo.astrid.repeats.RepeatControlSet;
 import com.todoroo.astrid.service.TaskDeleter;
+import com.todoroo.astrid.service.TaskDetailLoader;
+import com.todoroo.astrid.service.TaskDetails;
 import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.tags.TagService;
 import com.todoroo.astrid.tags.TagsControlSet;
@@ -160,6 +161,7 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
     public static final int TAB_VIEW_UPDATES = 0;
 
     @Inject TaskService taskService;
+    @Inject TaskDetailLoader taskDetailLoader;
     @Inject TaskAttachmentDao taskAttachmentDao;
     @Inject TagService tagService;
     @Inject MetadataDao metadataDao;
@@ -170,7 +172,6 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
     @Inject GCalHelper gcalHelper;
     @Inject ActivityPreferences preferences;
     @Inject DateChangedAlerts dateChangedAlerts;
-    @Inject TagDataDao tagDataDao;
     @Inject ActFmCameraModule actFmCameraModule;
     @Inject GeofenceService geofenceService;
     @Inject ResourceResolver resourceResolver;
@@ -346,7 +347,7 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
         timerAction = new TimerActionControlSet(notificationManager, taskService, getActivity(), getView());
         controls.add(timerAction);
 
-        TagsControlSet tagsControlSet = new TagsControlSet(metadataDao, tagDataDao, preferences, tagService, getActivity());
+        TagsControlSet tagsControlSet = new TagsControlSet(preferences, tagService, getActivity());
         controls.add(tagsControlSet);
         controlSetMap.put(getString(R.string.TEA_ctrl_lists_pref), tagsControlSet);
 
@@ -502,7 +503,14 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
 
         long idParam = intent.getLongExtra(TOKEN_ID, -1L);
         if (idParam > -1L) {
-            model = taskService.fetchById(idParam, Task.PROPERTIES);
+            TaskDetails details = taskDetailLoader.get(idParam);
+            if (details == null && taskService.restoreArchived(idParam)) {
+                details = taskDetailLoader.get(idParam);
+            }
+            if (details != null) {
+                model = details.getTask();
+                model.putTransitory(TaskDetails.TRANSITORY, details);
+            }
 
             if (model != null && model.containsNonNullValue(Task.UUID)) {
                 uuid = model.getUUID();
@@ -560,7 +568,11 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
         loadItem(intent);
 
         synchronized (controls) {
-            if (!taskAttachmentDao.taskHasAttachments(model.getUuid())) {
+            TaskDetails details = TaskDetails.from(model);
+            boolean hasAttachments = details == null
+                    ? taskAttachmentDao.taskHasAttachments(model.getUuid())
+                    : !details.getAttachments().isEmpty();
+            if (!hasAttachments) {
                 filesControlSet.getView().setVisibility(View.GONE);
             }
             for (TaskEditControlSet controlSet : controls) {
@@ -599,6 +611,8 @@ ViewPager.OnPageChangeListener, EditNoteActivity.UpdatesChangedListener {
         boolean tagsChanged = Flags.check(Flags.TAGS_CHANGED);
         model.putTransitory(TaskService.TRANS_EDIT_SAVE, true); // TODO: not used?
         taskService.save(model);
+        // control sets read from the database once the task has been written
+        model.clearTransitory(TaskDetails.TRANSITORY);
 
         if (!onPause) {
             boolean taskEditActivity = (getActivity() instanceof TaskEditActivity);
@@ -25,9 +25,11 @@ import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.View.OnKeyListener;
+import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
@@ -44,6 +46,7 @@ import com.todoroo.astrid.activity.SortSelectionActivity.OnSortSelectedListener;
 import com.todoroo.astrid.adapter.TaskAdapter;
 import com.todoroo.astrid.adapter.TaskAdapter.OnCompletedTaskListener;
 import com.todoroo.astrid.adapter.TaskAdapter.ViewHolder;
+import com.todoroo.astrid.adapter.TaskListSnapshot;
 import com.todoroo.astrid.api.AstridApiConstants;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterWithCustomIntent;
@@ -61,6 +64,7 @@ import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.helper.SyncActionHelper;
 import com.todoroo.astrid.service.SyncV2Service;
 import com.todoroo.astrid.service.TaskDeleter;
+import com.todoroo.astrid.service.TaskDetailLoader;
 import com.todoroo.astrid.service.TaskDuplicator;
 import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.subtasks.SubtasksHelper;
@@ -80,10 +84,10 @@ import org.tasks.injection.InjectingListFragment;
 import org.tasks.injection.Injector;
 import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.ActivityPreferences;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 import org.tasks.ui.NavigationDrawerFragment;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
@@ -131,6 +135,7 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     @Inject TaskListMetadataDao taskListMetadataDao;
     @Inject SyncV2Service syncService;
     @Inject TaskDeleter taskDeleter;
+    @Inject TaskDetailLoader taskDetailLoader;
     @Inject TaskDuplicator taskDuplicator;
     @Inject @ForActivity Context context;
     @Inject ActivityPreferences preferences;
@@ -138,6 +143,8 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     @Inject TaskAttachmentDao taskAttachmentDao;
     @Inject Injector injector;
     @Inject GtasksPreferenceService gtasksPreferenceService;
+    @Inject BackgroundExecutor backgroundExecutor;
+    @Inject TaskListSnapshot taskListSnapshot;
 
     protected Resources resources;
     protected TaskAdapter taskAdapter = null;
@@ -149,10 +156,12 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     protected int sortSort;
     protected QuickAddBar quickAddBar = new QuickAddBar();
 
-    private Timer backgroundTimer;
+    private final String refreshKey = "task-list-refresh-" + System.identityHashCode(this); //$NON-NLS-1$
     protected Bundle extras;
     protected boolean isInbox;
     protected boolean isTodayFilter;
+    /** the adapter shows the saved snapshot while the live list loads */
+    private boolean showingSnapshot;
     protected TaskListMetadata taskListMetadata;
 
     // --- fragment handling variables
@@ -341,6 +350,20 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
                     }
                 }
             });
+            // start loading the edit screen's data before the tap completes
+            getListView().setOnTouchListener(new OnTouchListener() {
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    if (event.getAction() == MotionEvent.ACTION_DOWN) {
+                        ListView listView = getListView();
+                        int position = listView.pointToPosition((int) event.getX(), (int) event.getY());
+                        if (position != ListView.INVALID_POSITION) {
+                            taskDetailLoader.prefetch(listView.getItemIdAtPosition(position));
+                        }
+                    }
+                    return false;
+                }
+            });
         }
     }
 
@@ -462,15 +485,17 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     }
 
     private void setUpBackgroundJobs() {
-        backgroundTimer = new Timer();
-
-        // start a thread to refresh periodically
-        backgroundTimer.scheduleAtFixedRate(new TimerTask() {
+        // refresh periodically while resumed
+        backgroundExecutor.schedule(Lane.UI_CRITICAL, refreshKey, BACKGROUND_REFRESH_INTERVAL, BACKGROUND_REFRESH_INTERVAL, new Runnable() {
             @Override
             public void run() {
                 // refresh if conditions match
                 Flags.checkAndClear(Flags.REFRESH);
-                getActivity().runOnUiThread(new Runnable() {
+                Activity activity = getActivity();
+                if (activity == null) {
+                    return;
+                }
+                activity.runOnUiThread(new Runnable() {
                     @Override
                     public void run() {
                         try {
@@ -482,7 +507,7 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
                     }
                 });
             }
-        }, BACKGROUND_REFRESH_INTERVAL, BACKGROUND_REFRESH_INTERVAL);
+        });
     }
 
     /*
@@ -557,7 +582,7 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
 
         AndroidUtilities.tryUnregisterReceiver(getActivity(), refreshReceiver);
 
-        backgroundTimer.cancel();
+        backgroundExecutor.cancel(refreshKey);
     }
 
     /**
@@ -620,6 +645,7 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         taskCursor.requery();
         taskAdapter.flushCaches();
         taskAdapter.notifyDataSetChanged();
+        saveSnapshot();
 
         if (getView() != null) { // This was happening sometimes
             int oldListItemSelected = getListView().getSelectedItemPosition();
@@ -653,6 +679,15 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
             return;
         }
 
+        if (usesSnapshot()) {
+            if (showingSnapshot) {
+                return; // the live list is still loading
+            }
+            if (taskAdapter == null && setUpTaskListFromSnapshot()) {
+                return;
+            }
+        }
+
         TodorooCursor<Task> currentCursor = constructCursor();
         if (currentCursor == null) {
             return;
@@ -667,6 +702,74 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         loadTaskListContent();
     }
 
+    /**
+     * Draw the saved first page of the list right away, and swap in the live
+     * cursor once the filter query has run in the background
+     */
+    private boolean setUpTaskListFromSnapshot() {
+        TodorooCursor<Task> snapshot = taskListSnapshot.read(taskProperties());
+        if (snapshot == null) {
+            return false;
+        }
+        showingSnapshot = true;
+        taskAdapter = createTaskAdapter(snapshot);
+        setListAdapter(taskAdapter);
+        registerForContextMenu(getListView());
+
+        // build the query here, where the filter and sort are read, and only run it in the background
+        final String query = buildQuery();
+        final Property<?>[] properties = taskProperties();
+        backgroundExecutor.execute(Lane.UI_CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                TodorooCursor<Task> result = fetch(query, properties);
+                if (result != null) {
+                    try {
+                        result.getCount(); // runs the query off the main thread
+                    } catch (SQLiteException e) {
+                        log.error(e.getMessage(), e);
+                        result.close();
+                        result = null;
+                    }
+                }
+                final TodorooCursor<Task> cursor = result;
+                Activity activity = getActivity();
+                if (activity == null) {
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                    return;
+                }
+                activity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        showingSnapshot = false;
+                        if (cursor == null) {
+                            return;
+                        }
+                        if (taskAdapter == null || getActivity() == null) {
+                            cursor.close();
+                            return;
+                        }
+                        taskAdapter.changeCursor(cursor);
+                        saveSnapshot();
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    private boolean usesSnapshot() {
+        return isInbox && !(this instanceof SubtasksListFragment);
+    }
+
+    private void saveSnapshot() {
+        if (usesSnapshot() && !showingSnapshot && taskAdapter != null) {
+            taskListSnapshot.save((TodorooCursor<Task>) taskAdapter.getCursor());
+        }
+    }
+
     public Property<?>[] taskProperties() {
         return TaskAdapter.PROPERTIES;
     }
@@ -676,6 +779,14 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     }
 
     private TodorooCursor<Task> constructCursor() {
+        return fetch(buildQuery(), taskProperties());
+    }
+
+    /**
+     * Build the list query from the filter and sort settings, and remember
+     * it as the current query template
+     */
+    private String buildQuery() {
         String tagName = null;
         if (getActiveTagData() != null) {
             tagName = getActiveTagData().getName();
@@ -710,11 +821,12 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
             groupedQuery = sqlQueryTemplate.get() + " GROUP BY " + Task.ID;
         }
         sqlQueryTemplate.set(groupedQuery);
+        return groupedQuery;
+    }
 
-        // Peform query
+    private TodorooCursor<Task> fetch(String query, Property<?>[] properties) {
         try {
-            return taskService.fetchFiltered(
-                sqlQueryTemplate.get(), null, taskProperties());
+            return taskService.fetchFiltered(query, null, properties);
         } catch (SQLiteException e) {
             // We don't show this error anymore--seems like this can get triggered
             // by a strange bug, but there seems to not be any negative side effect.
@@ -730,7 +842,9 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         if (cursor == null || taskAdapter == null) {
             return;
         }
+        showingSnapshot = false;
         taskAdapter.changeCursor(cursor);
+        saveSnapshot();
     }
 
     /**
@@ -0,0 +1,207 @@
+package com.todoroo.astrid.adapter;
+
+import android.content.Context;
+import android.database.MatrixCursor;
+
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.astrid.data.Task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The first page of the home list as it was last shown, kept in a small file
+ * so that it can be drawn on launch before the list query has run.
+ * <p>
+ * Only what a row shows is saved: id, uuid, title, importance, due date,
+ * completion date and tags. The file is memory-mapped when read and the
+ * rows are returned as a cursor over the adapter's properties, with the
+ * columns that were not saved left empty.
+ */
+@Singleton
+public class TaskListSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskListSnapshot.class);
+
+    private static final String FILE_NAME = "task_list_snapshot"; //$NON-NLS-1$
+    private static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    /** rows saved, enough to fill a tablet screen */
+    static final int PAGE_SIZE = 30;
+
+    private final File file;
+    private final BackgroundExecutor backgroundExecutor;
+
+    /** last page written, so that unchanged pages are not written again */
+    private byte[] saved;
+
+    @Inject
+    public TaskListSnapshot(@ForApplication Context context, BackgroundExecutor backgroundExecutor) {
+        this(new File(context.getFilesDir(), FILE_NAME), backgroundExecutor);
+    }
+
+    TaskListSnapshot(File file, BackgroundExecutor backgroundExecutor) {
+        this.file = file;
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Save the first page of the cursor if it changed. Rows are read on the
+     * calling thread and the file is written in the background.
+     */
+    public void save(TodorooCursor<Task> cursor) {
+        final byte[] page;
+        try {
+            page = encode(cursor);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            return;
+        }
+        synchronized (this) {
+            if (Arrays.equals(page, saved)) {
+                return;
+            }
+            saved = page;
+        }
+        backgroundExecutor.execute(Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                write(page);
+            }
+        });
+    }
+
+    /**
+     * @return the saved page as a cursor over the given properties, or null
+     * if there is none
+     */
+    public TodorooCursor<Task> read(Property<?>[] properties) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            RandomAccessFile input = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+            try {
+                FileChannel channel = input.getChannel();
+                return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), properties);
+            } finally {
+                input.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    void write(byte[] page) {
+        // written to a temporary file and renamed, so a reader never sees half a page
+        File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+        try {
+            FileOutputStream output = new FileOutputStream(temp);
+            try {
+                output.write(page);
+            } finally {
+                output.close();
+            }
+            if (!temp.renameTo(file)) {
+                log.error("Unable to rename {}", temp);
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    static byte[] encode(TodorooCursor<Task> cursor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        int rows = Math.min(cursor.getCount(), PAGE_SIZE);
+        output.writeInt(VERSION);
+        output.writeInt(rows);
+        int position = cursor.getPosition();
+        for (int i = 0; i < rows; i++) {
+            cursor.moveToPosition(i);
+            output.writeLong(cursor.get(Task.ID));
+            writeString(output, cursor.get(Task.UUID));
+            writeString(output, cursor.get(Task.TITLE));
+            output.writeInt(cursor.get(Task.IMPORTANCE));
+            output.writeLong(cursor.get(Task.DUE_DATE));
+            output.writeLong(cursor.get(Task.COMPLETION_DATE));
+            writeString(output, cursor.get(TaskAdapter.TAGS));
+        }
+        cursor.moveToPosition(position);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    static TodorooCursor<Task> decode(ByteBuffer buffer, Property<?>[] properties) {
+        if (buffer.getInt() != VERSION) {
+            return null;
+        }
+        int rows = buffer.getInt();
+        List<String> columns = new ArrayList<>();
+        for (Property<?> property : properties) {
+            columns.add(property.getColumnName());
+        }
+        MatrixCursor cursor = new MatrixCursor(columns.toArray(new String[columns.size()]), rows);
+        for (int i = 0; i < rows; i++) {
+            Object[] row = new Object[columns.size()];
+            put(row, columns, Task.ID, buffer.getLong());
+            put(row, columns, Task.UUID, readString(buffer));
+            put(row, columns, Task.TITLE, readString(buffer));
+            put(row, columns, Task.IMPORTANCE, buffer.getInt());
+            put(row, columns, Task.DUE_DATE, buffer.getLong());
+            put(row, columns, Task.COMPLETION_DATE, buffer.getLong());
+            put(row, columns, TaskAdapter.TAGS, readString(buffer));
+            cursor.addRow(row);
+        }
+        return new TodorooCursor<>(cursor, properties);
+    }
+
+    private static void put(Object[] row, List<String> columns, Property<?> property, Object value) {
+        int column = columns.indexOf(property.getColumnName());
+        if (column >= 0) {
+            row[column] = value;
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -18,10 +18,10 @@ import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Order;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
-import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.ArchiveDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TagDataDao;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.TagData;
@@ -32,6 +32,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.preferences.Preferences;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.io.File;
@@ -61,9 +63,10 @@ public class TasksXmlExporter {
     // --- implementation
 
     private final TagDataDao tagDataDao;
-    private final MetadataDao metadataDao;
+    private final ArchiveDao archiveDao;
     private final TaskService taskService;
     private final Preferences preferences;
+    private final BackgroundExecutor backgroundExecutor;
 
     // 3 is started on Version 4.6.10
     private static final int FORMAT = 3;
@@ -93,11 +96,13 @@ public class TasksXmlExporter {
     }
 
     @Inject
-    public TasksXmlExporter(TagDataDao tagDataDao, MetadataDao metadataDao, TaskService taskService, Preferences preferences) {
+    public TasksXmlExporter(TagDataDao tagDataDao, ArchiveDao archiveDao, TaskService taskService,
+                            Preferences preferences, BackgroundExecutor backgroundExecutor) {
         this.tagDataDao = tagDataDao;
-        this.metadataDao = metadataDao;
+        this.archiveDao = archiveDao;
         this.taskService = taskService;
         this.preferences = preferences;
+        this.backgroundExecutor = backgroundExecutor;
     }
 
     public void exportTasks(final Context context, final ExportType exportType) {
@@ -121,7 +126,8 @@ public class TasksXmlExporter {
             }
         }
 
-        new Thread(new Runnable() {
+        Lane lane = exportType == ExportType.EXPORT_TYPE_MANUAL ? Lane.USER_INITIATED : Lane.MAINTENANCE;
+        backgroundExecutor.execute(lane, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -152,7 +158,7 @@ public class TasksXmlExporter {
                     });
                 }
             }
-        }).start();
+        });
     }
 
 
@@ -196,10 +202,13 @@ public class TasksXmlExporter {
         });
     }
 
+    /**
+     * Archived tasks are written along with live ones, so that restoring a
+     * backup brings them back
+     */
     private void serializeTasks() throws IOException {
         TodorooCursor<Task> cursor;
-        cursor = taskService.query(Query.select(
-                Task.PROPERTIES).orderBy(Order.asc(Task.ID)));
+        cursor = archiveDao.query("ORDER BY " + Order.asc(Task.ID), Task.PROPERTIES);
         try {
             int length = cursor.getCount();
             for(int i = 0; i < length; i++) {
@@ -220,7 +229,7 @@ public class TasksXmlExporter {
     }
 
     private synchronized void serializeMetadata(Task task) throws IOException {
-        metadataDao.byTask(task.getId(), new Callback<Metadata>() {
+        archiveDao.queryMetadata(MetadataCriteria.byTask(task.getId()), new Callback<Metadata>() {
             @Override
             public void apply(Metadata metadata) {
                 try {
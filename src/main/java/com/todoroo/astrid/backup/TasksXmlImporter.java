@@ -21,12 +21,13 @@ import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.TagDataDao;
 import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskService;
@@ -35,6 +36,8 @@ import com.todoroo.astrid.tags.TaskToTagMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -51,6 +54,8 @@ public class TasksXmlImporter {
     private final TagDataDao tagDataDao;
     private final MetadataDao metadataDao;
     private final TaskService taskService;
+    private final ArchiveDao archiveDao;
+    private final BackgroundExecutor backgroundExecutor;
 
     private Context context;
     private Handler handler;
@@ -72,10 +77,13 @@ public class TasksXmlImporter {
     }
 
     @Inject
-    public TasksXmlImporter(TagDataDao tagDataDao, MetadataDao metadataDao, TaskService taskService) {
+    public TasksXmlImporter(TagDataDao tagDataDao, MetadataDao metadataDao, TaskService taskService,
+                            ArchiveDao archiveDao, BackgroundExecutor backgroundExecutor) {
         this.tagDataDao = tagDataDao;
         this.metadataDao = metadataDao;
         this.taskService = taskService;
+        this.archiveDao = archiveDao;
+        this.backgroundExecutor = backgroundExecutor;
     }
 
     /**
@@ -104,7 +112,7 @@ public class TasksXmlImporter {
             log.error(e.getMessage(), e);
         }
 
-        new Thread(new Runnable() {
+        backgroundExecutor.execute(Lane.USER_INITIATED, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -113,7 +121,7 @@ public class TasksXmlImporter {
                     log.error(e.getMessage(), e);
                 }
             }
-        }).start();
+        });
     }
 
     private void performImport() throws IOException, XmlPullParserException {
@@ -236,11 +244,12 @@ public class TasksXmlImporter {
                 return;
             }
 
-            // if the task's name and creation date match an existing task, skip
+            // if the task's name and creation date match an existing task, skip.
+            // archived tasks are exported, so they are matched too
             long existingTask = 0;
-            TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID,
-                        Task.COMPLETION_DATE, Task.DELETION_DATE).
-                    where(Criterion.and(Task.TITLE.eq(title), Task.CREATION_DATE.eq(created))));
+            TodorooCursor<Task> cursor = archiveDao.query("WHERE " +
+                    Criterion.and(Task.TITLE.eq(title), Task.CREATION_DATE.eq(created)),
+                    Task.ID, Task.COMPLETION_DATE, Task.DELETION_DATE);
             try {
                 if(cursor.getCount() > 0) {
                     cursor.moveToNext();
@@ -257,6 +266,11 @@ public class TasksXmlImporter {
             // else, make a new task model and add away.
             deserializeModel(currentTask, Task.PROPERTIES);
 
+            // a task archived since the backup keeps its uuid, bring it back instead of adding a copy
+            if(existingTask == 0 && !RemoteModel.isUuidEmpty(currentTask.getUUID())) {
+                existingTask = archiveDao.restoreByUuid(currentTask.getUUID());
+            }
+
             if(existingTask > 0) {
                 currentTask.setId(existingTask);
             } else {
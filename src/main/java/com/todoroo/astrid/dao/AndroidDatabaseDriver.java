@@ -0,0 +1,78 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * {@link DatabaseDriver} backed by the platform SQLite database
+ */
+class AndroidDatabaseDriver implements DatabaseDriver {
+
+    private final SQLiteDatabase database;
+
+    AndroidDatabaseDriver(SQLiteDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public void execSQL(String sql) {
+        database.execSQL(sql);
+    }
+
+    @Override
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        return database.rawQuery(sql, selectionArgs);
+    }
+
+    @Override
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        return database.query(table, columns, selection, selectionArgs, groupBy, having, orderBy);
+    }
+
+    @Override
+    public long insertOrThrow(String table, String nullColumnHack, ContentValues values) {
+        return database.insertOrThrow(table, nullColumnHack, values);
+    }
+
+    @Override
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        return database.update(table, values, whereClause, whereArgs);
+    }
+
+    @Override
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        return database.delete(table, whereClause, whereArgs);
+    }
+
+    @Override
+    public void beginTransaction() {
+        database.beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        database.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        database.endTransaction();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return database.isOpen();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return database.isReadOnly();
+    }
+
+    @Override
+    public void close() {
+        database.close();
+    }
+}
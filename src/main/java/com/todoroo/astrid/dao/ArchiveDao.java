@@ -0,0 +1,250 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.text.TextUtils;
+
+import com.todoroo.andlib.data.Callback;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.SyncOutbox;
+import com.todoroo.astrid.data.Task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Tasks completed or deleted long ago, kept with their metadata in the
+ * tasks_archive and metadata_archive tables so that the tables the task
+ * list reads stay small.
+ * <p>
+ * Archived tasks keep their ids. Filters that show completed or deleted
+ * tasks read the archive along with the live tables. An archived task is
+ * moved back when the user opens or changes it, or when sync matches it.
+ */
+@Singleton
+public class ArchiveDao {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveDao.class);
+
+    static final String TASKS_ARCHIVE = "tasks_archive"; //$NON-NLS-1$
+    static final String METADATA_ARCHIVE = "metadata_archive"; //$NON-NLS-1$
+
+    /** tasks moved per transaction, so the write lock is released between batches */
+    private static final int BATCH_SIZE = 200;
+
+    private static final String TASK_COLUMNS = columns(Task.PROPERTIES);
+    private static final String METADATA_COLUMNS = columns(Metadata.PROPERTIES);
+
+    /** live and archived tasks, aliased as tasks so that filter sql reads it unchanged */
+    private static final Table TASKS_WITH_ARCHIVE = new Table(
+            union(Task.TABLE.name, TASKS_ARCHIVE, TASK_COLUMNS), Task.class, Task.TABLE.name);
+    private static final String METADATA_WITH_ARCHIVE = union(Metadata.TABLE.name, METADATA_ARCHIVE, METADATA_COLUMNS);
+    private static final Table METADATA_WITH_ARCHIVE_TABLE = new Table(METADATA_WITH_ARCHIVE, Metadata.class, Metadata.TABLE.name);
+    private static final Pattern METADATA_SOURCE = Pattern.compile(
+            "\\b(FROM|JOIN)\\s+" + Metadata.TABLE.name + "\\b(\\s+AS\\b)?", Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+
+    private final Database database;
+
+    @Inject
+    public ArchiveDao(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Move tasks completed or deleted before the cutoff to the archive, along
+     * with their metadata. Tasks with changes waiting to be synced are kept.
+     *
+     * @return number of tasks archived
+     */
+    public int archive(long cutoff) {
+        String archivable = "SELECT " + Task.ID.name + " FROM " + Task.TABLE.name + " WHERE ((" +
+                Task.COMPLETION_DATE.name + " > 0 AND " + Task.COMPLETION_DATE.name + " < " + cutoff + ") OR (" +
+                Task.DELETION_DATE.name + " > 0 AND " + Task.DELETION_DATE.name + " < " + cutoff + "))" +
+                " AND " + Task.ID.name + " NOT IN (SELECT " + SyncOutbox.TASK.name + " FROM " + SyncOutbox.TABLE.name + ")" +
+                " LIMIT " + BATCH_SIZE;
+        int archived = 0;
+        List<Long> batch;
+        while (!(batch = ids(archivable)).isEmpty()) {
+            if (!move(batch, Task.TABLE.name, TASKS_ARCHIVE, Metadata.TABLE.name, METADATA_ARCHIVE)) {
+                break;
+            }
+            archived += batch.size();
+        }
+        return archived;
+    }
+
+    /**
+     * Move an archived task and its metadata back to the live tables
+     *
+     * @return true if the task was archived and has been restored
+     */
+    public boolean restore(long taskId) {
+        String sql = "SELECT " + Task.ID.name + " FROM " + TASKS_ARCHIVE + " WHERE " + Task.ID.name + " = " + taskId;
+        return !ids(sql).isEmpty() &&
+                move(Collections.singletonList(taskId), TASKS_ARCHIVE, Task.TABLE.name, METADATA_ARCHIVE, Metadata.TABLE.name);
+    }
+
+    /**
+     * Restore the archived task that has metadata matching the criterion,
+     * such as the remote id of a task that is being synced
+     *
+     * @return true if a task was restored
+     */
+    public boolean restore(Criterion metadataCriterion) {
+        List<Long> ids = ids("SELECT " + Metadata.TASK.name + " FROM " + METADATA_ARCHIVE + " AS " + Metadata.TABLE.name +
+                " WHERE " + metadataCriterion + " LIMIT 1");
+        return !ids.isEmpty() && restore(ids.get(0));
+    }
+
+    /**
+     * Restore the archived task with the given uuid, such as a task in a
+     * backup that is being imported
+     *
+     * @return id of the restored task, or 0 if no archived task has the uuid
+     */
+    public long restoreByUuid(String uuid) {
+        List<Long> ids = ids("SELECT " + Task.ID.name + " FROM " + TASKS_ARCHIVE + " AS " + Task.TABLE.name +
+                " WHERE " + Task.UUID.eq(uuid) + " LIMIT 1");
+        return !ids.isEmpty() && restore(ids.get(0)) ? ids.get(0) : 0;
+    }
+
+    /**
+     * Update archived tasks matching the criterion, such as for bulk actions
+     * on completed tasks
+     *
+     * @return number of archived tasks updated
+     */
+    public int update(Criterion criterion, Task template) {
+        return database.update(TASKS_ARCHIVE, template.getSetValues(), Task.ID.name + " IN (SELECT " +
+                Task.ID.name + " FROM " + TASKS_ARCHIVE + " AS " + Task.TABLE.name + " WHERE " + criterion + ")");
+    }
+
+    /**
+     * Delete archived tasks that were deleted, and their metadata
+     *
+     * @return number of tasks purged
+     */
+    public int purgeDeleted() {
+        String deleted = Task.DELETION_DATE.name + " > 0";
+        database.beginTransaction();
+        try {
+            database.delete(METADATA_ARCHIVE, Metadata.TASK.name + " IN (SELECT " + Task.ID.name + " FROM " +
+                    TASKS_ARCHIVE + " WHERE " + deleted + ")", null);
+            int purged = database.delete(TASKS_ARCHIVE, deleted, null);
+            database.setTransactionSuccessful();
+            return purged;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * @return true if the filter sql does not limit itself to tasks that are
+     * neither completed nor deleted, so archived tasks may match it
+     */
+    public static boolean includesArchive(String sql) {
+        boolean uncompleted = sql.contains(Task.COMPLETION_DATE.eq(0).toString()) ||
+                sql.contains(Task.COMPLETION_DATE.lte(0).toString());
+        boolean undeleted = sql.contains(Task.DELETION_DATE.eq(0).toString());
+        return !uncompleted || !undeleted;
+    }
+
+    /**
+     * Query live and archived tasks with filter sql. Metadata the sql reads
+     * or joins includes archived metadata.
+     */
+    public TodorooCursor<Task> query(String sql, Property<?>... properties) {
+        Query query = Query.select(properties).from(TASKS_WITH_ARCHIVE).withQueryTemplate(withArchivedMetadata(sql));
+        Cursor cursor = database.rawQuery(query.toString());
+        return new TodorooCursor<>(cursor, query.getFields());
+    }
+
+    /**
+     * Query live and archived metadata, such as all metadata of a task that
+     * is being backed up
+     */
+    public void queryMetadata(Criterion criterion, Callback<Metadata> callback) {
+        Query query = Query.select(Metadata.PROPERTIES).from(METADATA_WITH_ARCHIVE_TABLE).where(criterion);
+        TodorooCursor<Metadata> cursor = new TodorooCursor<>(database.rawQuery(query.toString()), query.getFields());
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                callback.apply(new Metadata(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static String withArchivedMetadata(String sql) {
+        Matcher matcher = METADATA_SOURCE.matcher(sql);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String alias = matcher.group(2) == null ? " AS " + Metadata.TABLE.name : matcher.group(2);
+            matcher.appendReplacement(result, Matcher.quoteReplacement(
+                    matcher.group(1) + " " + METADATA_WITH_ARCHIVE + alias));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private boolean move(List<Long> ids, String tasksFrom, String tasksTo, String metadataFrom, String metadataTo) {
+        String in = " IN (" + TextUtils.join(",", ids) + ")";
+        database.beginTransaction();
+        try {
+            database.execSQL(metadataTo, "INSERT INTO " + metadataTo + " (" + METADATA_COLUMNS + ") SELECT " +
+                    METADATA_COLUMNS + " FROM " + metadataFrom + " WHERE " + Metadata.TASK.name + in);
+            database.execSQL(tasksTo, "INSERT INTO " + tasksTo + " (" + TASK_COLUMNS + ") SELECT " +
+                    TASK_COLUMNS + " FROM " + tasksFrom + " WHERE " + Task.ID.name + in);
+            database.delete(metadataFrom, Metadata.TASK.name + in, null);
+            database.delete(tasksFrom, Task.ID.name + in, null);
+            database.setTransactionSuccessful();
+            return true;
+        } catch (SQLiteException e) {
+            log.error(e.getMessage(), e);
+            return false;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private List<Long> ids(String sql) {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = database.rawQuery(sql);
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    // --- sql
+
+    private static String columns(Property<?>[] properties) {
+        List<String> names = new ArrayList<>();
+        for (Property<?> property : properties) {
+            names.add(property.name);
+        }
+        return TextUtils.join(", ", names);
+    }
+
+    private static String union(String table, String archive, String columns) {
+        return "(SELECT " + columns + " FROM " + table + " UNION ALL SELECT " + columns + " FROM " + archive + ")";
+    }
+}
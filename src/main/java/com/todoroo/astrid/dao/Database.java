@@ -5,6 +5,7 @@
  */
 package com.todoroo.astrid.dao;
 
+import android.annotation.TargetApi;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
@@ -12,15 +13,19 @@ import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.Build;
 import android.text.TextUtils;
 
 import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.ModelChange;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.SqlConstructorVisitor;
 import com.todoroo.andlib.data.Table;
 import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.StoreObject;
+import com.todoroo.astrid.data.SyncOutbox;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskAttachment;
@@ -32,6 +37,11 @@ import org.slf4j.LoggerFactory;
 import org.tasks.injection.ForApplication;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -46,7 +56,7 @@ import javax.inject.Singleton;
 public class Database {
 
     private static final Logger log = LoggerFactory.getLogger(Database.class);
-    private static final int VERSION = 35;
+    static final int VERSION = 38;
     private static final String NAME = "database";
     private static final Table[] TABLES =  new Table[] {
             Task.TABLE,
@@ -56,17 +66,34 @@ public class Database {
             UserActivity.TABLE,
             TaskAttachment.TABLE,
             TaskListMetadata.TABLE,
+            SyncOutbox.TABLE,
     };
 
-    private final ArrayList<DatabaseUpdateListener> listeners = new ArrayList<>();
+    private final List<DatabaseUpdateListener> listeners = new CopyOnWriteArrayList<>();
+    private final QueryProfiler profiler = new QueryProfiler();
+
+    private final ModelChangeDispatcher modelChanges = new ModelChangeDispatcher();
+
+    /** transaction open on the current thread, if any */
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
     private final SQLiteOpenHelper helper;
-    private SQLiteDatabase database;
+    private volatile DatabaseDriver database;
 
     // --- listeners
 
     @Inject
     public Database(@ForApplication Context context) {
         helper = new DatabaseHelper(context, getName(), VERSION);
+        if (AndroidUtilities.atLeastJellybean()) {
+            enableWriteAheadLogging(helper);
+        }
+    }
+
+    /**
+     * For subclasses that provide their own driver, see {@link #open(boolean)}
+     */
+    Database() {
+        helper = null;
     }
 
     // --- implementation
@@ -75,6 +102,54 @@ public class Database {
         return NAME;
     }
 
+    /**
+     * Create tables and indices on a new database
+     */
+    void onCreate(DatabaseDriver db) {
+        StringBuilder sql = new StringBuilder();
+        SqlConstructorVisitor sqlVisitor = new SqlConstructorVisitor();
+
+        // create tables
+        for(Table table : TABLES) {
+            sql.append("CREATE TABLE IF NOT EXISTS ").append(table.name).append('(').
+                    append(AbstractModel.ID_PROPERTY).append(" INTEGER PRIMARY KEY AUTOINCREMENT");
+            for(Property<?> property : table.getProperties()) {
+                if(AbstractModel.ID_PROPERTY.name.equals(property.name)) {
+                    continue;
+                }
+                sql.append(',').append(property.accept(sqlVisitor, null));
+            }
+            sql.append(')');
+            db.execSQL(sql.toString());
+            sql.setLength(0);
+        }
+
+        // post-table-creation
+        database = db;
+        onCreateTables();
+    }
+
+    /**
+     * Upgrade an existing database to a new version
+     */
+    void onUpgrade(DatabaseDriver db, int oldVersion, int newVersion) {
+        log.info("Upgrading database from version {} to {}.", oldVersion, newVersion);
+
+        database = db;
+        try {
+            if(!onUpgrade(oldVersion, newVersion)) {
+                // We don't know how to handle this case because someone forgot to
+                // implement the upgrade. We can't drop tables, we can only
+                // throw a nasty exception at this time
+
+                throw new IllegalStateException("Missing database migration " +
+                        "from " + oldVersion + " to " + newVersion);
+            }
+        } catch (Exception e) {
+            log.error("database-upgrade-{}-{}-{}", getName(), oldVersion, newVersion, e);
+        }
+    }
+
     /**
      * Create indices
      */
@@ -109,11 +184,53 @@ public class Database {
         append(')');
         database.execSQL(sql.toString());
         sql.setLength(0);
+
+        database.execSQL(createSyncOutboxIndexSql());
+
+        for (String tagCountsSql : TagCountDao.createTableSql()) {
+            database.execSQL(tagCountsSql);
+        }
+
+        for (String archiveSql : createArchiveSql(new SqlConstructorVisitor())) {
+            database.execSQL(archiveSql);
+        }
+    }
+
+    private static String createSyncOutboxIndexSql() {
+        return "CREATE UNIQUE INDEX IF NOT EXISTS sob_task ON " + SyncOutbox.TABLE + "(" + SyncOutbox.TASK.name + ")";
+    }
+
+    /**
+     * Archive tables have the columns of the tables they archive. Columns
+     * added to tasks or metadata must be added to their archive as well.
+     */
+    private String[] createArchiveSql(SqlConstructorVisitor visitor) {
+        return new String[] {
+                createTableSql(visitor, ArchiveDao.TASKS_ARCHIVE, Task.PROPERTIES),
+                createTableSql(visitor, ArchiveDao.METADATA_ARCHIVE, Metadata.PROPERTIES),
+                "CREATE INDEX IF NOT EXISTS mda_tid ON " + ArchiveDao.METADATA_ARCHIVE + "(" + Metadata.TASK.name + ")"
+        };
     }
 
     private boolean onUpgrade(int oldVersion, int newVersion) {
         SqlConstructorVisitor visitor = new SqlConstructorVisitor();
         switch(oldVersion) {
+        case 35:
+            tryExecSQL(createTableSql(visitor, SyncOutbox.TABLE.name, SyncOutbox.PROPERTIES));
+            tryExecSQL(createSyncOutboxIndexSql());
+
+        case 36:
+            for (String tagCountsSql : TagCountDao.createTableSql()) {
+                tryExecSQL(tagCountsSql);
+            }
+            tryExecSQL(TagCountDao.populateSql());
+
+        case 37:
+            for (String archiveSql : createArchiveSql(visitor)) {
+                tryExecSQL(archiveSql);
+            }
+
+            return true;
         }
 
         return false;
@@ -173,9 +290,38 @@ public class Database {
         listeners.add(listener);
     }
 
-    private void onDatabaseUpdated() {
+    private void onDatabaseUpdated(String table) {
+        Transaction pending = transaction.get();
+        if(pending != null) {
+            pending.updates.add(table);
+            return;
+        }
         for(DatabaseUpdateListener listener : listeners) {
-            listener.onDatabaseUpdated();
+            listener.onDatabaseUpdated(table);
+        }
+    }
+
+    public ModelChangeDispatcher getModelChanges() {
+        return modelChanges;
+    }
+
+    /**
+     * Publish a change record for a saved model. Records written in a
+     * transaction are published when it commits and dropped if it rolls back
+     *
+     * @param columns mask of the columns that were written
+     */
+    public void onModelSaved(Table table, AbstractModel model, long columns) {
+        Set<String> flags = modelChanges.takeFlags(model);
+        if(!modelChanges.isSubscribed(table, columns)) {
+            return;
+        }
+        ModelChange change = new ModelChange(table, model.getId(), columns, flags);
+        Transaction pending = transaction.get();
+        if(pending != null) {
+            pending.changes.add(change);
+        } else {
+            modelChanges.dispatch(Collections.singletonList(change));
         }
     }
 
@@ -201,7 +347,7 @@ public class Database {
         }
 
         try {
-            database = helper.getWritableDatabase();
+            database = open(true);
         } catch (NullPointerException e) {
             log.error(e.getMessage(), e);
             throw new IllegalStateException(e);
@@ -225,7 +371,36 @@ public class Database {
         if(database != null && database.isOpen()) {
             return;
         }
-        database = helper.getReadableDatabase();
+        database = open(false);
+    }
+
+    /**
+     * Open the underlying database, creating or upgrading it as needed
+     */
+    DatabaseDriver open(boolean writable) {
+        SQLiteDatabase db = writable
+                ? helper.getWritableDatabase()
+                : helper.getReadableDatabase();
+        if (writable && AndroidUtilities.atLeastHoneycomb() && !AndroidUtilities.atLeastJellybean()) {
+            enableWriteAheadLogging(db);
+        }
+        return new AndroidDatabaseDriver(db);
+    }
+
+    /**
+     * Write-ahead logging lets queries on other threads run while a write
+     * transaction is open
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static void enableWriteAheadLogging(SQLiteOpenHelper helper) {
+        helper.setWriteAheadLoggingEnabled(true);
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void enableWriteAheadLogging(SQLiteDatabase db) {
+        if (!db.enableWriteAheadLogging()) {
+            log.info("Write-ahead logging not enabled");
+        }
     }
 
     /**
@@ -239,14 +414,20 @@ public class Database {
     }
 
     /**
-     * @return sql database. opens database if not yet open
+     * @return sql database. opens database if not yet open. Only opening the
+     * database is synchronized, queries and writes rely on SQLite's locking
      */
-    public synchronized final SQLiteDatabase getDatabase() {
-        if(database == null) {
-            AndroidUtilities.sleepDeep(300L);
-            openForWriting();
+    public final DatabaseDriver getDatabase() {
+        DatabaseDriver driver = database;
+        if(driver == null) {
+            synchronized (this) {
+                if(database == null) {
+                    openForWriting();
+                }
+                driver = database;
+            }
         }
-        return database;
+        return driver;
     }
 
     /**
@@ -260,10 +441,23 @@ public class Database {
     // --- database wrapper
 
     public Cursor rawQuery(String sql) {
-        return getDatabase().rawQuery(sql, null);
+        return rawQuery(sql, null);
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        long start = System.nanoTime();
+        Cursor cursor = getDatabase().rawQuery(sql, selectionArgs);
+        return new ProfiledCursor(cursor, this, sql, selectionArgs, start);
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        return rawQuery(SQLiteQueryBuilder.buildQueryString(false, table, columns, selection,
+                groupBy, having, orderBy, null), selectionArgs);
     }
 
     public long insert(String table, String nullColumnHack, ContentValues values) {
+        long start = System.nanoTime();
         long result;
         try {
             result = getDatabase().insertOrThrow(table, nullColumnHack, values);
@@ -273,24 +467,138 @@ public class Database {
             log.error(e.getMessage(), e);
             result = -1;
         }
-        onDatabaseUpdated();
+        profile("INSERT INTO " + table, start, result == -1 ? 0 : 1);
+        onDatabaseUpdated(table);
         return result;
     }
 
     public int delete(String table, String whereClause, String[] whereArgs) {
+        long start = System.nanoTime();
         int result = getDatabase().delete(table, whereClause, whereArgs);
-        onDatabaseUpdated();
+        profile(where("DELETE FROM " + table, whereClause), start, result);
+        onDatabaseUpdated(table);
         return result;
     }
 
     public int update(String  table, ContentValues  values, String whereClause) {
-        int result = getDatabase().update(table, values, whereClause, null);
-        onDatabaseUpdated();
+        return update(table, values, whereClause, null);
+    }
+
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        long start = System.nanoTime();
+        int result = getDatabase().update(table, values, whereClause, whereArgs);
+        profile(where("UPDATE " + table, whereClause), start, result);
+        onDatabaseUpdated(table);
         return result;
     }
 
+    /**
+     * Execute a write statement that the wrappers above cannot express, such
+     * as INSERT ... SELECT. Listeners are notified that the table changed.
+     */
+    public void execSQL(String table, String sql) {
+        long start = System.nanoTime();
+        getDatabase().execSQL(sql);
+        profile(sql, start, 0);
+        onDatabaseUpdated(table);
+    }
+
+    // --- profiling
+
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+
+    private void profile(String sql, long start, int rows) {
+        long elapsed = System.nanoTime() - start;
+        if (profiler.shouldRecord(elapsed)) {
+            profiler.record(sql, elapsed, rows, null);
+        }
+    }
+
+    void profileQuery(String sql, String[] selectionArgs, long elapsed, int rows) {
+        if (profiler.shouldRecord(elapsed)) {
+            String plan = profiler.isSlow(elapsed) ? explainQueryPlan(sql, selectionArgs) : null;
+            profiler.record(sql, elapsed, rows, plan);
+        }
+    }
+
+    private static String where(String sql, String whereClause) {
+        return TextUtils.isEmpty(whereClause) ? sql : sql + " WHERE " + whereClause;
+    }
+
+    private String explainQueryPlan(String sql, String[] selectionArgs) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return plan.toString();
+    }
+
+    // --- transactions
+
+    /**
+     * Begin a transaction on the current thread. Update listeners are
+     * notified once per modified table when the outermost transaction ends.
+     */
+    public void beginTransaction() {
+        getDatabase().beginTransaction();
+        Transaction pending = transaction.get();
+        if(pending == null) {
+            pending = new Transaction();
+            transaction.set(pending);
+        }
+        pending.depth++;
+        pending.successful = false;
+    }
+
+    public void setTransactionSuccessful() {
+        getDatabase().setTransactionSuccessful();
+        transaction.get().successful = true;
+    }
+
+    public void endTransaction() {
+        Transaction pending = transaction.get();
+        try {
+            getDatabase().endTransaction();
+        } finally {
+            if(!pending.successful) {
+                pending.failed = true;
+            }
+            pending.successful = false;
+            if(--pending.depth == 0) {
+                transaction.remove();
+                for(String table : pending.updates) {
+                    onDatabaseUpdated(table);
+                }
+                if(!pending.failed && !pending.changes.isEmpty()) {
+                    modelChanges.dispatch(pending.changes);
+                }
+            }
+        }
+    }
+
     // --- helper classes
 
+    private static class Transaction {
+        final Set<String> updates = new LinkedHashSet<>();
+        final List<ModelChange> changes = new ArrayList<>();
+        int depth;
+        boolean successful;
+        boolean failed;
+    }
+
     /**
      * Default implementation of Astrid database helper
      */
@@ -305,27 +613,7 @@ public class Database {
          */
         @Override
         public void onCreate(SQLiteDatabase db) {
-            StringBuilder sql = new StringBuilder();
-            SqlConstructorVisitor sqlVisitor = new SqlConstructorVisitor();
-
-            // create tables
-            for(Table table : TABLES) {
-                sql.append("CREATE TABLE IF NOT EXISTS ").append(table.name).append('(').
-                        append(AbstractModel.ID_PROPERTY).append(" INTEGER PRIMARY KEY AUTOINCREMENT");
-                for(Property<?> property : table.getProperties()) {
-                    if(AbstractModel.ID_PROPERTY.name.equals(property.name)) {
-                        continue;
-                    }
-                    sql.append(',').append(property.accept(sqlVisitor, null));
-                }
-                sql.append(')');
-                db.execSQL(sql.toString());
-                sql.setLength(0);
-            }
-
-            // post-table-creation
-            database = db;
-            onCreateTables();
+            Database.this.onCreate(new AndroidDatabaseDriver(db));
         }
 
         /**
@@ -333,21 +621,7 @@ public class Database {
          */
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            log.info("Upgrading database from version {} to {}.", oldVersion, newVersion);
-
-            database = db;
-            try {
-                if(!Database.this.onUpgrade(oldVersion, newVersion)) {
-                    // We don't know how to handle this case because someone forgot to
-                    // implement the upgrade. We can't drop tables, we can only
-                    // throw a nasty exception at this time
-
-                    throw new IllegalStateException("Missing database migration " +
-                            "from " + oldVersion + " to " + newVersion);
-                }
-            } catch (Exception e) {
-                log.error("database-upgrade-{}-{}-{}", getName(), oldVersion, newVersion, e);
-            }
+            Database.this.onUpgrade(new AndroidDatabaseDriver(db), oldVersion, newVersion);
         }
     }
 }
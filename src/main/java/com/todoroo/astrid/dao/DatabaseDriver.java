@@ -0,0 +1,41 @@
+package com.todoroo.astrid.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * The subset of {@link android.database.sqlite.SQLiteDatabase} used by
+ * {@link Database}, so that the schema and queries can also run against a
+ * SQLite driver outside of Android.
+ */
+public interface DatabaseDriver {
+
+    void execSQL(String sql);
+
+    Cursor rawQuery(String sql, String[] selectionArgs);
+
+    Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                 String groupBy, String having, String orderBy);
+
+    /**
+     * @throws android.database.sqlite.SQLiteConstraintException if a
+     * constraint is violated
+     */
+    long insertOrThrow(String table, String nullColumnHack, ContentValues values);
+
+    int update(String table, ContentValues values, String whereClause, String[] whereArgs);
+
+    int delete(String table, String whereClause, String[] whereArgs);
+
+    void beginTransaction();
+
+    void setTransactionSuccessful();
+
+    void endTransaction();
+
+    boolean isOpen();
+
+    boolean isReadOnly();
+
+    void close();
+}
@@ -0,0 +1,138 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.SyncOutbox;
+import com.todoroo.astrid.data.Task;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Housekeeping for the database file: purging soft-deleted metadata,
+ * deleting rows whose task is gone, refreshing planner statistics and
+ * returning free pages to the file system.
+ */
+@Singleton
+public class DatabaseMaintenance {
+
+    /** auto_vacuum mode that frees pages on request, see {@link #vacuum(int)} */
+    private static final int INCREMENTAL = 2;
+    /** share of unused pages at which a full rebuild is worth it, see {@link #rebuildIfFragmented()} */
+    private static final double REBUILD_FREE_RATIO = 0.25;
+
+    private final Database database;
+    private final MetadataDao metadataDao;
+
+    @Inject
+    public DatabaseMaintenance(Database database, MetadataDao metadataDao) {
+        this.database = database;
+        this.metadataDao = metadataDao;
+    }
+
+    /**
+     * Delete metadata that was soft-deleted before the cutoff
+     *
+     * @return number of rows deleted
+     */
+    public int purgeTombstones(long cutoff) {
+        String where = Metadata.DELETION_DATE.name + " > 0 AND " + Metadata.DELETION_DATE.name + " < " + cutoff;
+        return database.delete(Metadata.TABLE.name, where, null) +
+                database.delete(ArchiveDao.METADATA_ARCHIVE, where, null);
+    }
+
+    /**
+     * Delete metadata and outbox entries of tasks that no longer exist, and
+     * tag counts that dropped to zero
+     *
+     * @return number of rows deleted
+     */
+    public int removeDangling() {
+        return metadataDao.removeDanglingMetadata() +
+                database.delete(ArchiveDao.METADATA_ARCHIVE, Metadata.TASK.name + " NOT IN (SELECT " +
+                        Task.ID.name + " FROM " + ArchiveDao.TASKS_ARCHIVE + ")", null) +
+                database.delete(SyncOutbox.TABLE.name, SyncOutbox.TASK.name + " NOT IN (SELECT " +
+                        Task.ID.name + " FROM " + Task.TABLE.name + ")", null) +
+                database.delete(TagCountDao.TABLE, TagCountDao.ACTIVE + " <= 0", null);
+    }
+
+    /**
+     * Refresh the statistics the query planner uses to pick indices
+     */
+    public void analyze() {
+        database.getDatabase().execSQL("ANALYZE");
+    }
+
+    /**
+     * @return true if the database frees pages on request, see {@link #vacuum(int)}
+     */
+    public boolean isIncremental() {
+        return pragma("auto_vacuum") == INCREMENTAL;
+    }
+
+    /**
+     * Switch a database created without incremental auto_vacuum to it. This
+     * rebuilds the whole file, so it is only done once enough of the file is
+     * unused to make the rebuild worth it.
+     *
+     * @return true if the file was rebuilt
+     */
+    public boolean rebuildIfFragmented() {
+        if (isIncremental()) {
+            return false;
+        }
+        long pages = pragma("page_count");
+        if (pages == 0 || pragma("freelist_count") < pages * REBUILD_FREE_RATIO) {
+            return false;
+        }
+        DatabaseDriver driver = database.getDatabase();
+        driver.execSQL("PRAGMA auto_vacuum = " + INCREMENTAL);
+        driver.execSQL("VACUUM");
+        return true;
+    }
+
+    /**
+     * Free up to the given number of unused pages of an incremental database
+     *
+     * @return false if the database is not incremental and nothing was freed
+     */
+    public boolean vacuum(int pages) {
+        if (!isIncremental()) {
+            return false;
+        }
+        // each step of the statement frees one page, so step it to the end
+        Cursor cursor = database.getDatabase().rawQuery("PRAGMA incremental_vacuum(" + pages + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                // freeing pages
+            }
+        } finally {
+            cursor.close();
+        }
+        return true;
+    }
+
+    /**
+     * @return size of the database file in bytes
+     */
+    public long getSize() {
+        return pragma("page_count") * pragma("page_size");
+    }
+
+    /**
+     * @return bytes in unused pages
+     */
+    public long getFreeSize() {
+        return pragma("freelist_count") * pragma("page_size");
+    }
+
+    private long pragma(String name) {
+        Cursor cursor = database.rawQuery("PRAGMA " + name);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
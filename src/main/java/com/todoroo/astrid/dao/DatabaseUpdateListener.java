@@ -1,5 +1,5 @@
 package com.todoroo.astrid.dao;
 
 public interface DatabaseUpdateListener {
-    public void onDatabaseUpdated();
+    public void onDatabaseUpdated(String table);
 }
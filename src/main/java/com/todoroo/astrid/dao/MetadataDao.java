@@ -9,7 +9,6 @@ import com.todoroo.andlib.data.Callback;
 import com.todoroo.andlib.data.DatabaseDao;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Metadata;
@@ -111,11 +110,13 @@ public class MetadataDao {
     }
 
     /**
-     * Clean up metadata. Typically called on startup
+     * Delete metadata of tasks that no longer exist. The task ids are read
+     * once, rather than joining each metadata row to its task.
+     *
+     * @return number of rows deleted
      */
-    public void removeDanglingMetadata() {
-        dao.deleteWhere(Metadata.ID.in(Query.select(Metadata.ID).from(Metadata.TABLE).join(Join.left(Task.TABLE,
-                Metadata.TASK.eq(Task.ID))).where(Task.TITLE.isNull())));
+    public int removeDanglingMetadata() {
+        return dao.deleteWhere(Criterion.not(Metadata.TASK.in(Query.select(Task.ID).from(Task.TABLE))));
     }
 
     public void byTask(long taskId, Callback<Metadata> callback) {
@@ -0,0 +1,132 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.ModelChange;
+import com.todoroo.andlib.data.Table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers {@link ModelChange} records to subscribers on a single
+ * background thread, in the order the changes were committed. A
+ * subscriber only receives changes to its table that touch at least one
+ * column in its mask; changes no one subscribed to are dropped before
+ * they are queued.
+ */
+public class ModelChangeDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelChangeDispatcher.class);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Set<String> flags = new HashSet<>();
+    private final ExecutorService executor;
+
+    public ModelChangeDispatcher() {
+        this(new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+    }
+
+    ModelChangeDispatcher(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param columns mask from {@link ModelChange#columns}
+     */
+    public void subscribe(Table table, long columns, ModelChange.Listener listener) {
+        subscriptions.add(new Subscription(table, columns, listener));
+    }
+
+    /**
+     * Copy this transitory flag from saved models into their change
+     * records. The flag is cleared from the model so that it only applies
+     * to one save.
+     */
+    public synchronized void captureFlag(String flag) {
+        flags.add(flag);
+    }
+
+    synchronized Set<String> takeFlags(AbstractModel model) {
+        Set<String> taken = null;
+        for (String flag : flags) {
+            if (model.checkAndClearTransitory(flag)) {
+                if (taken == null) {
+                    taken = new HashSet<>();
+                }
+                taken.add(flag);
+            }
+        }
+        return taken;
+    }
+
+    boolean isSubscribed(Table table, long columns) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(table, columns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void dispatch(List<ModelChange> changes) {
+        final List<Delivery> deliveries = new ArrayList<>();
+        for (ModelChange change : changes) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.matches(change.getTable(), change.getColumns())) {
+                    deliveries.add(new Delivery(subscription.listener, change));
+                }
+            }
+        }
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Delivery delivery : deliveries) {
+                    try {
+                        delivery.listener.onModelChanged(delivery.change);
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+        });
+    }
+
+    private static class Subscription {
+        final Table table;
+        final long columns;
+        final ModelChange.Listener listener;
+
+        Subscription(Table table, long columns, ModelChange.Listener listener) {
+            this.table = table;
+            this.columns = columns;
+            this.listener = listener;
+        }
+
+        boolean matches(Table table, long columns) {
+            return this.table.name.equals(table.name) && (this.columns & columns) != 0;
+        }
+    }
+
+    private static class Delivery {
+        final ModelChange.Listener listener;
+        final ModelChange change;
+
+        Delivery(ModelChange.Listener listener, ModelChange change) {
+            this.listener = listener;
+            this.change = change;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * Times a query when its cursor is first read rather than when it is
+ * created. Queries run lazily, so forcing them at creation would run
+ * statements whose cursor is never read. Time spent by the caller between
+ * creating and reading the cursor is not counted.
+ */
+class ProfiledCursor extends CursorWrapper {
+
+    private final Database database;
+    private final String sql;
+    private final String[] selectionArgs;
+    private final long prepareNanos;
+    private boolean profiled;
+
+    ProfiledCursor(Cursor cursor, Database database, String sql, String[] selectionArgs, long start) {
+        super(cursor);
+        this.database = database;
+        this.sql = sql;
+        this.selectionArgs = selectionArgs;
+        this.prepareNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public int getCount() {
+        profile();
+        return super.getCount();
+    }
+
+    @Override
+    public boolean move(int offset) {
+        profile();
+        return super.move(offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        profile();
+        return super.moveToPosition(position);
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        profile();
+        return super.moveToFirst();
+    }
+
+    @Override
+    public boolean moveToLast() {
+        profile();
+        return super.moveToLast();
+    }
+
+    @Override
+    public boolean moveToNext() {
+        profile();
+        return super.moveToNext();
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        profile();
+        return super.moveToPrevious();
+    }
+
+    @Override
+    public void close() {
+        if (!profiled) {
+            profiled = true;
+            database.profileQuery(sql, selectionArgs, prepareNanos, 0);
+        }
+        super.close();
+    }
+
+    /** the first read fills the cursor window, which runs the query */
+    private void profile() {
+        if (profiled) {
+            return;
+        }
+        profiled = true;
+        long start = System.nanoTime();
+        int rows = super.getCount();
+        database.profileQuery(sql, selectionArgs, prepareNanos + System.nanoTime() - start, rows);
+    }
+}
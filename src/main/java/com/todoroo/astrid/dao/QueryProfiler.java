@@ -0,0 +1,219 @@
+package com.todoroo.astrid.dao;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Latency statistics for the statements run through {@link Database}.
+ * <p>
+ * Every statement is timed, but only one in {@link #SAMPLE_RATE} is recorded,
+ * plus every statement slower than {@link #SLOW_QUERY_MILLIS}. Recorded
+ * statements are grouped by their SQL with literals stripped, and keep a
+ * log2 histogram of latencies, total rows and the last calling class. Slow
+ * statements are also kept in a small ring buffer along with their query
+ * plan. All counters are atomics, so recording never blocks a query.
+ */
+public class QueryProfiler {
+
+    public static final int SAMPLE_RATE = 16;
+    public static final long SLOW_QUERY_MILLIS = 100;
+
+    private static final int MAX_TEMPLATES = 256;
+    private static final int MAX_SLOW_QUERIES = 32;
+    private static final int BUCKETS = 12; // <1ms, <2ms, ... <1024ms, more
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(SLOW_QUERY_MILLIS);
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowQuery> slowQueries = new AtomicReferenceArray<>(MAX_SLOW_QUERIES);
+    private final AtomicInteger slowQueryIndex = new AtomicInteger();
+
+    /**
+     * @return true if a statement that took this long should be recorded
+     */
+    public boolean shouldRecord(long elapsedNanos) {
+        return statements.incrementAndGet() % SAMPLE_RATE == 0 || isSlow(elapsedNanos);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowQueryNanos;
+    }
+
+    /**
+     * @param plan query plan for slow statements, or null
+     */
+    public void record(String sql, long elapsedNanos, int rows, String plan) {
+        String template = normalize(sql);
+        String caller = findCaller();
+
+        Stats entry = stats.get(template);
+        if (entry == null) {
+            if (stats.size() >= MAX_TEMPLATES) {
+                dropped.incrementAndGet();
+                return;
+            }
+            Stats created = new Stats();
+            entry = stats.putIfAbsent(template, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        entry.add(elapsedNanos, rows, caller);
+
+        if (plan != null) {
+            int index = (slowQueryIndex.getAndIncrement() & Integer.MAX_VALUE) % MAX_SLOW_QUERIES;
+            slowQueries.set(index, new SlowQuery(template, elapsedNanos, rows, caller, plan));
+        }
+    }
+
+    public void reset() {
+        stats.clear();
+        dropped.set(0);
+        for (int i = 0; i < MAX_SLOW_QUERIES; i++) {
+            slowQueries.set(i, null);
+        }
+    }
+
+    /**
+     * @return human readable summary, slowest templates first
+     */
+    public String getReport() {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        writer.printf("Statements: %d, sampled 1 in %d, slow >= %dms%n", statements.get(), SAMPLE_RATE, SLOW_QUERY_MILLIS);
+        if (dropped.get() > 0) {
+            writer.printf("Templates over limit: %d%n", dropped.get());
+        }
+
+        List<String> templates = new ArrayList<>(stats.keySet());
+        Collections.sort(templates, new Comparator<String>() {
+            @Override
+            public int compare(String lhs, String rhs) {
+                long left = totalNanos(lhs);
+                long right = totalNanos(rhs);
+                return left < right ? 1 : left == right ? 0 : -1;
+            }
+        });
+        for (String template : templates) {
+            Stats entry = stats.get(template);
+            if (entry == null) {
+                continue;
+            }
+            long count = entry.count.get();
+            writer.printf("%n%s%n", template);
+            writer.printf("  n=%d avg=%.2fms max=%.2fms rows=%d caller=%s%n", count,
+                    count == 0 ? 0 : millis(entry.totalNanos.get()) / count,
+                    millis(entry.maxNanos.get()), entry.rows.get(), entry.caller);
+            writer.print("  ms:");
+            for (int i = 0; i < BUCKETS; i++) {
+                String label = i < BUCKETS - 1 ? "<" + (1 << i) : ">=" + (1 << (BUCKETS - 2));
+                writer.printf(" %s:%d", label, entry.histogram.get(i));
+            }
+            writer.println();
+        }
+
+        writer.printf("%nSlow statements%n");
+        for (int i = 0; i < MAX_SLOW_QUERIES; i++) {
+            SlowQuery slow = slowQueries.get(i);
+            if (slow != null) {
+                writer.printf("%n%s %.2fms rows=%d caller=%s%n%s%n%s%n", new Date(slow.timestamp),
+                        millis(slow.elapsedNanos), slow.rows, slow.caller, slow.template, slow.plan);
+            }
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    private long totalNanos(String template) {
+        Stats entry = stats.get(template);
+        return entry == null ? 0 : entry.totalNanos.get();
+    }
+
+    static String normalize(String sql) {
+        String template = STRING_LITERAL.matcher(sql).replaceAll("?");
+        template = NUMBER_LITERAL.matcher(template).replaceAll("?");
+        return WHITESPACE.matcher(template).replaceAll(" ").trim();
+    }
+
+    /** first class on the stack outside of the data layer. Only used for recorded statements */
+    private static String findCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith("com.todoroo.andlib.data.") &&
+                    !className.equals(Database.class.getName()) &&
+                    !className.equals(QueryProfiler.class.getName())) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+            }
+        }
+        return null;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int bucket(long elapsedNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        int bucket = 0;
+        while (bucket < BUCKETS - 1 && millis >= (1L << bucket)) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static class Stats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        volatile String caller;
+
+        void add(long elapsedNanos, int rowCount, String callerName) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(elapsedNanos);
+            rows.addAndGet(rowCount);
+            histogram.incrementAndGet(bucket(elapsedNanos));
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (elapsedNanos > max && !maxNanos.compareAndSet(max, elapsedNanos));
+            caller = callerName;
+        }
+    }
+
+    private static class SlowQuery {
+        final long timestamp = System.currentTimeMillis();
+        final String template;
+        final long elapsedNanos;
+        final int rows;
+        final String caller;
+        final String plan;
+
+        SlowQuery(String template, long elapsedNanos, int rows, String caller, String plan) {
+            this.template = template;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.caller = caller;
+            this.plan = plan;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.data.DatabaseDao;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.data.SyncOutbox;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Data Access layer for {@link SyncOutbox}-related operations.
+ */
+@Singleton
+public class SyncOutboxDao {
+
+    private final Database database;
+    private final DatabaseDao<SyncOutbox> dao;
+
+    @Inject
+    public SyncOutboxDao(Database database) {
+        this.database = database;
+        dao = new DatabaseDao<>(database, SyncOutbox.class);
+    }
+
+    /**
+     * Add changes for a task, merging them into its pending entry if there
+     * is one. Any backoff from previous failures is reset.
+     */
+    public synchronized void enqueue(long taskId, int fields, boolean move) {
+        SyncOutbox entry = dao.getFirst(Query.select(SyncOutbox.PROPERTIES).where(SyncOutbox.TASK.eq(taskId)));
+        if (entry == null) {
+            entry = new SyncOutbox();
+            entry.setTask(taskId);
+        } else {
+            fields |= entry.getFields();
+            move |= entry.isMove();
+        }
+        entry.setFields(fields);
+        entry.setMove(move);
+        entry.setQueued(DateUtilities.now());
+        entry.setAttempts(0);
+        entry.setNextAttempt(0);
+        dao.persist(entry);
+    }
+
+    public void enqueue(Iterable<Long> taskIds, int fields) {
+        database.beginTransaction();
+        try {
+            for (Long taskId : taskIds) {
+                enqueue(taskId, fields, false);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * @return entries that are not backing off and have not changed since
+     * settledBefore, oldest first
+     */
+    public List<SyncOutbox> getReady(long now, long settledBefore, int limit) {
+        return dao.toList(Query.select(SyncOutbox.PROPERTIES)
+                .where(Criterion.and(SyncOutbox.NEXT_ATTEMPT.lte(now), SyncOutbox.QUEUED.lte(settledBefore)))
+                .orderBy(Order.asc(SyncOutbox.ID))
+                .limit(limit));
+    }
+
+    public List<SyncOutbox> getAll() {
+        return dao.toList(Query.select(SyncOutbox.PROPERTIES).orderBy(Order.asc(SyncOutbox.ID)));
+    }
+
+    /**
+     * @return time at which the next entry becomes ready, or 0 if there are
+     * no entries
+     */
+    public long getNextReadyTime(long settleDelay) {
+        TodorooCursor<SyncOutbox> cursor = dao.query(Query.select(SyncOutbox.QUEUED, SyncOutbox.NEXT_ATTEMPT));
+        try {
+            long next = 0;
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                long ready = Math.max(cursor.get(SyncOutbox.QUEUED) + settleDelay, cursor.get(SyncOutbox.NEXT_ATTEMPT));
+                next = next == 0 ? ready : Math.min(next, ready);
+            }
+            return next;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Remove an entry that was pushed, unless it changed in the meantime
+     */
+    public synchronized void remove(SyncOutbox entry) {
+        dao.deleteWhere(unchanged(entry));
+    }
+
+    /**
+     * Record a failed push, unless the entry changed in the meantime
+     */
+    public synchronized void retryAt(SyncOutbox entry, long nextAttempt) {
+        SyncOutbox template = new SyncOutbox();
+        template.setAttempts(entry.getAttempts() + 1);
+        template.setNextAttempt(nextAttempt);
+        dao.update(unchanged(entry), template);
+    }
+
+    public void clear() {
+        dao.deleteWhere(Criterion.all);
+    }
+
+    private static Criterion unchanged(SyncOutbox entry) {
+        return Criterion.and(SyncOutbox.ID.eq(entry.getId()), SyncOutbox.QUEUED.eq(entry.getQueued()));
+    }
+}
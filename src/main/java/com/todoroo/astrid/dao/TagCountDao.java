@@ -0,0 +1,141 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Number of active tasks linked to each tag, kept in the tag_counts table.
+ * The table is maintained by triggers on tag links and on task completion
+ * and deletion, so reading the counts does not aggregate the metadata table.
+ */
+@Singleton
+public class TagCountDao {
+
+    private static final Logger log = LoggerFactory.getLogger(TagCountDao.class);
+
+    static final String TABLE = "tag_counts"; //$NON-NLS-1$
+    static final String TAG = "tag"; //$NON-NLS-1$
+    static final String ACTIVE = "active"; //$NON-NLS-1$
+
+    private final Database database;
+
+    @Inject
+    public TagCountDao(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Count of active tasks that are not hidden for each tag uuid, matching
+     * {@link TaskDao.TaskCriteria#activeAndVisible()}. Hidden tasks are
+     * subtracted with a query over hidden tasks only.
+     *
+     * @return counts by tag uuid, or null if the table could not be read
+     */
+    public Map<String, Integer> getVisibleCounts(long now) {
+        String sql = "SELECT " + TABLE + "." + TAG + ", " + TABLE + "." + ACTIVE + " - IFNULL(hidden.count, 0)" +
+                " FROM " + TABLE + " LEFT JOIN (SELECT " + TaskToTagMetadata.TAG_UUID + " AS tag, COUNT(1) AS count" +
+                " FROM " + Metadata.TABLE + " INNER JOIN " + Task.TABLE + " ON " + Metadata.TASK + " = " + Task.ID +
+                " WHERE " + Task.HIDE_UNTIL + " >= " + now + " AND " + isActive(Task.TABLE.name) +
+                " AND " + isLink(Metadata.TABLE.name) +
+                " GROUP BY " + TaskToTagMetadata.TAG_UUID + ") hidden ON hidden.tag = " + TABLE + "." + TAG +
+                " WHERE " + TABLE + "." + ACTIVE + " > 0";
+        Map<String, Integer> counts = new HashMap<>();
+        Cursor cursor;
+        try {
+            cursor = database.rawQuery(sql);
+        } catch (SQLiteException e) {
+            log.error(e.getMessage(), e);
+            return null;
+        }
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                int count = cursor.getInt(1);
+                if (count > 0) {
+                    counts.put(cursor.getString(0), count);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return counts;
+    }
+
+    // --- schema
+
+    static String[] createTableSql() {
+        String addLink = "INSERT OR IGNORE INTO " + TABLE + " (" + TAG + ", " + ACTIVE + ") VALUES (new.%1$s, 0); " +
+                adjust("+ 1", TAG + " = new.%1$s");
+        String removeLink = adjust("- 1", TAG + " = old.%1$s");
+        String linksOfTask = "FROM " + Metadata.TABLE + " WHERE " + Metadata.TASK.name + " = %1$s." + Task.ID.name +
+                " AND " + isLink(Metadata.TABLE.name);
+        String adjustForTask = adjust("+ %2$s * (SELECT COUNT(1) " + linksOfTask + " AND " +
+                        TaskToTagMetadata.TAG_UUID + " = " + TABLE + "." + TAG + ")",
+                TAG + " IN (SELECT " + TaskToTagMetadata.TAG_UUID + " " + linksOfTask + ")");
+        String linkColumns = Metadata.TASK.name + ", " + Metadata.KEY.name + ", " +
+                TaskToTagMetadata.TAG_UUID.name + ", " + Metadata.DELETION_DATE.name;
+        String tagUuid = TaskToTagMetadata.TAG_UUID.name;
+
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE + " (" + TAG + " TEXT PRIMARY KEY, " +
+                        ACTIVE + " INTEGER NOT NULL DEFAULT 0)",
+                "CREATE TRIGGER IF NOT EXISTS tc_link_insert AFTER INSERT ON " + Metadata.TABLE +
+                        " WHEN " + isActiveLink("new") + " BEGIN " + String.format(addLink, tagUuid) + "; END",
+                "CREATE TRIGGER IF NOT EXISTS tc_link_delete AFTER DELETE ON " + Metadata.TABLE +
+                        " WHEN " + isActiveLink("old") + " BEGIN " + String.format(removeLink, tagUuid) + "; END",
+                "CREATE TRIGGER IF NOT EXISTS tc_link_update_old AFTER UPDATE OF " + linkColumns + " ON " + Metadata.TABLE +
+                        " WHEN " + isActiveLink("old") + " BEGIN " + String.format(removeLink, tagUuid) + "; END",
+                "CREATE TRIGGER IF NOT EXISTS tc_link_update_new AFTER UPDATE OF " + linkColumns + " ON " + Metadata.TABLE +
+                        " WHEN " + isActiveLink("new") + " BEGIN " + String.format(addLink, tagUuid) + "; END",
+                "CREATE TRIGGER IF NOT EXISTS tc_task_update AFTER UPDATE OF " + Task.COMPLETION_DATE.name + ", " +
+                        Task.DELETION_DATE.name + " ON " + Task.TABLE +
+                        " WHEN (" + isActive("old") + ") <> (" + isActive("new") + ") BEGIN " +
+                        "INSERT OR IGNORE INTO " + TABLE + " (" + TAG + ", " + ACTIVE + ") SELECT " +
+                        tagUuid + ", 0 " + String.format(linksOfTask, "new") + "; " +
+                        String.format(adjustForTask, "new", "(CASE WHEN " + isActive("new") + " THEN 1 ELSE -1 END)") + "; END",
+                "CREATE TRIGGER IF NOT EXISTS tc_task_delete AFTER DELETE ON " + Task.TABLE +
+                        " WHEN " + isActive("old") + " BEGIN " + String.format(adjustForTask, "old", "-1") + "; END"
+        };
+    }
+
+    /**
+     * Count links to active tasks, used to fill the table when it is added to
+     * an existing database
+     */
+    static String populateSql() {
+        return "INSERT OR REPLACE INTO " + TABLE + " (" + TAG + ", " + ACTIVE + ") SELECT " +
+                TaskToTagMetadata.TAG_UUID + ", COUNT(1) FROM " + Metadata.TABLE + " INNER JOIN " + Task.TABLE +
+                " ON " + Metadata.TASK + " = " + Task.ID + " WHERE " + isActive(Task.TABLE.name) +
+                " AND " + isLink(Metadata.TABLE.name) + " GROUP BY " + TaskToTagMetadata.TAG_UUID;
+    }
+
+    private static String adjust(String delta, String where) {
+        return "UPDATE " + TABLE + " SET " + ACTIVE + " = " + ACTIVE + " " + delta + " WHERE " + where;
+    }
+
+    private static String isActiveLink(String row) {
+        return isLink(row) + " AND EXISTS (SELECT 1 FROM " + Task.TABLE + " WHERE " + Task.ID + " = " + row + "." +
+                Metadata.TASK.name + " AND " + isActive(Task.TABLE.name) + ")";
+    }
+
+    private static String isLink(String row) {
+        return row + "." + Metadata.KEY.name + " = '" + TaskToTagMetadata.KEY + "' AND " +
+                row + "." + Metadata.DELETION_DATE.name + " = 0";
+    }
+
+    private static String isActive(String row) {
+        return row + "." + Task.COMPLETION_DATE.name + " = 0 AND " + row + "." + Task.DELETION_DATE.name + " = 0";
+    }
+}
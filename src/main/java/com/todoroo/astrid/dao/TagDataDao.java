@@ -15,6 +15,8 @@ import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -55,6 +57,19 @@ public class TagDataDao {
                 .orderBy(Order.asc(TagData.ID)));
     }
 
+    public List<TagData> toList(Query query) {
+        return dao.toList(query);
+    }
+
+    /**
+     * Names and uuids of all tags, including deleted tags, oldest first
+     */
+    public void tagNames(Callback<TagData> callback) {
+        dao.query(callback, Query.select(TagData.NAME, TagData.UUID)
+                .where(TagData.NAME.isNotNull())
+                .orderBy(Order.asc(TagData.ID)));
+    }
+
     public TagData getByUuid(String uuid, Property<?>... properties) {
         return dao.getFirst(Query.select(properties).where(TagData.UUID.eq(uuid)));
     }
@@ -78,10 +93,6 @@ public class TagDataDao {
         dao.saveExisting(tagData);
     }
 
-    public void addListener(DatabaseDao.ModelUpdateListener<TagData> modelUpdateListener) {
-        dao.addListener(modelUpdateListener);
-    }
-
     public void delete(long id) {
         dao.delete(id);
     }
@@ -49,6 +49,7 @@ public class TaskDao {
     private final RemoteModelDao<Task> dao;
 
     private final MetadataDao metadataDao;
+    private final ArchiveDao archiveDao;
     private final Broadcaster broadcaster;
     private final ReminderService reminderService;
     private final NotificationManager notificationManager;
@@ -56,13 +57,14 @@ public class TaskDao {
     private GeofenceService geofenceService;
 
     @Inject
-	public TaskDao(Database database, MetadataDao metadataDao, Broadcaster broadcaster,
+	public TaskDao(Database database, MetadataDao metadataDao, ArchiveDao archiveDao, Broadcaster broadcaster,
                    ReminderService reminderService, NotificationManager notificationManager,
                    Preferences preferences, GeofenceService geofenceService) {
         this.geofenceService = geofenceService;
         dao = new RemoteModelDao<>(database, Task.class);
         this.preferences = preferences;
         this.metadataDao = metadataDao;
+        this.archiveDao = archiveDao;
         this.broadcaster = broadcaster;
         this.reminderService = reminderService;
         this.notificationManager = notificationManager;
@@ -72,10 +74,42 @@ public class TaskDao {
         return dao.query(query);
     }
 
+    /**
+     * Query tasks with filter sql. Filters that may match completed or
+     * deleted tasks read archived tasks as well.
+     */
+    public TodorooCursor<Task> queryFilter(String sql, Property<?>... properties) {
+        if (ArchiveDao.includesArchive(sql)) {
+            return archiveDao.query(sql, properties);
+        }
+        return dao.query(Query.select(properties).withQueryTemplate(sql));
+    }
+
+    /**
+     * @return number of live and archived tasks
+     */
+    public int countWithArchive() {
+        TodorooCursor<Task> cursor = archiveDao.query("", Task.ID);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
     public Task fetch(long id, Property<?>... properties) {
         return dao.fetch(id, properties);
     }
 
+    /**
+     * Move a task back from the archive before the user edits it
+     *
+     * @return true if the task was archived and has been restored
+     */
+    public boolean restoreArchived(long id) {
+        return archiveDao.restore(id);
+    }
+
     public int count(Query query) {
         return dao.count(query);
     }
@@ -92,10 +126,6 @@ public class TaskDao {
         return dao.deleteWhere(criterion);
     }
 
-    public void addListener(DatabaseDao.ModelUpdateListener<Task> modelUpdateListener) {
-        dao.addListener(modelUpdateListener);
-    }
-
     public List<Task> toList(Query query) {
         return dao.toList(query);
     }
@@ -271,6 +301,10 @@ public class TaskDao {
             }
         }
         boolean result = dao.saveExisting(item);
+        if(!result && archiveDao.restore(item.getId())) {
+            // saving an archived task, such as un-completing it from the list
+            result = dao.saveExisting(item);
+        }
         if(result) {
             afterSave(item, values);
         }
@@ -0,0 +1,130 @@
+package com.todoroo.astrid.data;
+
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Table;
+
+/**
+ * Data Model for a task with local changes that have not been pushed to
+ * Google Tasks yet. There is at most one entry per task, repeated changes
+ * are merged into its field mask.
+ */
+public class SyncOutbox extends AbstractModel {
+
+    // --- table
+
+    /** table for this model */
+    public static final Table TABLE = new Table("sync_outbox", SyncOutbox.class);
+
+    // --- properties
+
+    /** ID */
+    public static final LongProperty ID = new LongProperty(
+            TABLE, ID_PROPERTY_NAME);
+
+    /** Associated Task */
+    public static final LongProperty TASK = new LongProperty(
+            TABLE, "task");
+
+    /** Bit mask of modified task fields */
+    public static final IntegerProperty FIELDS = new IntegerProperty(
+            TABLE, "fields");
+
+    /** 1 if the task was moved or indented */
+    public static final IntegerProperty MOVE = new IntegerProperty(
+            TABLE, "move");
+
+    /** Time of the most recent change */
+    public static final LongProperty QUEUED = new LongProperty(
+            TABLE, "queued", Property.PROP_FLAG_DATE);
+
+    /** Number of failed pushes since the most recent change */
+    public static final IntegerProperty ATTEMPTS = new IntegerProperty(
+            TABLE, "attempts");
+
+    /** Earliest time of the next push */
+    public static final LongProperty NEXT_ATTEMPT = new LongProperty(
+            TABLE, "next_attempt", Property.PROP_FLAG_DATE);
+
+    /** List of all properties for this model */
+    public static final Property<?>[] PROPERTIES = generateProperties(SyncOutbox.class);
+
+    // --- defaults
+
+    /** Default values container */
+    private static final ContentValues defaultValues = new ContentValues();
+
+    static {
+        defaultValues.put(FIELDS.name, 0);
+        defaultValues.put(MOVE.name, 0);
+        defaultValues.put(QUEUED.name, 0);
+        defaultValues.put(ATTEMPTS.name, 0);
+        defaultValues.put(NEXT_ATTEMPT.name, 0);
+    }
+
+    @Override
+    public ContentValues getDefaultValues() {
+        return defaultValues;
+    }
+
+    @Override
+    public long getId() {
+        return getIdHelper(ID);
+    }
+
+    // --- parcelable helpers
+
+    public static final Creator<SyncOutbox> CREATOR = new ModelCreator<>(SyncOutbox.class);
+
+    public long getTask() {
+        return getValue(TASK);
+    }
+
+    public void setTask(long task) {
+        setValue(TASK, task);
+    }
+
+    public int getFields() {
+        return getValue(FIELDS);
+    }
+
+    public void setFields(int fields) {
+        setValue(FIELDS, fields);
+    }
+
+    public boolean isMove() {
+        return getValue(MOVE) > 0;
+    }
+
+    public void setMove(boolean move) {
+        setValue(MOVE, move ? 1 : 0);
+    }
+
+    public long getQueued() {
+        return getValue(QUEUED);
+    }
+
+    public void setQueued(long queued) {
+        setValue(QUEUED, queued);
+    }
+
+    public int getAttempts() {
+        return getValue(ATTEMPTS);
+    }
+
+    public void setAttempts(int attempts) {
+        setValue(ATTEMPTS, attempts);
+    }
+
+    public long getNextAttempt() {
+        return getValue(NEXT_ATTEMPT);
+    }
+
+    public void setNextAttempt(long nextAttempt) {
+        setValue(NEXT_ATTEMPT, nextAttempt);
+    }
+}
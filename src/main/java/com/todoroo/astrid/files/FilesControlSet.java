@@ -29,6 +29,7 @@ import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskAttachment;
+import com.todoroo.astrid.service.TaskDetails;
 import com.todoroo.astrid.ui.PopupControlSet;
 import com.todoroo.astrid.utility.Constants;
 
@@ -70,7 +71,17 @@ public class FilesControlSet extends PopupControlSet {
     public void readFromTask(Task task) {
         super.readFromTask(task);
 
-        refreshMetadata();
+        TaskDetails details = TaskDetails.from(task);
+        if (details == null) {
+            refreshMetadata();
+        } else {
+            files.clear();
+            files.addAll(details.getAttachments());
+            validateFiles();
+            if (initialized) {
+                afterInflate();
+            }
+        }
         refreshDisplayView();
     }
 
@@ -45,6 +45,7 @@ public class CalendarAlarmReceiver extends InjectingBroadcastReceiver {
     };
 
     @Inject Preferences preferences;
+    @Inject CalendarAlarmScheduler calendarAlarmScheduler;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -68,6 +69,9 @@ public class CalendarAlarmReceiver extends InjectingBroadcastReceiver {
             }
             long eventId = Long.parseLong(uriString.substring(pathIndex));
             boolean fromPostpone = CalendarAlarmScheduler.URI_PREFIX_POSTPONE.equals(data.getScheme());
+            if (!fromPostpone) {
+                calendarAlarmScheduler.reminderFired(eventId);
+            }
             if (eventId > 0) {
                 showCalReminder(context, eventId, fromPostpone);
             }
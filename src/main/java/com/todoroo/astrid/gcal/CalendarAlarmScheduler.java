@@ -3,93 +3,317 @@ package com.todoroo.astrid.gcal;
 import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 
 import com.todoroo.andlib.utility.DateUtilities;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Keeps a queue of the next {@link #MAX_QUEUE} calendar events sorted by
+ * reminder time and arms a single alarm for the head of the queue.
+ * <p>
+ * Changes to the calendar provider are picked up by a content observer.
+ * When the provider reports which event changed only that event is
+ * re-read, otherwise the queue is reloaded and only the alarm is touched if
+ * the head changed. All queue work runs serially in the maintenance lane of
+ * the background executor.
+ */
 @Singleton
 public class CalendarAlarmScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(CalendarAlarmScheduler.class);
+
     public static final String URI_PREFIX = "cal-reminder";
     public static final String URI_PREFIX_POSTPONE = "cal-postpone";
 
+    static final int MAX_QUEUE = 32;
+    static final long REMINDER_OFFSET = DateUtilities.ONE_MINUTE * 15;
+
+    private static final String[] PROJECTION = new String[] {
+            Calendars.ID_COLUMN_NAME,
+            Calendars.EVENTS_DTSTART_COL
+    };
+
     private final Preferences preferences;
+    private final Context context;
+    private final BackgroundExecutor executor;
+    private final TreeSet<Reminder> queue = new TreeSet<>();
+    private final Map<Long, Reminder> reminders = new HashMap<>();
+    private final ContentObserver observer = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, final Uri uri) {
+            executor.execute(Lane.MAINTENANCE, new Runnable() {
+                @Override
+                public void run() {
+                    eventChanged(uri);
+                }
+            });
+        }
+    };
+
+    private boolean observing;
+    private boolean truncated;
+    private Reminder armed;
 
     @Inject
-    public CalendarAlarmScheduler(Preferences preferences) {
+    public CalendarAlarmScheduler(Preferences preferences, @ForApplication Context context,
+                                  BackgroundExecutor executor) {
         this.preferences = preferences;
+        this.context = context;
+        this.executor = executor;
     }
 
-    public void scheduleCalendarAlarms(final Context context, boolean force) {
+    /**
+     * @param force schedule even if calendar reminders are disabled, for when
+     * the preference is being turned on and is not saved yet
+     */
+    public void scheduleCalendarAlarms(final boolean force) {
         if (!preferences.getBoolean(R.string.p_calendar_reminders, true) && !force) {
             return;
         }
-        new Thread(new Runnable() {
+        executor.execute(Lane.MAINTENANCE, new Runnable() {
             @Override
             public void run() {
-                scheduleAllCalendarAlarms(context);
+                if (force || isEnabled()) {
+                    startObserving();
+                    reload();
+                }
             }
-        }).start();
+        });
     }
 
-    private void scheduleAllCalendarAlarms(Context context) {
-        if (!preferences.getBoolean(R.string.p_calendar_reminders, true)) {
-            return;
+    public void cancelCalendarAlarms() {
+        executor.execute(Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                stop();
+            }
+        });
+    }
+
+    /**
+     * Called when the alarm for an event has fired, arms the next reminder
+     */
+    public void reminderFired(final long eventId) {
+        executor.execute(Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                if (!isEnabled()) {
+                    return;
+                }
+                startObserving();
+                if (armed != null && armed.eventId == eventId) {
+                    armed = null;
+                }
+                remove(eventId);
+                if (queue.isEmpty()) {
+                    reload();
+                } else {
+                    armHead();
+                }
+            }
+        });
+    }
+
+    private boolean isEnabled() {
+        if (preferences.getBoolean(R.string.p_calendar_reminders, true)) {
+            return true;
         }
+        stop();
+        return false;
+    }
 
-        ContentResolver cr = context.getContentResolver();
+    private void stop() {
+        if (observing) {
+            context.getContentResolver().unregisterContentObserver(observer);
+            observing = false;
+        }
+        queue.clear();
+        reminders.clear();
+        if (armed != null) {
+            getAlarmManager().cancel(getPendingIntent(armed.eventId));
+            armed = null;
+        }
+    }
 
-        long now = DateUtilities.now();
+    private void startObserving() {
+        if (!observing) {
+            context.getContentResolver().registerContentObserver(getEventsUri(), true, observer);
+            observing = true;
+        }
+    }
 
-        AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-        Cursor events = cr.query(Calendars.getCalendarContentUri(Calendars.CALENDAR_CONTENT_EVENTS),
-                new String[] { Calendars.ID_COLUMN_NAME, Calendars.EVENTS_DTSTART_COL },
-                Calendars.EVENTS_DTSTART_COL + " > ? AND " + Calendars.EVENTS_DTSTART_COL + " < ?",
-                new String[] { Long.toString(now + DateUtilities.ONE_MINUTE * 15), Long.toString(now + DateUtilities.ONE_DAY) },
-                null);
+    private void eventChanged(Uri uri) {
+        if (!isEnabled()) {
+            return;
+        }
+        long eventId = uri == null ? -1 : parseId(uri);
+        if (eventId <= 0) {
+            reload();
+            return;
+        }
+        remove(eventId);
+        Cursor event = query(Calendars.ID_COLUMN_NAME + " = ? AND " + Calendars.EVENTS_DTSTART_COL + " > ?",
+                new String[] { Long.toString(eventId), Long.toString(DateUtilities.now() + REMINDER_OFFSET) });
         try {
-            if (events != null && events.getCount() > 0) {
-                int idIndex = events.getColumnIndex(Calendars.ID_COLUMN_NAME);
-                int dtstartIndex = events.getColumnIndexOrThrow(Calendars.EVENTS_DTSTART_COL);
+            if (event != null && event.moveToFirst()) {
+                Reminder reminder = new Reminder(eventId, event.getLong(1) - REMINDER_OFFSET);
+                // events past the tail of a truncated queue are picked up by a later reload
+                if (!truncated || (!queue.isEmpty() && reminder.compareTo(queue.last()) < 0)) {
+                    add(reminder);
+                    if (queue.size() > MAX_QUEUE) {
+                        reminders.remove(queue.pollLast().eventId);
+                        truncated = true;
+                    }
+                }
+            }
+        } finally {
+            if (event != null) {
+                event.close();
+            }
+        }
+        if (queue.isEmpty()) {
+            reload();
+        } else {
+            armHead();
+        }
+    }
 
-                for (events.moveToFirst(); !events.isAfterLast(); events.moveToNext()) {
-                    Intent eventAlarm = new Intent(context, CalendarAlarmReceiver.class);
-                    eventAlarm.setAction(CalendarAlarmReceiver.BROADCAST_CALENDAR_REMINDER);
+    private void reload() {
+        queue.clear();
+        reminders.clear();
+        truncated = false;
+        Cursor events = query(Calendars.EVENTS_DTSTART_COL + " > ?",
+                new String[] { Long.toString(DateUtilities.now() + REMINDER_OFFSET) });
+        try {
+            if (events != null) {
+                for (events.moveToFirst(); !events.isAfterLast() && queue.size() < MAX_QUEUE; events.moveToNext()) {
+                    add(new Reminder(events.getLong(0), events.getLong(1) - REMINDER_OFFSET));
+                }
+                truncated = !events.isAfterLast();
+            }
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            if (events != null) {
+                events.close();
+            }
+        }
+        armHead();
+    }
 
-                    long start = events.getLong(dtstartIndex);
-                    long id = events.getLong(idIndex);
+    private void armHead() {
+        Reminder head = queue.isEmpty() ? null : queue.first();
+        if (head == null ? armed == null : head.equals(armed)) {
+            return;
+        }
+        AlarmManager am = getAlarmManager();
+        if (armed != null) {
+            am.cancel(getPendingIntent(armed.eventId));
+        }
+        armed = head;
+        if (head != null) {
+            am.set(AlarmManager.RTC_WAKEUP, head.time, getPendingIntent(head.eventId));
+        }
+    }
 
-                    eventAlarm.setData(Uri.parse(URI_PREFIX + "://" + id));
+    private void add(Reminder reminder) {
+        reminders.put(reminder.eventId, reminder);
+        queue.add(reminder);
+    }
 
-                    PendingIntent pendingIntent = PendingIntent.getBroadcast(context,
-                            CalendarAlarmReceiver.REQUEST_CODE_CAL_REMINDER, eventAlarm, 0);
+    private void remove(long eventId) {
+        Reminder reminder = reminders.remove(eventId);
+        if (reminder != null) {
+            queue.remove(reminder);
+        }
+    }
 
-                    am.cancel(pendingIntent);
+    private Cursor query(String selection, String[] selectionArgs) {
+        ContentResolver cr = context.getContentResolver();
+        return cr.query(getEventsUri(), PROJECTION, selection, selectionArgs,
+                Calendars.EVENTS_DTSTART_COL + " ASC");
+    }
 
-                    long alarmTime = start - DateUtilities.ONE_MINUTE * 15;
-                    am.set(AlarmManager.RTC_WAKEUP, alarmTime, pendingIntent);
-                }
+    private PendingIntent getPendingIntent(long eventId) {
+        Intent eventAlarm = new Intent(context, CalendarAlarmReceiver.class);
+        eventAlarm.setAction(CalendarAlarmReceiver.BROADCAST_CALENDAR_REMINDER);
+        eventAlarm.setData(Uri.parse(URI_PREFIX + "://" + eventId));
+        return PendingIntent.getBroadcast(context, CalendarAlarmReceiver.REQUEST_CODE_CAL_REMINDER, eventAlarm, 0);
+    }
+
+    private AlarmManager getAlarmManager() {
+        return (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    private static Uri getEventsUri() {
+        return Calendars.getCalendarContentUri(Calendars.CALENDAR_CONTENT_EVENTS);
+    }
+
+    private static long parseId(Uri uri) {
+        try {
+            return ContentUris.parseId(uri);
+        } catch (NumberFormatException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static class Reminder implements Comparable<Reminder> {
+        final long eventId;
+        final long time;
+
+        Reminder(long eventId, long time) {
+            this.eventId = eventId;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(Reminder other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
             }
+            return eventId < other.eventId ? -1 : eventId == other.eventId ? 0 : 1;
+        }
 
-            // Schedule alarm to recheck and reschedule calendar alarms in 12 hours
-            Intent rescheduleAlarm = new Intent(CalendarStartupReceiver.BROADCAST_RESCHEDULE_CAL_ALARMS);
-            PendingIntent pendingReschedule = PendingIntent.getBroadcast(context, 0,
-                    rescheduleAlarm, 0);
-            am.cancel(pendingReschedule);
-            am.set(AlarmManager.RTC, DateUtilities.now() + DateUtilities.ONE_HOUR * 12, pendingReschedule);
-        } finally {
-            if (events != null) {
-                events.close();
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Reminder)) {
+                return false;
             }
+            Reminder reminder = (Reminder) o;
+            return eventId == reminder.eventId && time == reminder.time;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (eventId ^ (eventId >>> 32)) + (int) (time ^ (time >>> 32));
         }
     }
 }
@@ -18,6 +18,6 @@ public class CalendarStartupReceiver extends InjectingBroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         super.onReceive(context, intent);
 
-        calendarAlarmScheduler.scheduleCalendarAlarms(context, false);
+        calendarAlarmScheduler.scheduleCalendarAlarms(false);
     }
 }
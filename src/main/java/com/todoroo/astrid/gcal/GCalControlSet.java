@@ -23,6 +23,7 @@ import android.widget.Toast;
 
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.helper.TaskEditControlSetBase;
+import com.todoroo.astrid.service.TaskDetails;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -97,6 +98,21 @@ public class GCalControlSet extends TaskEditControlSetBase {
         });
     }
 
+    private boolean calendarEventExists() {
+        TaskDetails details = TaskDetails.from(model);
+        if (details != null) {
+            return details.calendarEventExists();
+        }
+        // try to load calendar
+        ContentResolver cr = activity.getContentResolver();
+        Cursor cursor = cr.query(calendarUri, new String[] { "dtstart" }, null, null, null); //$NON-NLS-1$
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Override
     protected void readFromTaskOnInitialize() {
         String uri = gcal.getTaskEventUri(model);
@@ -104,18 +120,9 @@ public class GCalControlSet extends TaskEditControlSetBase {
             try {
                 calendarUri = Uri.parse(uri);
 
-                // try to load calendar
-                ContentResolver cr = activity.getContentResolver();
-                Cursor cursor = cr.query(calendarUri, new String[] { "dtstart" }, null, null, null); //$NON-NLS-1$
-                try {
-                    boolean deleted = cursor.getCount() == 0;
-
-                    if(deleted) {
-                        calendarUri = null;
-                        return;
-                    }
-                } finally {
-                    cursor.close();
+                if (!calendarEventExists()) {
+                    calendarUri = null;
+                    return;
                 }
 
                 hasEvent = true;
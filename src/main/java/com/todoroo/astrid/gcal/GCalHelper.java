@@ -5,6 +5,8 @@
  */
 package com.todoroo.astrid.gcal;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -15,7 +17,10 @@ import android.net.Uri;
 import android.text.TextUtils;
 import android.text.format.Time;
 
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskService;
 
@@ -25,6 +30,7 @@ import org.tasks.R;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
 
+import java.util.ArrayList;
 import java.util.TimeZone;
 
 import javax.inject.Inject;
@@ -42,14 +48,20 @@ public class GCalHelper {
 
     public static final String CALENDAR_ID_COLUMN = "calendar_id"; //$NON-NLS-1$
 
+    /** Maximum number of operations sent to the calendar provider in one batch */
+    static final int BATCH_SIZE = 100;
+
     private final Context context;
     private final TaskService taskService;
+    private final ArchiveDao archiveDao;
     private final Preferences preferences;
 
     @Inject
-    public GCalHelper(@ForApplication Context context, TaskService taskService, Preferences preferences) {
+    public GCalHelper(@ForApplication Context context, TaskService taskService, ArchiveDao archiveDao,
+                      Preferences preferences) {
         this.context = context;
         this.taskService = taskService;
+        this.archiveDao = archiveDao;
         this.preferences = preferences;
     }
 
@@ -95,15 +107,27 @@ public class GCalHelper {
         return createTaskEvent(task, cr, values, true);
     }
 
+    /**
+     * Insert an event for the task. If the task already has an event and
+     * deleteEventIfExists is set, the delete and insert are applied as one batch.
+     */
     public Uri createTaskEvent(Task task, ContentResolver cr, ContentValues values, boolean deleteEventIfExists) {
         String eventuri = getTaskEventUri(task);
 
-        if(!TextUtils.isEmpty(eventuri) && deleteEventIfExists) {
-            deleteTaskEvent(task);
-        }
-
         try{
             Uri uri = getCalendarContentUri(Calendars.CALENDAR_CONTENT_EVENTS);
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+            boolean deletingExisting = false;
+            if(!TextUtils.isEmpty(eventuri) && deleteEventIfExists) {
+                Uri existing = Uri.parse(eventuri);
+                if (uri.getAuthority().equals(existing.getAuthority())) {
+                    operations.add(ContentProviderOperation.newDelete(existing).build());
+                    deletingExisting = true;
+                } else {
+                    deleteTaskEvent(task);
+                }
+            }
+
             values.put("title", task.getTitle());
             values.put("description", task.getNotes());
             values.put("hasAlarm", 0);
@@ -122,7 +146,13 @@ public class GCalHelper {
 
             createStartAndEndDate(task, values);
 
-            Uri eventUri = cr.insert(uri, values);
+            operations.add(ContentProviderOperation.newInsert(uri).withValues(values).build());
+            ContentProviderResult[] results = cr.applyBatch(uri.getAuthority(), operations);
+            // the old event is only gone once the batch has been applied
+            if (deletingExisting) {
+                task.setCalendarUri(""); //$NON-NLS-1$
+            }
+            Uri eventUri = results[results.length - 1].uri;
             cr.notifyChange(eventUri, null);
 
             return eventUri;
@@ -151,7 +181,7 @@ public class GCalHelper {
         cv.put(CALENDAR_ID_COLUMN, calendarId);
 
         Uri uri = createTaskEvent(task, cr, cv, false);
-        task.setCalendarUri(uri.toString());
+        task.setCalendarUri(uri == null ? "" : uri.toString()); //$NON-NLS-1$
     }
 
     private static String getCalendarId(Uri uri, ContentResolver cr) {
@@ -184,19 +214,9 @@ public class GCalHelper {
             try {
                 Uri calendarUri = Uri.parse(uri);
 
-                // try to load calendar
+                // nothing is deleted if the event is already gone
                 ContentResolver cr = context.getContentResolver();
-                Cursor cursor = cr.query(calendarUri, new String[] { "dtstart" }, null, null, null); //$NON-NLS-1$
-                try {
-                    boolean alreadydeleted = cursor.getCount() == 0;
-
-                    if (!alreadydeleted) {
-                        cr.delete(calendarUri, null, null);
-                        eventDeleted = true;
-                    }
-                } finally {
-                    cursor.close();
-                }
+                eventDeleted = cr.delete(calendarUri, null, null) > 0;
 
                 task.setCalendarUri( "");
             } catch (Exception e) {
@@ -207,6 +227,78 @@ public class GCalHelper {
         return eventDeleted;
     }
 
+    /**
+     * Delete the events of all tasks matching the criterion. Deletes are sent
+     * to the calendar provider in batches of {@link #BATCH_SIZE}. Archived
+     * tasks are included. The tasks' calendar uris are not cleared.
+     *
+     * @return number of events deleted
+     */
+    public int deleteTaskEvents(Criterion criterion) {
+        int deleted = 0;
+        String authority = null;
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        TodorooCursor<Task> cursor = archiveDao.query("WHERE " +
+                Criterion.and(criterion, Task.CALENDAR_URI.isNotNull(), Task.CALENDAR_URI.neq("")),
+                Task.ID, Task.CALENDAR_URI);
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                Uri eventUri = Uri.parse(cursor.get(Task.CALENDAR_URI));
+                String eventAuthority = eventUri.getAuthority();
+                if (eventAuthority == null) {
+                    continue;
+                }
+                if (operations.size() >= BATCH_SIZE || (authority != null && !authority.equals(eventAuthority))) {
+                    deleted += applyBatch(authority, operations);
+                    operations.clear();
+                }
+                authority = eventAuthority;
+                operations.add(ContentProviderOperation.newDelete(eventUri).build());
+            }
+        } finally {
+            cursor.close();
+        }
+        if (!operations.isEmpty()) {
+            deleted += applyBatch(authority, operations);
+        }
+        return deleted;
+    }
+
+    /**
+     * Apply the deletes as one batch. If the batch fails, such as for one
+     * stale event uri, the deletes are retried one at a time so that the
+     * other events are still deleted.
+     *
+     * @return number of rows affected
+     */
+    private int applyBatch(String authority, ArrayList<ContentProviderOperation> operations) {
+        ContentResolver cr = context.getContentResolver();
+        try {
+            return count(cr.applyBatch(authority, operations));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        int count = 0;
+        for (ContentProviderOperation operation : operations) {
+            try {
+                count += cr.delete(operation.getUri(), null, null);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return count;
+    }
+
+    private static int count(ContentProviderResult[] results) {
+        int count = 0;
+        for (ContentProviderResult result : results) {
+            if (result.count != null) {
+                count += result.count;
+            }
+        }
+        return count;
+    }
+
     void createStartAndEndDate(Task task, ContentValues values) {
         long dueDate = task.getDueDate();
         long tzCorrectedDueDate = dueDate + TimeZone.getDefault().getOffset(dueDate);
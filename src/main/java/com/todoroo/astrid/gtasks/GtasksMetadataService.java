@@ -15,6 +15,7 @@ import com.todoroo.andlib.sql.Field;
 import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TaskDao;
@@ -44,11 +45,13 @@ public final class GtasksMetadataService {
 
     private final TaskDao taskDao;
     private final MetadataDao metadataDao;
+    private final ArchiveDao archiveDao;
 
     @Inject
-    public GtasksMetadataService(TaskDao taskDao, MetadataDao metadataDao) {
+    public GtasksMetadataService(TaskDao taskDao, MetadataDao metadataDao, ArchiveDao archiveDao) {
         this.taskDao = taskDao;
         this.metadataDao = metadataDao;
+        this.archiveDao = archiveDao;
     }
 
     /**
@@ -139,10 +142,19 @@ public final class GtasksMetadataService {
         return metadata == null ? AbstractModel.NO_ID : metadata.getTask();
     }
 
+    /**
+     * Find metadata for a remote task, restoring its task if it was archived
+     * so that sync updates it instead of creating a duplicate
+     */
     private Metadata getMetadataByGtaskId(String gtaskId) {
-        return metadataDao.getFirst(Query.select(Metadata.PROPERTIES).where(Criterion.and(
+        Criterion criterion = Criterion.and(
                 Metadata.KEY.eq(getMetadataKey()),
-                GtasksMetadata.ID.eq(gtaskId))));
+                GtasksMetadata.ID.eq(gtaskId));
+        Metadata metadata = metadataDao.getFirst(Query.select(Metadata.PROPERTIES).where(criterion));
+        if (metadata == null && archiveDao.restore(criterion)) {
+            metadata = metadataDao.getFirst(Query.select(Metadata.PROPERTIES).where(criterion));
+        }
+        return metadata;
     }
 
     // --- list iterating helpers
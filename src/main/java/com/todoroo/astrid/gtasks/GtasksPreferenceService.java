@@ -27,6 +27,7 @@ public class GtasksPreferenceService {
 
     private static final String PREF_DEFAULT_LIST = IDENTIFIER + "_defaultlist"; //$NON-NLS-1$
     private static final String PREF_USER_NAME = IDENTIFIER + "_user"; //$NON-NLS-1$
+    private static final String PREF_OUTBOX_RECONCILED = IDENTIFIER + "_outbox_reconciled"; //$NON-NLS-1$
 
     @Inject
     public GtasksPreferenceService(Preferences preferences) {
@@ -53,6 +54,15 @@ public class GtasksPreferenceService {
         preferences.setString(PREF_USER_NAME, userName);
     }
 
+    /** @return true if tasks changed before logging in have been queued for sync */
+    public boolean isOutboxReconciled() {
+        return preferences.getBoolean(PREF_OUTBOX_RECONCILED, false);
+    }
+
+    public void setOutboxReconciled(boolean reconciled) {
+        preferences.setBoolean(PREF_OUTBOX_RECONCILED, reconciled);
+    }
+
     protected static final String PREF_TOKEN = "_token"; //$NON-NLS-1$
 
     protected static final String PREF_LAST_SYNC = "_last_sync"; //$NON-NLS-1$
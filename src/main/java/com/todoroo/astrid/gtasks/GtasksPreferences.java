@@ -46,6 +46,7 @@ public class GtasksPreferences extends InjectingPreferenceActivity {
                 } else {
                     gtasksPreferenceService.stopOngoing();
                     gtasksPreferenceService.setToken(null);
+                    gtasksPreferenceService.setOutboxReconciled(false);
                 }
                 return true;
             }
@@ -6,7 +6,9 @@ import com.google.api.client.extensions.android.http.AndroidHttp;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.tasks.Tasks;
@@ -19,12 +21,14 @@ import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.sync.SyncTelemetry;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
 /**
- * Wrapper around the official Google Tasks API to simplify common operations. In the case
- * of an exception, each request is tried twice in case of a timeout.
+ * Wrapper around the official Google Tasks API to simplify common operations. Requests are
+ * paced and retried according to a {@link RequestPolicy}.
  *
  * @author Sam Bosley
  */
@@ -34,53 +38,89 @@ public class GtasksInvoker {
 
     private final Context context;
     private final GtasksTokenValidator gtasksTokenValidator;
+    private final SyncTelemetry telemetry;
+    private final RequestPolicy requestPolicy;
     private Tasks service;
     private GoogleCredential credential = new GoogleCredential();
     private String token;
 
     private final String key;
 
+    /** fields read by GtasksListService */
+    private static final String LIST_FIELDS = "items(id,title,updated)"; //$NON-NLS-1$
+
+    /** fields read by GtasksTaskContainer and GtasksSyncV2Provider */
+    private static final String TASK_FIELDS = "items(id,title,notes,due,completed,deleted,hidden,updated,parent,position)"; //$NON-NLS-1$
+
+    private static final String[] QUOTA_ERRORS = {
+            "rateLimitExceeded", "userRateLimitExceeded", "quotaExceeded", "dailyLimitExceeded"
+    };
+
     public static final String AUTH_TOKEN_TYPE = "Manage your tasks"; //"oauth2:https://www.googleapis.com/auth/tasks";
 
-    public GtasksInvoker(Context context, GtasksTokenValidator gtasksTokenValidator, String authToken) {
+    public GtasksInvoker(Context context, GtasksTokenValidator gtasksTokenValidator, SyncTelemetry telemetry,
+                         RequestPolicy requestPolicy, String authToken) {
+        this(context, gtasksTokenValidator, telemetry, requestPolicy, AndroidHttp.newCompatibleTransport(),
+                Tasks.DEFAULT_ROOT_URL, context.getString(R.string.gapi_key), authToken);
+    }
+
+    GtasksInvoker(Context context, GtasksTokenValidator gtasksTokenValidator, SyncTelemetry telemetry,
+                  final RequestPolicy requestPolicy, HttpTransport transport, String rootUrl, String key,
+                  String authToken) {
         this.context = context;
         this.gtasksTokenValidator = gtasksTokenValidator;
+        this.telemetry = telemetry;
+        this.requestPolicy = requestPolicy;
         this.token = authToken;
+        this.key = key;
 
-        key = context.getString(R.string.gapi_key);
         credential.setAccessToken(authToken);
         HttpRequestInitializer httpRequestInitializer = new HttpRequestInitializer() {
             @Override
             public void initialize(HttpRequest request) throws IOException {
                 credential.initialize(request);
-                request.setReadTimeout(0); // infinite
+                request.getHeaders().setAcceptEncoding("gzip"); //$NON-NLS-1$
+                request.setConnectTimeout(requestPolicy.getConnectTimeout());
+                request.setReadTimeout(requestPolicy.getReadTimeout());
             }
         };
-        service = new Tasks.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(), httpRequestInitializer)
+        service = new Tasks.Builder(transport, new GsonFactory(), httpRequestInitializer)
+                .setRootUrl(rootUrl)
                 .setApplicationName("Tasks")
                 .build();
     }
 
-    //If we get a 401 or 403, try revalidating the auth token before bailing
-    private synchronized void handleException(IOException e) throws IOException {
-        if (e instanceof HttpResponseException) {
-            HttpResponseException h = (HttpResponseException) e;
-            int statusCode = h.getStatusCode();
-            if (statusCode == 401 || statusCode == 403) {
-                token = gtasksTokenValidator.validateAuthToken(context, token);
-                if (token != null) {
-                    credential.setAccessToken(token);
-                }
-            } else if (statusCode == 400 || statusCode == 500) {
-                throw h;
-            } else if (statusCode == 404) {
-                throw new HttpNotFoundException(h);
-            } else {
-                log.error(statusCode + ": " + h.getStatusMessage(), e);
+    /**
+     * If we get a 401 or 403, try revalidating the auth token before bailing.
+     * Other failures are retried if the request policy allows it.
+     *
+     * @return milliseconds to wait before retrying
+     */
+    private long handleException(IOException e, int attempt) throws IOException {
+        int statusCode = getStatusCode(e);
+        boolean quotaExceeded = isQuotaExceeded(e);
+        if (statusCode == 401 || (statusCode == 403 && !quotaExceeded)) {
+            if (attempt > 0) {
+                throw e;
             }
-            // 503 errors are generally either 1) quota limit reached or 2) problems on Google's end
-        } else {
-            log.error(e.getMessage(), e);
+            revalidateToken();
+            return 0;
+        } else if (statusCode == 404) {
+            throw new HttpNotFoundException((HttpResponseException) e);
+        }
+        long delay = requestPolicy.onFailure(attempt, statusCode, quotaExceeded);
+        if (delay < 0) {
+            throw e;
+        }
+        log.error("{}, retrying in {}ms", statusCode, delay, e);
+        return delay;
+    }
+
+    private synchronized void revalidateToken() {
+        telemetry.recordRevalidation();
+        token = gtasksTokenValidator.validateAuthToken(context, token);
+        if (token != null) {
+            credential.setAccessToken(token);
         }
     }
 
@@ -99,87 +139,141 @@ public class GtasksInvoker {
     }
 
     public TaskLists allGtaskLists() throws IOException {
-        return execute(service
+        return execute("allGtaskLists", null, service
                 .tasklists()
-                .list());
+                .list()
+                .setFields(LIST_FIELDS));
     }
 
     public TaskList getGtaskList(String id) throws IOException {
-        return execute(service
+        return execute("getGtaskList", id, service
                 .tasklists()
-                .get(id));
+                .get(id)
+                .setFields("id"));
     }
 
     public com.google.api.services.tasks.model.Tasks getAllGtasksFromListId(String listId, boolean includeDeleted, boolean includeHidden, long lastSyncDate) throws IOException {
-        return execute(service
+        return execute("getAllGtasksFromListId", listId, service
                 .tasks()
                 .list(listId)
                 .setShowDeleted(includeDeleted)
                 .setShowHidden(includeHidden)
-                .setUpdatedMin(GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339()));
+                .setUpdatedMin(GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339())
+                .setFields(TASK_FIELDS));
     }
 
     public Task createGtask(String listId, Task task, String parent, String priorSiblingId) throws IOException {
-        return execute(service
+        return execute("createGtask", listId, service
                 .tasks()
                 .insert(listId, task)
                 .setParent(parent)
-                .setPrevious(priorSiblingId));
+                .setPrevious(priorSiblingId)
+                .setFields("id"));
     }
 
-    public void updateGtask(String listId, Task task) throws IOException {
-        execute(service
+    /**
+     * Update only the fields set on task. Fields set to {@link com.google.api.client.util.Data#nullOf}
+     * are cleared
+     */
+    public void patchGtask(String listId, Task task) throws IOException {
+        execute("patchGtask", listId, service
                 .tasks()
-                .update(listId, task.getId(), task));
+                .patch(listId, task.getId(), task)
+                .setFields("id"));
     }
 
     public Task moveGtask(String listId, String taskId, String parentId, String previousId) throws IOException {
-        return execute(service
+        return execute("moveGtask", listId, service
                 .tasks()
                 .move(listId, taskId)
                 .setParent(parentId)
-                .setPrevious(previousId));
+                .setPrevious(previousId)
+                .setFields("id,parent,position"));
     }
 
     public void deleteGtask(String listId, String taskId) throws IOException {
-        execute(service
+        execute("deleteGtask", listId, service
                 .tasks()
                 .delete(listId, taskId));
     }
 
-    private <T> T execute(TasksRequest<T> request) throws IOException {
-        String caller = getCaller();
-        log.debug("{} request: {}", caller, request);
-        T response;
+    private <T> T execute(String operation, String listId, TasksRequest<T> request) throws IOException {
+        log.debug("{} request: {}", operation, request);
+        long start = System.nanoTime();
+        int retries = 0;
+        HttpResponse httpResponse;
         try {
-            response = request
-                    .setKey(key)
-                    .execute();
+            while (true) {
+                requestPolicy.beforeRequest();
+                try {
+                    httpResponse = request
+                            .setKey(key)
+                            .executeUnparsed();
+                    requestPolicy.onSuccess();
+                    break;
+                } catch (IOException e) {
+                    sleep(handleException(e, retries));
+                    retries++;
+                }
+            }
         } catch (IOException e) {
-            handleException(e);
-            response = request
-                    .setKey(key)
-                    .execute();
+            telemetry.recordCall(operation, listId, getStatusCode(e), -1, System.nanoTime() - start, retries);
+            throw e;
         }
-        log.debug("{} response: {}", caller, prettyPrint(response));
+        Long contentLength = httpResponse.getHeaders().getContentLength();
+        T response = httpResponse.parseAs(request.getResponseClass());
+        telemetry.recordCall(operation, listId, httpResponse.getStatusCode(),
+                contentLength == null ? -1 : contentLength, System.nanoTime() - start, retries);
+        log.debug("{} response: {}", operation, prettyPrint(response));
         return response;
     }
 
-    private <T> Object prettyPrint(T object) throws IOException {
-        if (log.isDebugEnabled() && object instanceof GenericJson) {
-            return ((GenericJson) object).toPrettyString();
+    private static int getStatusCode(IOException e) {
+        if (e instanceof HttpResponseException) {
+            return ((HttpResponseException) e).getStatusCode();
+        } else if (e instanceof HttpNotFoundException) {
+            return 404;
+        } else if (e instanceof SyncPausedException) {
+            return SyncTelemetry.STATUS_PAUSED;
         }
-        return object;
+        return SyncTelemetry.STATUS_IO_ERROR;
     }
 
-    private String getCaller() {
-        if (log.isDebugEnabled()) {
-            try {
-                return Thread.currentThread().getStackTrace()[4].getMethodName();
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
+    private static boolean isQuotaExceeded(IOException e) {
+        if (!(e instanceof HttpResponseException)) {
+            return false;
+        }
+        HttpResponseException h = (HttpResponseException) e;
+        if (h.getStatusCode() == 429) {
+            return true;
+        }
+        String content = h.getContent();
+        if (content != null) {
+            for (String reason : QUOTA_ERRORS) {
+                if (content.contains(reason)) {
+                    return true;
+                }
             }
         }
-        return "";
+        return false;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    private <T> Object prettyPrint(T object) throws IOException {
+        if (log.isDebugEnabled() && object instanceof GenericJson) {
+            return ((GenericJson) object).toPrettyString();
+        }
+        return object;
     }
 }
@@ -0,0 +1,108 @@
+package com.todoroo.astrid.gtasks.api;
+
+import com.todoroo.andlib.utility.DateUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Default {@link RequestPolicy}, shared by all invokers.
+ * <p>
+ * Requests are limited by a token bucket. Network errors, 429, 5xx and
+ * quota errors are retried with exponential backoff and full jitter. After
+ * {@link #BREAKER_THRESHOLD} consecutive quota errors requests are paused,
+ * for twice as long each time the pause is triggered again before a
+ * request succeeds.
+ */
+@Singleton
+public class GtasksRequestPolicy implements RequestPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(GtasksRequestPolicy.class);
+
+    static final int BREAKER_THRESHOLD = 5;
+
+    private static final double REQUESTS_PER_SECOND = 5;
+    private static final int BURST = 10;
+    private static final long BASE_DELAY = 1000L;
+    private static final long MAX_DELAY = 32000L;
+    private static final int MAX_RETRIES = 3;
+    private static final long BREAKER_COOLDOWN = DateUtilities.ONE_MINUTE;
+    private static final long MAX_BREAKER_COOLDOWN = 30 * DateUtilities.ONE_MINUTE;
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(20);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+
+    private final Random random = new Random();
+    private final TokenBucket bucket;
+    private final long baseDelay;
+    private final long breakerCooldown;
+    private int quotaErrors;
+    private int trips;
+    private long pausedUntil;
+
+    @Inject
+    public GtasksRequestPolicy() {
+        this(REQUESTS_PER_SECOND, BURST, BASE_DELAY, BREAKER_COOLDOWN);
+    }
+
+    GtasksRequestPolicy(double requestsPerSecond, int burst, long baseDelay, long breakerCooldown) {
+        bucket = new TokenBucket(requestsPerSecond, burst);
+        this.baseDelay = baseDelay;
+        this.breakerCooldown = breakerCooldown;
+    }
+
+    @Override
+    public void beforeRequest() throws IOException {
+        synchronized (this) {
+            if (pausedUntil > DateUtilities.now()) {
+                throw new SyncPausedException(pausedUntil);
+            }
+        }
+        bucket.acquire();
+    }
+
+    @Override
+    public synchronized void onSuccess() {
+        quotaErrors = 0;
+        trips = 0;
+    }
+
+    @Override
+    public long onFailure(int attempt, int statusCode, boolean quotaExceeded) {
+        synchronized (this) {
+            if (quotaExceeded && ++quotaErrors >= BREAKER_THRESHOLD) {
+                long cooldown = Math.min(breakerCooldown << Math.min(trips, 10), MAX_BREAKER_COOLDOWN);
+                pausedUntil = DateUtilities.now() + cooldown;
+                quotaErrors = 0;
+                trips++;
+                log.error("Pausing sync for {}ms after repeated quota errors", cooldown);
+                return -1;
+            }
+        }
+        if (attempt >= MAX_RETRIES || !isRetryable(statusCode, quotaExceeded)) {
+            return -1;
+        }
+        long ceiling = Math.min(baseDelay << attempt, MAX_DELAY);
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    @Override
+    public int getConnectTimeout() {
+        return CONNECT_TIMEOUT;
+    }
+
+    @Override
+    public int getReadTimeout() {
+        return READ_TIMEOUT;
+    }
+
+    private static boolean isRetryable(int statusCode, boolean quotaExceeded) {
+        return quotaExceeded || statusCode < 0 || statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,29 @@
+package com.todoroo.astrid.gtasks.api;
+
+import java.io.IOException;
+
+/**
+ * Decides how {@link GtasksInvoker} paces and retries requests
+ */
+public interface RequestPolicy {
+
+    /**
+     * Called before every attempt. May block to limit the request rate.
+     *
+     * @throws SyncPausedException if requests are paused
+     */
+    void beforeRequest() throws IOException;
+
+    void onSuccess();
+
+    /**
+     * @param statusCode HTTP status, or a negative value for network errors
+     * @param quotaExceeded true if the server reported a rate or quota limit
+     * @return milliseconds to wait before retrying, or -1 to give up
+     */
+    long onFailure(int attempt, int statusCode, boolean quotaExceeded);
+
+    int getConnectTimeout();
+
+    int getReadTimeout();
+}
@@ -0,0 +1,13 @@
+package com.todoroo.astrid.gtasks.api;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a request while sync is paused after repeated
+ * quota errors
+ */
+public class SyncPausedException extends IOException {
+    public SyncPausedException(long resumeTime) {
+        super("Sync paused until " + resumeTime);
+    }
+}
@@ -0,0 +1,46 @@
+package com.todoroo.astrid.gtasks.api;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows bursts of up to capacity requests, refilled at a fixed rate
+ */
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final int capacity;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    TokenBucket(double tokensPerSecond, int capacity) {
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        tokens = capacity;
+    }
+
+    /**
+     * Take a token, waiting for one to become available. Waiting callers are
+     * served one at a time.
+     */
+    synchronized void acquire() throws InterruptedIOException {
+        refill();
+        while (tokens < 1) {
+            long wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+            refill();
+        }
+        tokens -= 1;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -17,9 +17,11 @@ import com.google.api.client.googleapis.extensions.android.accounts.GoogleAccoun
 import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.api.GoogleTasksException;
 import com.todoroo.astrid.gtasks.api.GtasksInvoker;
+import com.todoroo.astrid.gtasks.api.RequestPolicy;
 
 import org.tasks.R;
 import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncTelemetry;
 
 import java.io.IOException;
 
@@ -34,11 +36,16 @@ public class GtasksTokenValidator {
 
     private final Context context;
     private final GtasksPreferenceService preferences;
+    private final SyncTelemetry telemetry;
+    private final RequestPolicy requestPolicy;
 
     @Inject
-    public GtasksTokenValidator(@ForApplication Context context, GtasksPreferenceService preferences) {
+    public GtasksTokenValidator(@ForApplication Context context, GtasksPreferenceService preferences, SyncTelemetry telemetry,
+                                RequestPolicy requestPolicy) {
         this.context = context;
         this.preferences = preferences;
+        this.telemetry = telemetry;
+        this.requestPolicy = requestPolicy;
     }
 
     /**
@@ -78,7 +85,7 @@ public class GtasksTokenValidator {
     }
 
     private boolean testToken(String token) {
-        GtasksInvoker testService = new GtasksInvoker(context, this, token);
+        GtasksInvoker testService = new GtasksInvoker(context, this, telemetry, requestPolicy, token);
         try {
             testService.ping();
             return true;
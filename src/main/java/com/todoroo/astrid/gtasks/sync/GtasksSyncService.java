@@ -9,14 +9,24 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.text.TextUtils;
 
-import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
+import com.google.api.client.util.Data;
+import com.google.api.client.util.DateTime;
+import com.todoroo.andlib.data.ModelChange;
 import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Join;
+import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.dao.SyncOutboxDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.SyncFlags;
+import com.todoroo.astrid.data.SyncOutbox;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gtasks.GtasksMetadata;
 import com.todoroo.astrid.gtasks.GtasksMetadataService;
@@ -25,16 +35,20 @@ import com.todoroo.astrid.gtasks.api.GtasksApiUtilities;
 import com.todoroo.astrid.gtasks.api.GtasksInvoker;
 import com.todoroo.astrid.gtasks.api.HttpNotFoundException;
 import com.todoroo.astrid.gtasks.api.MoveRequest;
+import com.todoroo.astrid.gtasks.api.RequestPolicy;
 import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
-import com.todoroo.astrid.service.TaskService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncTelemetry;
 
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -46,153 +60,244 @@ public class GtasksSyncService {
 
     private static final String DEFAULT_LIST = "@default"; //$NON-NLS-1$
 
+    /** time without changes before a task is pushed */
+    private static final long SETTLE_DELAY = 1000L;
+    private static final long MIN_BACKOFF = 5000L;
+    private static final long MAX_BACKOFF = DateUtilities.ONE_HOUR;
+    private static final int BATCH_SIZE = 50;
+
     private Context context;
+    private final Database database;
     private final MetadataDao metadataDao;
     private final GtasksMetadataService gtasksMetadataService;
     private final TaskDao taskDao;
     private final GtasksPreferenceService gtasksPreferenceService;
     private final GtasksTokenValidator gtasksTokenValidator;
     private final GtasksMetadata gtasksMetadataFactory;
-    private final LinkedBlockingQueue<SyncOnSaveOperation> operationQueue = new LinkedBlockingQueue<>();
+    private final SyncTelemetry telemetry;
+    private final SyncOutboxDao syncOutboxDao;
+    private final RequestPolicy requestPolicy;
+    private final Semaphore wakeup = new Semaphore(0);
+    private final AtomicBoolean pushing = new AtomicBoolean();
 
     @Inject
-    public GtasksSyncService(@ForApplication Context context, MetadataDao metadataDao, GtasksMetadataService gtasksMetadataService,
+    public GtasksSyncService(@ForApplication Context context, Database database, MetadataDao metadataDao, GtasksMetadataService gtasksMetadataService,
                              TaskDao taskDao, GtasksPreferenceService gtasksPreferenceService,
-                             GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadataFactory) {
+                             GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadataFactory,
+                             SyncTelemetry telemetry, SyncOutboxDao syncOutboxDao,
+                             RequestPolicy requestPolicy) {
         this.context = context;
+        this.database = database;
         this.metadataDao = metadataDao;
         this.gtasksMetadataService = gtasksMetadataService;
         this.taskDao = taskDao;
         this.gtasksPreferenceService = gtasksPreferenceService;
         this.gtasksTokenValidator = gtasksTokenValidator;
         this.gtasksMetadataFactory = gtasksMetadataFactory;
+        this.telemetry = telemetry;
+        this.syncOutboxDao = syncOutboxDao;
+        this.requestPolicy = requestPolicy;
     }
 
-    private abstract class SyncOnSaveOperation {
-        abstract public void op(GtasksInvoker invoker) throws IOException;
-    }
-
-    private class TaskPushOp extends SyncOnSaveOperation {
-        protected Task model;
-        protected long creationDate = DateUtilities.now();
-
-        public TaskPushOp(Task model) {
-            this.model = model;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            if(DateUtilities.now() - creationDate < 1000) {
-                AndroidUtilities.sleepDeep(1000 - (DateUtilities.now() - creationDate));
-            }
-            pushTaskOnSave(model, model.getMergedValues(), invoker);
-        }
-    }
-
-    private class MoveOp extends SyncOnSaveOperation {
-        protected Metadata metadata;
-
-        public MoveOp(Metadata metadata) {
-            this.metadata = metadata;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            pushMetadataOnSave(metadata, invoker);
-        }
-    }
-
-    private class NotifyOp extends SyncOnSaveOperation {
-        private final Semaphore sema;
-
-        public NotifyOp(Semaphore sema) {
-            this.sema = sema;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            sema.release();
-        }
-    }
-
+    /**
+     * Queue changes to synced task properties in the outbox. Called when the
+     * application is created, so that changes made without opening an
+     * activity, such as from widgets, notifications or the content
+     * providers, are queued too. They are pushed once {@link #startPushing()}
+     * is called, or by the next sync.
+     */
     public void initialize() {
-        new OperationPushThread(operationQueue).start();
-
-        taskDao.addListener(new ModelUpdateListener<Task>() {
+        database.getModelChanges().captureFlag(SyncFlags.GTASKS_SUPPRESS_SYNC);
+        database.getModelChanges().subscribe(Task.TABLE, ModelChange.columns(TASK_PROPERTIES), new ModelChange.Listener() {
             @Override
-            public void onModelUpdated(final Task model) {
-                if(model.checkAndClearTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC)) {
+            public void onModelChanged(ModelChange change) {
+                if(change.hasFlag(SyncFlags.GTASKS_SUPPRESS_SYNC) || !checkForToken()) {
                     return;
                 }
-                if (gtasksPreferenceService.isOngoing() && !model.checkTransitory(TaskService.TRANS_REPEAT_COMPLETE)) { //Don't try and sync changes that occur during a normal sync
-                    return;
-                }
-                final ContentValues setValues = model.getSetValues();
-                if(setValues == null || !checkForToken()) {
-                    return;
-                }
-                if (!checkValuesForProperties(setValues, TASK_PROPERTIES)) { //None of the properties we sync were updated
+                int fields = getModifiedFields(change);
+                if (fields == 0) { //None of the properties we sync were updated
                     return;
                 }
 
-                Task toPush = taskDao.fetch(model.getId(), TASK_PROPERTIES);
-                operationQueue.offer(new TaskPushOp(toPush));
+                syncOutboxDao.enqueue(change.getId(), fields, false);
+                wakeup.release();
             }
         });
     }
 
-    private class OperationPushThread extends Thread {
-        private final LinkedBlockingQueue<SyncOnSaveOperation> queue;
-
-        public OperationPushThread(LinkedBlockingQueue<SyncOnSaveOperation> queue) {
-            this.queue = queue;
+    /**
+     * Start pushing outbox entries, if not already started
+     */
+    public void startPushing() {
+        if (pushing.compareAndSet(false, true)) {
+            new OutboxPushThread().start();
         }
+    }
 
+    /**
+     * Pushes outbox entries once they have settled, sleeping until the next
+     * entry is ready or until woken by a new change
+     */
+    private class OutboxPushThread extends Thread {
         @Override
         public void run() {
             while (true) {
-                SyncOnSaveOperation op;
+                long next;
                 try {
-                    op = queue.take();
-                } catch (InterruptedException e) {
+                    next = pushReady();
+                } catch (Exception e) {
                     log.error(e.getMessage(), e);
-                    continue;
+                    next = DateUtilities.now() + MIN_BACKOFF;
                 }
                 try {
-                    GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, gtasksPreferenceService.getToken());
-                    op.op(invoker);
-                } catch (IOException e) {
+                    if (next == 0) {
+                        wakeup.acquire();
+                    } else {
+                        wakeup.tryAcquire(Math.max(0, next - DateUtilities.now()), TimeUnit.MILLISECONDS);
+                    }
+                    wakeup.drainPermits();
+                } catch (InterruptedException e) {
                     log.error(e.getMessage(), e);
                 }
             }
         }
     }
 
-    public void waitUntilEmpty() {
-        Semaphore sema = new Semaphore(0);
-        operationQueue.offer(new NotifyOp(sema));
+    /**
+     * @return time at which to try again, or 0 if the outbox is empty
+     */
+    private long pushReady() {
+        if (!checkForToken()) {
+            return 0;
+        }
+        long now = DateUtilities.now();
+        if (gtasksPreferenceService.isOngoing()) { // a sync in progress will flush the outbox when it finishes
+            return now + SETTLE_DELAY;
+        }
+        List<SyncOutbox> entries = syncOutboxDao.getReady(now, now - SETTLE_DELAY, BATCH_SIZE);
+        if (!entries.isEmpty()) {
+            GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, telemetry, requestPolicy, gtasksPreferenceService.getToken());
+            push(entries, invoker);
+        }
+        return syncOutboxDao.getNextReadyTime(SETTLE_DELAY);
+    }
+
+    /**
+     * Push all outbox entries, including those that are backing off
+     */
+    public synchronized void flushOutbox(GtasksInvoker invoker) {
+        push(syncOutboxDao.getAll(), invoker);
+    }
+
+    /**
+     * Queue tasks that have never been pushed or were modified since they were
+     * last pushed. Changes are only queued while logged in, so this is needed
+     * once after an account is linked
+     */
+    public void enqueueUnsynced() {
+        List<Long> taskIds = new ArrayList<>();
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(Task.ID)
+                .join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK))))
+                .where(Criterion.or(Task.MODIFICATION_DATE.gt(GtasksMetadata.LAST_SYNC), Metadata.KEY.isNull())));
         try {
-            sema.acquire();
-        } catch (InterruptedException e) {
-            // Ignored
-            log.error(e.getMessage(), e);
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                taskIds.add(cursor.get(Task.ID));
+            }
+        } finally {
+            cursor.close();
+        }
+        syncOutboxDao.enqueue(taskIds, ALL_FIELDS);
+    }
+
+    public void clearOutbox() {
+        syncOutboxDao.clear();
+    }
+
+    private synchronized void push(List<SyncOutbox> entries, GtasksInvoker invoker) {
+        for (SyncOutbox entry : entries) {
+            try {
+                if (push(entry, invoker)) {
+                    syncOutboxDao.remove(entry);
+                } else {
+                    syncOutboxDao.retryAt(entry, DateUtilities.now() + getBackoff(entry.getAttempts()));
+                }
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+                syncOutboxDao.retryAt(entry, DateUtilities.now() + getBackoff(entry.getAttempts()));
+            }
+        }
+    }
+
+    /**
+     * @return false if the entry has to stay in the outbox
+     */
+    private boolean push(SyncOutbox entry, GtasksInvoker invoker) throws IOException {
+        Task task = taskDao.fetch(entry.getTask(), TASK_PROPERTIES);
+        if (task == null) {
+            return true;
+        }
+        int fields = entry.getFields();
+        if (fields != 0 && !pushTaskOnSave(task, getValues(task, fields), invoker)) {
+            return false;
         }
+        if (entry.isMove()) {
+            Metadata metadata = gtasksMetadataService.getTaskMetadata(task.getId());
+            if (metadata != null) {
+                pushMetadataOnSave(metadata, invoker);
+            }
+        }
+        return true;
+    }
+
+    private static long getBackoff(int attempts) {
+        return Math.min(MIN_BACKOFF << Math.min(attempts, 10), MAX_BACKOFF);
     }
 
     private static final Property<?>[] TASK_PROPERTIES = { Task.ID, Task.TITLE,
             Task.NOTES, Task.DUE_DATE, Task.COMPLETION_DATE, Task.DELETION_DATE };
 
+    private static final int ALL_FIELDS = (1 << TASK_PROPERTIES.length) - 1;
+
+    /**
+     * @return bit mask of the given synced properties
+     */
+    static int getFields(Property<?>... properties) {
+        int fields = 0;
+        for (int i = 0; i < TASK_PROPERTIES.length; i++) {
+            for (Property<?> property : properties) {
+                if (property == TASK_PROPERTIES[i]) {
+                    fields |= 1 << i;
+                }
+            }
+        }
+        return fields;
+    }
+
     /**
-     * Checks to see if any of the values changed are among the properties we sync
-     * @return false if none of the properties we sync were changed, true otherwise
+     * @return bit mask of the synced properties in the change, indexed by
+     * their position in {@link #TASK_PROPERTIES}
      */
-    private boolean checkValuesForProperties(ContentValues values, Property<?>[] properties) {
-        for (Property<?> property : properties) {
-            if (property != Task.ID && values.containsKey(property.name)) {
-                return true;
+    private static int getModifiedFields(ModelChange change) {
+        int fields = 0;
+        for (int i = 0; i < TASK_PROPERTIES.length; i++) {
+            Property<?> property = TASK_PROPERTIES[i];
+            if (property != Task.ID && change.isChanged(property)) {
+                fields |= 1 << i;
             }
         }
-        return false;
+        return fields;
+    }
+
+    private static ContentValues getValues(Task task, int fields) {
+        ContentValues merged = task.getMergedValues();
+        ContentValues values = new ContentValues();
+        for (int i = 0; i < TASK_PROPERTIES.length; i++) {
+            String name = TASK_PROPERTIES[i].name;
+            if ((fields & (1 << i)) != 0 && merged.containsKey(name)) {
+                AndroidUtilities.putInto(values, name, merged.get(name));
+            }
+        }
+        return values;
     }
 
 
@@ -215,13 +320,17 @@ public class GtasksSyncService {
             return;
         }
 
-        operationQueue.offer(new MoveOp(metadata));
+        syncOutboxDao.enqueue(metadata.getTask(), 0, true);
+        wakeup.release();
     }
 
     /**
      * Synchronize with server when data changes
+     *
+     * @return false if the task is new but was not created because it is
+     * untitled or deleted, or the server did not return it
      */
-    public void pushTaskOnSave(Task task, ContentValues values, GtasksInvoker invoker) throws IOException {
+    public boolean pushTaskOnSave(Task task, ContentValues values, GtasksInvoker invoker) throws IOException {
         Metadata gtasksMetadata = gtasksMetadataService.getTaskMetadata(task.getId());
         com.google.api.services.tasks.model.Task remoteModel;
         boolean newlyCreated = false;
@@ -249,6 +358,8 @@ public class GtasksSyncService {
 
             remoteModel = new com.google.api.services.tasks.model.Task();
             newlyCreated = true;
+            // the server has none of the task yet, so send all of it and not only the changes
+            values = getValues(task, ALL_FIELDS);
         } else { //update case
             remoteId = gtasksMetadata.getValue(GtasksMetadata.ID);
             listId = gtasksMetadata.getValue(GtasksMetadata.LIST_ID);
@@ -261,7 +372,7 @@ public class GtasksSyncService {
         //deleted tasks
         if (newlyCreated &&
                 (!values.containsKey(Task.TITLE.name) || TextUtils.isEmpty(task.getTitle()) || task.getDeletionDate() > 0)) {
-            return;
+            return false;
         }
 
         //Update the remote model's changed properties
@@ -275,26 +386,30 @@ public class GtasksSyncService {
         if (values.containsKey(Task.NOTES.name)) {
             remoteModel.setNotes(task.getNotes());
         }
-        if (values.containsKey(Task.DUE_DATE.name) && task.hasDueDate()) {
-            remoteModel.setDue(GtasksApiUtilities.unixTimeToGtasksDueDate(task.getDueDate()));
+        if (values.containsKey(Task.DUE_DATE.name)) {
+            if (task.hasDueDate()) {
+                remoteModel.setDue(GtasksApiUtilities.unixTimeToGtasksDueDate(task.getDueDate()));
+            } else if (!newlyCreated) {
+                remoteModel.setDue(Data.nullOf(DateTime.class));
+            }
         }
         if (values.containsKey(Task.COMPLETION_DATE.name)) {
             if (task.isCompleted()) {
                 remoteModel.setCompleted(GtasksApiUtilities.unixTimeToGtasksCompletionTime(task.getCompletionDate()));
                 remoteModel.setStatus("completed"); //$NON-NLS-1$
             } else {
-                remoteModel.setCompleted(null);
+                remoteModel.setCompleted(Data.nullOf(DateTime.class));
                 remoteModel.setStatus("needsAction"); //$NON-NLS-1$
             }
         }
 
         if (!newlyCreated) {
             try {
-                invoker.updateGtask(listId, remoteModel);
+                invoker.patchGtask(listId, remoteModel);
             } catch(HttpNotFoundException e) {
-                log.error("Received 404 response, deleting {}", gtasksMetadata);
+                log.error("Received 404 response, recreating {}", gtasksMetadata);
                 metadataDao.delete(gtasksMetadata.getId());
-                return;
+                return pushTaskOnSave(task, values, invoker);
             }
         } else {
             String parent = gtasksMetadataService.getRemoteParentId(gtasksMetadata);
@@ -307,7 +422,7 @@ public class GtasksSyncService {
                 gtasksMetadata.setValue(GtasksMetadata.ID, created.getId());
                 gtasksMetadata.setValue(GtasksMetadata.LIST_ID, listId);
             } else {
-                return;
+                return false;
             }
         }
 
@@ -316,11 +431,10 @@ public class GtasksSyncService {
         metadataDao.persist(gtasksMetadata);
         task.putTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC, true);
         taskDao.saveExistingWithSqlConstraintCheck(task);
+        return true;
     }
 
     public void pushMetadataOnSave(Metadata model, GtasksInvoker invoker) throws IOException {
-        AndroidUtilities.sleepDeep(1000L);
-
         String taskId = model.getValue(GtasksMetadata.ID);
         String listId = model.getValue(GtasksMetadata.LIST_ID);
         String parent = gtasksMetadataService.getRemoteParentId(model);
@@ -30,6 +30,7 @@ import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.GtasksTaskListUpdater;
 import com.todoroo.astrid.gtasks.api.GoogleTasksException;
 import com.todoroo.astrid.gtasks.api.GtasksInvoker;
+import com.todoroo.astrid.gtasks.api.RequestPolicy;
 import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.sync.SyncResultCallback;
@@ -40,6 +41,8 @@ import org.tasks.R;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
 import org.tasks.sync.SyncExecutor;
+import org.tasks.sync.SyncTelemetry;
+import org.tasks.sync.SyncTelemetry.Phase;
 
 import java.io.IOException;
 import java.util.Date;
@@ -63,7 +66,8 @@ public class GtasksSyncV2Provider {
 
     private final SyncExceptionHandler handler = new SyncExceptionHandler();
 
-    private void finishSync(SyncResultCallback callback) {
+    private void finishSync(SyncTelemetry.Run run, SyncResultCallback callback) {
+        telemetry.finishRun(run);
         getUtilities().recordSuccessfulSync();
         callback.finished();
     }
@@ -87,12 +91,15 @@ public class GtasksSyncV2Provider {
     private final GtasksTokenValidator gtasksTokenValidator;
     private final GtasksMetadata gtasksMetadataFactory;
     private final SyncExecutor executor;
+    private final SyncTelemetry telemetry;
+    private final RequestPolicy requestPolicy;
 
     @Inject
     public GtasksSyncV2Provider(TaskService taskService, StoreObjectDao storeObjectDao, GtasksPreferenceService gtasksPreferenceService,
                                 GtasksSyncService gtasksSyncService, GtasksListService gtasksListService, GtasksMetadataService gtasksMetadataService,
                                 GtasksTaskListUpdater gtasksTaskListUpdater, @ForApplication Context context, Preferences preferences,
-                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor) {
+                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor,
+                                SyncTelemetry telemetry, RequestPolicy requestPolicy) {
         this.taskService = taskService;
         this.storeObjectDao = storeObjectDao;
         this.gtasksPreferenceService = gtasksPreferenceService;
@@ -105,6 +112,8 @@ public class GtasksSyncV2Provider {
         this.gtasksTokenValidator = gtasksTokenValidator;
         this.gtasksMetadataFactory = gtasksMetadata;
         this.executor = executor;
+        this.telemetry = telemetry;
+        this.requestPolicy = requestPolicy;
     }
 
     private String getName() {
@@ -120,6 +129,8 @@ public class GtasksSyncV2Provider {
         gtasksPreferenceService.setToken(null);
         gtasksPreferenceService.setUserName(null);
         gtasksMetadataService.clearMetadata();
+        gtasksSyncService.clearOutbox();
+        gtasksPreferenceService.setOutboxReconciled(false);
     }
 
     public boolean isActive() {
@@ -131,27 +142,30 @@ public class GtasksSyncV2Provider {
             @Override
             public void run() {
                 callback.started();
+                final SyncTelemetry.Run run = telemetry.startRun();
 
                 try {
                     String authToken = getValidatedAuthToken();
-                    final GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, authToken);
+                    final GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, telemetry, requestPolicy, authToken);
                     TaskLists remoteLists = null;
+                    long start = System.nanoTime();
                     try {
                         remoteLists = invoker.allGtaskLists();
                         gtasksListService.updateLists(remoteLists);
                     } catch (IOException e) {
                         handler.handleException("gtasks-sync=io", e); //$NON-NLS-1$
                     }
+                    run.addPhase(Phase.LIST_FETCH, System.nanoTime() - start);
 
                     if (remoteLists == null) {
-                        finishSync(callback);
+                        finishSync(run, callback);
                         return;
                     }
 
                     List<GtasksList> listsToUpdate = gtasksListService.getListsToUpdate(remoteLists);
 
                     if (listsToUpdate.isEmpty()) {
-                        finishSync(callback);
+                        finishSync(run, callback);
                         return;
                     }
 
@@ -161,30 +175,35 @@ public class GtasksSyncV2Provider {
                         executor.execute(callback, new Runnable() {
                             @Override
                             public void run() {
-                                synchronizeListHelper(list, invoker, handler);
+                                synchronizeListHelper(list, invoker, run, handler);
                                 if (finisher.decrementAndGet() == 0) {
-                                    pushUpdated(invoker);
-                                    finishSync(callback);
+                                    pushOutbox(invoker, run);
+                                    finishSync(run, callback);
                                 }
                             }
                         });
                     }
                 } catch(Exception e) {
                     handler.handleException("gtasks-sync=io", e); //$NON-NLS-1$
+                    telemetry.finishRun(run);
                     callback.finished();
                 }
             }
         });
     }
 
-    private synchronized void pushUpdated(GtasksInvoker invoker) {
-        TodorooCursor<Task> queued = taskService.query(Query.select(Task.PROPERTIES).
-                join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK)))).where(
-                        Criterion.or(Task.MODIFICATION_DATE.gt(GtasksMetadata.LAST_SYNC), Metadata.KEY.isNull())));
-        pushTasks(queued, invoker);
+    private void pushOutbox(GtasksInvoker invoker, SyncTelemetry.Run run) {
+        long start = System.nanoTime();
+        if (!gtasksPreferenceService.isOutboxReconciled()) {
+            gtasksSyncService.enqueueUnsynced();
+            gtasksPreferenceService.setOutboxReconciled(true);
+        }
+        gtasksSyncService.flushOutbox(invoker);
+        run.addPhase(Phase.PUSH, System.nanoTime() - start);
     }
 
-    private synchronized void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker) {
+    private synchronized void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker, SyncTelemetry.Run run) {
+        long start = System.nanoTime();
         try {
             for (queued.moveToFirst(); !queued.isAfterLast(); queued.moveToNext()) {
                 Task task = new Task(queued);
@@ -196,6 +215,7 @@ public class GtasksSyncV2Provider {
             }
         } finally {
             queued.close();
+            run.addPhase(Phase.PUSH, System.nanoTime() - start);
         }
     }
 
@@ -204,13 +224,15 @@ public class GtasksSyncV2Provider {
             @Override
             public void run() {
                 callback.started();
+                SyncTelemetry.Run run = telemetry.startRun();
 
                 try {
                     String authToken = getValidatedAuthToken();
-                    gtasksSyncService.waitUntilEmpty();
-                    final GtasksInvoker service = new GtasksInvoker(context, gtasksTokenValidator, authToken);
-                    synchronizeListHelper(gtasksList, service, null);
+                    final GtasksInvoker service = new GtasksInvoker(context, gtasksTokenValidator, telemetry, requestPolicy, authToken);
+                    gtasksSyncService.flushOutbox(service);
+                    synchronizeListHelper(gtasksList, service, run, null);
                 } finally {
+                    telemetry.finishRun(run);
                     callback.finished();
                 }
             }
@@ -232,7 +254,8 @@ public class GtasksSyncV2Provider {
     }
 
     private synchronized void synchronizeListHelper(GtasksList list, GtasksInvoker invoker,
-            SyncExceptionHandler errorHandler) {
+            SyncTelemetry.Run run, SyncExceptionHandler errorHandler) {
+        long listStart = System.nanoTime();
         String listId = list.getRemoteId();
         long lastSyncDate = list.getLastSync();
 
@@ -248,14 +271,17 @@ public class GtasksSyncV2Provider {
         TodorooCursor<Task> qs = taskService.query(Query.select(Task.PROPERTIES).
                 join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK)))).where(not_pushed_tasks)
         );
-        pushTasks(qs, invoker);
+        pushTasks(qs, invoker, run);
 
         boolean includeDeletedAndHidden = lastSyncDate != 0;
         try {
+            long start = System.nanoTime();
             Tasks taskList = invoker.getAllGtasksFromListId(listId, includeDeletedAndHidden,
                     includeDeletedAndHidden, lastSyncDate + 1000L);
+            run.addPhase(Phase.PULL, System.nanoTime() - start);
             List<com.google.api.services.tasks.model.Task> tasks = taskList.getItems();
             if (tasks != null) {
+                start = System.nanoTime();
                 for (com.google.api.services.tasks.model.Task t : tasks) {
                     GtasksTaskContainer container = new GtasksTaskContainer(t, listId, gtasksMetadataFactory.createEmptyMetadata(AbstractModel.NO_ID));
                     gtasksMetadataService.findLocalMatch(container);
@@ -267,7 +293,11 @@ public class GtasksSyncV2Provider {
                 }
                 list.setLastSync(lastSyncDate);
                 storeObjectDao.persist(list);
+                run.addPhase(Phase.MERGE, System.nanoTime() - start);
+
+                start = System.nanoTime();
                 gtasksTaskListUpdater.correctOrderAndIndentForList(listId);
+                run.addPhase(Phase.ORDER, System.nanoTime() - start);
             }
         } catch (IOException e) {
             if (errorHandler != null) {
@@ -275,6 +305,8 @@ public class GtasksSyncV2Provider {
             } else {
                 log.error(e.getMessage(), e);
             }
+        } finally {
+            run.addList(listId, list.getName(), System.nanoTime() - listStart);
         }
     }
 
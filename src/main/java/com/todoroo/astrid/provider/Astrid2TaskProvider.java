@@ -9,20 +9,21 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.UriMatcher;
 import android.database.Cursor;
-import android.database.MatrixCursor;
 import android.net.Uri;
+import android.text.TextUtils;
 
-import com.google.common.base.Joiner;
-import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskService;
-import com.todoroo.astrid.tags.TagService;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,11 @@ import org.tasks.injection.InjectingContentProvider;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 
@@ -81,12 +87,24 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 
 	private static final String TAG_SEPARATOR = "|";
 
+	// paging parameters
+	public static final String LIMIT = "limit";
+	public static final String OFFSET = "offset";
+
 	@Inject Lazy<TaskService> taskService;
-    @Inject Lazy<TagService> tagService;
+	@Inject Lazy<Database> database;
+
+	private Map<String, String> taskColumns;
+
+	/** matches a column name as a whole word in a selection or sort order */
+	private static final Map<String, Pattern> COLUMN_REFERENCES = new HashMap<>();
 
 	static {
 		URI_MATCHER.addURI(AUTHORITY, "tasks", URI_TASKS);
 		URI_MATCHER.addURI(AUTHORITY, "tags", URI_TAGS);
+		for (String column : TASK_FIELD_LIST) {
+			COLUMN_REFERENCES.put(column, Pattern.compile("\\b" + column + "\\b"));
+		}
 	}
 
 	@Override
@@ -107,6 +125,7 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 	@Override
 	public boolean onCreate() {
 		super.onCreate();
+		taskColumns = buildTaskColumns();
 		return false;
 	}
 
@@ -114,27 +133,38 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 	 * Note: tag id is no longer a real column, so we pass in a UID
 	 * generated from the tag string.
 	 *
-	 * @return two-column cursor: tag id (string) and tag name
+	 * All tags are returned unless a <code>limit</code> query parameter is
+	 * passed in the uri.
+	 *
+	 * @return cursor with the requested columns of tag id (string) and tag name
 	 */
-	public Cursor getTags() {
-
-		TagData[] tags = tagService.get().getGroupedTags(TagService.GROUPED_TAGS_BY_SIZE,
-                Criterion.all);
-
-		MatrixCursor ret = new MatrixCursor(TAGS_FIELD_LIST);
-
-        for (TagData tag : tags) {
-            Object[] values = new Object[2];
-            values[0] = tagNameToLong(tag.getName());
-            values[1] = tag.getName();
+	public Cursor getTags(String[] projection, String selection, String[] selectionArgs, String sortOrder, Uri uri) {
+		if (projection == null) {
+			projection = TAGS_FIELD_LIST;
+		}
+		for (String column : projection) {
+			if (!ID.equals(column) && !NAME.equals(column)) {
+				throw new IllegalArgumentException("Unknown column " + column);
+			}
+		}
 
-            ret.addRow(values);
-        }
+		StringBuilder sql = new StringBuilder("SELECT ")
+				.append(TagData.NAME).append(" AS ").append(NAME)
+				.append(" FROM ").append(Metadata.TABLE)
+				.append(" INNER JOIN ").append(Task.TABLE).append(" ON ").append(Metadata.TASK.eq(Task.ID))
+				.append(" INNER JOIN ").append(TagData.TABLE).append(" ON ").append(TagData.UUID.eq(TaskToTagMetadata.TAG_UUID))
+				.append(" WHERE ").append(MetadataCriteria.withKey(TaskToTagMetadata.KEY));
+		if (!TextUtils.isEmpty(selection)) {
+			sql.append(" AND (").append(selection).append(')');
+		}
+		sql.append(" GROUP BY ").append(TaskToTagMetadata.TAG_NAME)
+				.append(" ORDER BY ").append(TextUtils.isEmpty(sortOrder) ? "COUNT(*) DESC" : sortOrder);
+		appendLimit(sql, uri, -1);
 
-		return ret;
+		return new TagIdCursor(getDatabase().rawQuery(sql.toString(), selectionArgs), projection);
 	}
 
-    private long tagNameToLong(String tag) {
+	static long tagNameToLong(String tag) {
         MessageDigest m;
         try {
             m = MessageDigest.getInstance("MD5");
@@ -158,41 +188,106 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 	 * <li>task id, long
 	 * <li>task tags, string tags separated by |
 	 * </ol>
+	 * Only the requested columns, and those referenced by the selection or
+	 * sort order, are computed. Selection and sort order use the column names
+	 * above. Pass <code>limit</code> and <code>offset</code> query parameters
+	 * in the uri to page through results.
 	 *
 	 * @return cursor as described above
 	 */
-	public Cursor getTasks() {
+	public Cursor getTasks(String[] projection, String selection, String[] selectionArgs, String sortOrder, Uri uri) {
+		if (projection == null) {
+			projection = TASK_FIELD_LIST;
+		}
+
+		Set<String> columns = new LinkedHashSet<>();
+		for (String column : projection) {
+			if (!taskColumns.containsKey(column)) {
+				throw new IllegalArgumentException("Unknown column " + column);
+			}
+			columns.add(column);
+		}
+		for (String column : TASK_FIELD_LIST) {
+			if (references(selection, column) || references(sortOrder, column)) {
+				columns.add(column);
+			}
+		}
+
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (String column : columns) {
+			sql.append(taskColumns.get(column)).append(" AS ").append(column).append(',');
+		}
+		sql.deleteCharAt(sql.length() - 1)
+				.append(" FROM ").append(Task.TABLE)
+				.append(" WHERE ").append(Criterion.and(TaskCriteria.isActive(), TaskCriteria.isVisible()));
+		if (!TextUtils.isEmpty(selection)) {
+			sql.append(" AND (").append(selection).append(')');
+		}
+		sql.append(" ORDER BY ").append(TextUtils.isEmpty(sortOrder) ? SortHelper.defaultTaskOrder() : sortOrder);
+		appendLimit(sql, uri, MAX_NUMBER_OF_TASKS);
 
-		MatrixCursor ret = new MatrixCursor(TASK_FIELD_LIST);
+		return getDatabase().rawQuery(sql.toString(), selectionArgs);
+	}
+
+	private Database getDatabase() {
+		Database db = database.get();
+		db.openForReading();
+		return db;
+	}
+
+	private static boolean references(String clause, String column) {
+		return clause != null && COLUMN_REFERENCES.get(column).matcher(clause).find();
+	}
 
-		TodorooCursor<Task> cursor = taskService.get().query(Query.select(Task.ID, Task.TITLE,
-                Task.IMPORTANCE, Task.DUE_DATE).where(Criterion.and(TaskCriteria.isActive(),
-                TaskCriteria.isVisible())).
-                orderBy(SortHelper.defaultTaskOrder()).limit(MAX_NUMBER_OF_TASKS));
+	/**
+	 * @param defaultLimit limit used when the uri has none, or -1 for no limit
+	 */
+	private static void appendLimit(StringBuilder sql, Uri uri, int defaultLimit) {
+		int limit = parseInt(uri.getQueryParameter(LIMIT), defaultLimit);
+		int offset = parseInt(uri.getQueryParameter(OFFSET), 0);
+		if (limit >= 0 || offset > 0) {
+			sql.append(" LIMIT ").append(limit);
+		}
+		if (offset > 0) {
+			sql.append(" OFFSET ").append(offset);
+		}
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		if (TextUtils.isEmpty(value)) {
+			return defaultValue;
+		}
 		try {
-    		int[] importanceColors = Task.getImportanceColors(getContext().getResources());
-    		for (int i = 0; i < cursor.getCount(); i++) {
-    			cursor.moveToNext();
-                Task task = new Task(cursor);
-
-                String taskTags = getTagsAsString(task.getId(), TAG_SEPARATOR);
-
-    			Object[] values = new Object[7];
-    			values[0] = task.getTitle();
-    			values[1] = importanceColors[task.getImportance()];
-    			values[2] = task.getDueDate();
-    			values[3] = task.getDueDate();
-    			values[4] = task.getImportance();
-    			values[5] = task.getId();
-    			values[6] = taskTags;
-
-    			ret.addRow(values);
-    		}
-		} finally {
-		    cursor.close();
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid paging parameter " + value, e);
 		}
+	}
 
-		return ret;
+	/**
+	 * Map public column names to the sql used to compute them
+	 */
+	private Map<String, String> buildTaskColumns() {
+		Map<String, String> columns = new HashMap<>();
+		columns.put(NAME, Task.TITLE.toString());
+
+		int[] importanceColors = Task.getImportanceColors(getContext().getResources());
+		StringBuilder color = new StringBuilder("(CASE ").append(Task.IMPORTANCE);
+		for (int i = 0; i < importanceColors.length; i++) {
+			color.append(" WHEN ").append(i).append(" THEN ").append(importanceColors[i]);
+		}
+		color.append(" END)");
+		columns.put(IMPORTANCE_COLOR, color.toString());
+
+		columns.put(PREFERRED_DUE_DATE, Task.DUE_DATE.toString());
+		columns.put(DEFINITE_DUE_DATE, Task.DUE_DATE.toString());
+		columns.put(IMPORTANCE, Task.IMPORTANCE.toString());
+		columns.put(IDENTIFIER, Task.ID.toString());
+		columns.put(TAGS_ID, "(SELECT GROUP_CONCAT(" + TaskToTagMetadata.TAG_NAME.name + ", '" + TAG_SEPARATOR + "') FROM " +
+				"(SELECT " + TaskToTagMetadata.TAG_NAME + " FROM " + Metadata.TABLE + " WHERE " +
+				Criterion.and(Metadata.TASK.eq(Task.ID), MetadataCriteria.withKey(TaskToTagMetadata.KEY), Metadata.DELETION_DATE.eq(0)) +
+				" ORDER BY " + Functions.upper(TaskToTagMetadata.TAG_NAME) + "))");
+		return columns;
 	}
 
 	@Override
@@ -201,17 +296,18 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 		switch (URI_MATCHER.match(uri)) {
 
 		case URI_TASKS:
-			cursor = getTasks();
+			cursor = getTasks(projection, selection, selectionArgs, sortOrder, uri);
 			break;
 
 		case URI_TAGS:
-			cursor = getTags();
+			cursor = getTags(projection, selection, selectionArgs, sortOrder, uri);
 			break;
 
 		default:
 			throw new IllegalStateException("Unrecognized URI:" + uri);
 		}
 
+		cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
 		return cursor;
 	}
 
@@ -264,12 +360,4 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
             log.error(e.getMessage(), e);
 		}
 	}
-
-    /**
-     * Return tags as a list of strings separated by given separator
-     * @return empty string if no tags, otherwise string
-     */
-    private String getTagsAsString(long taskId, String separator) {
-        return Joiner.on(separator).join(tagService.get().getTagNames(taskId));
-    }
 }
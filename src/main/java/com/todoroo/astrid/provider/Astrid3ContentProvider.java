@@ -5,10 +5,13 @@
  */
 package com.todoroo.astrid.provider;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.SQLException;
@@ -29,7 +32,9 @@ import com.todoroo.astrid.data.UserActivity;
 import org.tasks.BuildConfig;
 import org.tasks.injection.InjectingContentProvider;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -58,6 +63,9 @@ import dagger.Lazy;
  * <li>/groupby/title - query with SQL "group by" (query)
  * </ul>
  * <p>
+ * {@link #bulkInsert} and {@link #applyBatch} run inside a single database
+ * transaction and send one change notification per URI when it commits.
+ * <p>
  * If you are writing a third-party application to access this data, you may
  * also consider using one of the Api DAO objects like TaskApiDao.
  *
@@ -84,6 +92,9 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
     private boolean open;
     @Inject Lazy<Database> database;
 
+    /** uris changed by the batch running on the current thread, if any */
+    private final ThreadLocal<Set<Uri>> batchNotifications = new ThreadLocal<>();
+
     static {
         uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
@@ -135,11 +146,6 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
             return dao.createNew(model);
         }
 
-        /** updates from given model */
-        public void update() {
-            dao.saveExisting(model);
-        }
-
     }
 
     private UriHelper<?> generateHelper(Uri uri, boolean populateModel) {
@@ -223,7 +229,9 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
             throw new IllegalArgumentException("Unknown URI " + uri + " (" + uriMatcher.match(uri) + ")");
         }
 
-        return getDatabase().delete(helper.dao.getTable().name, selection, selectionArgs);
+        int count = getDatabase().delete(helper.dao.getTable().name, selection, selectionArgs);
+        notifyChange(uri);
+        return count;
     }
 
     /* ======================================================================
@@ -255,7 +263,7 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
             }
 
             Uri newUri = ContentUris.withAppendedId(uri, helper.model.getId());
-            getContext().getContentResolver().notifyChange(newUri, null);
+            notifyChange(newUri);
             return newUri;
         }
 
@@ -301,23 +309,26 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
             throw new IllegalArgumentException("Unknown URI " + uri + " (" + uriMatcher.match(uri) + ")");
         }
 
-        Cursor cursor = query(uri, new String[] { AbstractModel.ID_PROPERTY.name },
-                selection, selectionArgs, null);
-        try {
-            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                long id = cursor.getLong(0);
-                helper.model.mergeWith(values);
-                readTransitoriesFromModelContentValues(helper.model);
-                helper.model.setId(id);
-                helper.update();
-                helper.model.clear();
+        // transitories are only meaningful to model listeners, which
+        // provider daos don't have, so the update can be applied as a set
+        helper.model.mergeWith(values);
+        readTransitoriesFromModelContentValues(helper.model);
+        ContentValues setValues = helper.model.getSetValues();
+        int count;
+        if (setValues.size() == 0) {
+            // nothing to write, but clients still get the number of rows matched
+            Cursor cursor = query(uri, new String[] { AbstractModel.ID_PROPERTY.name },
+                    selection, selectionArgs, null);
+            try {
+                count = cursor.getCount();
+            } finally {
+                cursor.close();
             }
-
-            getContext().getContentResolver().notifyChange(uri, null);
-            return cursor.getCount();
-        } finally {
-            cursor.close();
+        } else {
+            count = getDatabase().update(helper.dao.getTable().name, setValues, selection, selectionArgs);
         }
+        notifyChange(uri);
+        return count;
     }
 
     private void readTransitoriesFromModelContentValues(AbstractModel model) {
@@ -341,6 +352,80 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
         }
     }
 
+    /* ======================================================================
+     * ============================================================ batch ===
+     * ====================================================================== */
+
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        if (uriMatcher.match(uri) != URI_DIR) {
+            throw new IllegalArgumentException("Only the / URI is valid"
+                    + " for insertion.");
+        }
+
+        UriHelper<?> helper = generateHelper(uri, true);
+        Database db = getDatabase();
+        db.beginTransaction();
+        try {
+            for (ContentValues value : values) {
+                helper.model.clear();
+                helper.model.mergeWith(value);
+                readTransitoriesFromModelContentValues(helper.model);
+                if (!helper.create()) {
+                    throw new SQLException("Could not insert row into database (constraint failed?)");
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        getContext().getContentResolver().notifyChange(uri, null);
+        return values.length;
+    }
+
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        Set<Uri> changed = new LinkedHashSet<>();
+        Database db = getDatabase();
+        batchNotifications.set(changed);
+        db.beginTransaction();
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+            return results;
+        } finally {
+            db.endTransaction();
+            batchNotifications.remove();
+            ContentResolver cr = getContext().getContentResolver();
+            for (Uri uri : changed) {
+                cr.notifyChange(uri, null);
+            }
+        }
+    }
+
+    /**
+     * Notify observers of a change, deferring to the end of the batch when
+     * called from {@link #applyBatch}
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> pending = batchNotifications.get();
+        if (pending != null) {
+            pending.add(baseUri(uri));
+        } else {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    private static Uri baseUri(Uri uri) {
+        for (Uri base : new Uri[] { Task.CONTENT_URI, Metadata.CONTENT_URI, StoreObject.CONTENT_URI, UserActivity.CONTENT_URI }) {
+            if (uri.toString().startsWith(base.toString())) {
+                return base;
+            }
+        }
+        return uri;
+    }
+
     /* ======================================================================
      * ============================================================ query ===
      * ====================================================================== */
@@ -376,7 +461,8 @@ public class Astrid3ContentProvider extends InjectingContentProvider {
             throw new IllegalArgumentException("Unknown URI " + uri + " (" + uriMatcher.match(uri) + ")");
         }
 
-        Cursor cursor = builder.query(getDatabase().getDatabase(), projection, selection, selectionArgs, groupBy, null, sortOrder);
+        String sql = builder.buildQuery(projection, selection, null, groupBy, null, sortOrder, null);
+        Cursor cursor = getDatabase().rawQuery(sql, selectionArgs);
         cursor.setNotificationUri(getContext().getContentResolver(), uri);
         return cursor;
     }
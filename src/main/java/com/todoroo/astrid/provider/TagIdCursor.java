@@ -0,0 +1,97 @@
+package com.todoroo.astrid.provider;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Build;
+
+/**
+ * Exposes a single-column cursor of tag names as the legacy tags cursor with
+ * the requested (id, name) columns, deriving the id from the name as rows are
+ * read.
+ */
+class TagIdCursor extends CursorWrapper {
+
+    private static final String ID = Astrid2TaskProvider.TAGS_FIELD_LIST[0];
+
+    private final String[] columns;
+
+    public TagIdCursor(Cursor cursor, String[] columns) {
+        super(cursor);
+        this.columns = columns.clone();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columns.clone();
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columns[columnIndex];
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        if (isId(columnIndex)) {
+            return Astrid2TaskProvider.tagNameToLong(getName());
+        }
+        return super.getLong(0);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        if (isId(columnIndex)) {
+            return Long.toString(getLong(columnIndex));
+        }
+        return getName();
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return super.isNull(0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    @Override
+    public int getType(int columnIndex) {
+        return isId(columnIndex) ? FIELD_TYPE_INTEGER : super.getType(0);
+    }
+
+    private String getName() {
+        return super.getString(0);
+    }
+
+    private boolean isId(int columnIndex) {
+        return ID.equals(columns[columnIndex]);
+    }
+}
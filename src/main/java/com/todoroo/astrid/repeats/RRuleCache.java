@@ -0,0 +1,58 @@
+package com.todoroo.astrid.repeats;
+
+import com.google.ical.values.Frequency;
+import com.google.ical.values.RRule;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed recurrence rules, keyed by the sanitized
+ * recurrence string. Rules returned from the cache are shared and must not
+ * be modified.
+ */
+public final class RRuleCache {
+
+    private static final int MAX_SIZE = 64;
+
+    private static final Map<String, RRule> cache = new LinkedHashMap<String, RRule>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RRule> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private RRuleCache() {
+    }
+
+    /**
+     * @return parsed rule for the given recurrence. For anything other than
+     * weekly repeats the iCalendar "byDay" field is cleared.
+     */
+    public static RRule get(String recurrence) throws ParseException {
+        synchronized (cache) {
+            RRule rrule = cache.get(recurrence);
+            if (rrule != null) {
+                return rrule;
+            }
+        }
+
+        RRule rrule = new RRule(recurrence);
+        if(rrule.getFreq() != Frequency.WEEKLY) {
+            rrule.setByDay(Collections.EMPTY_LIST);
+        }
+
+        synchronized (cache) {
+            cache.put(recurrence, rrule);
+        }
+        return rrule;
+    }
+
+    static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
@@ -157,7 +157,7 @@ public class RepeatControlSet extends PopupControlSet {
 
         if(recurrence.length() > 0) {
             try {
-                RRule rrule = new RRule(recurrence);
+                RRule rrule = RRuleCache.get(recurrence);
                 repeatValue = rrule.getInterval();
                 switch(rrule.getFreq()) {
                 case DAILY:
@@ -29,11 +29,16 @@ import org.slf4j.LoggerFactory;
 import org.tasks.injection.InjectingBroadcastReceiver;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import javax.inject.Inject;
@@ -119,9 +124,57 @@ public class RepeatTaskCompleteListener extends InjectingBroadcastReceiver {
         taskService.save(task);
     }
 
+    /**
+     * Compute the next <code>count</code> due dates for each of the given tasks.
+     * Tasks without a valid recurrence are left out of the result.
+     *
+     * @return map from task id to due dates, see {@link #computeNextDueDates(Task, int)}
+     */
+    public static Map<Long, long[]> computeNextDueDates(Collection<Task> tasks, int count) {
+        Map<Long, long[]> result = new HashMap<>();
+        for (Task task : tasks) {
+            try {
+                long[] dueDates = computeNextDueDates(task, count);
+                if (dueDates.length > 0) {
+                    result.put(task.getId(), dueDates);
+                }
+            } catch (ParseException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compute the next <code>count</code> due dates for a repeating task. Only
+     * the first occurrence honors repeat after completion, later ones follow
+     * from the previous due date.
+     *
+     * @return up to <code>count</code> due dates, stopping early if the
+     * recurrence ends or passes the task's repeat until date
+     */
+    public static long[] computeNextDueDates(Task task, int count) throws ParseException {
+        String recurrence = task.sanitizedRecurrence();
+        if (recurrence == null || recurrence.length() == 0) {
+            return new long[0];
+        }
+        long repeatUntil = task.containsValue(Task.REPEAT_UNTIL) ? task.getRepeatUntil() : 0;
+
+        long[] dueDates = new long[count];
+        int found = 0;
+        long dueDate = computeNextDueDate(task, recurrence, task.repeatAfterCompletion());
+        Task occurrence = new Task();
+        while (found < count && dueDate != -1 && (repeatUntil == 0 || dueDate < repeatUntil)) {
+            dueDates[found++] = dueDate;
+            occurrence.setDueDate(dueDate);
+            dueDate = computeNextDueDate(occurrence, recurrence, false);
+        }
+        return found == count ? dueDates : Arrays.copyOf(dueDates, found);
+    }
+
     /** Compute next due date */
     public static long computeNextDueDate(Task task, String recurrence, boolean repeatAfterCompletion) throws ParseException {
-        RRule rrule = initRRule(recurrence);
+        RRule rrule = RRuleCache.get(recurrence);
 
         // initialize startDateAsDV
         Date original = setUpStartDate(task, repeatAfterCompletion, rrule.getFreq());
@@ -140,7 +193,7 @@ public class RepeatTaskCompleteListener extends InjectingBroadcastReceiver {
 
     private static long handleWeeklyRepeatAfterComplete(RRule rrule, Date original,
             boolean hasDueTime) {
-        List<WeekdayNum> byDay = rrule.getByDay();
+        List<WeekdayNum> byDay = new ArrayList<>(rrule.getByDay()); // cached rules are shared
         long newDate = original.getTime();
         newDate += DateUtilities.ONE_WEEK * (rrule.getInterval() - 1);
         Calendar date = Calendar.getInstance();
@@ -245,19 +298,6 @@ public class RepeatTaskCompleteListener extends InjectingBroadcastReceiver {
         return newDueDate;
     }
 
-    /** Initialize RRule instance */
-    private static RRule initRRule(String recurrence) throws ParseException {
-        RRule rrule = new RRule(recurrence);
-
-        // handle the iCalendar "byDay" field differently depending on if
-        // we are weekly or otherwise
-        if(rrule.getFreq() != Frequency.WEEKLY) {
-            rrule.setByDay(Collections.EMPTY_LIST);
-        }
-
-        return rrule;
-    }
-
     /** Set up repeat start date */
     private static Date setUpStartDate(Task task, boolean repeatAfterCompletion, Frequency frequency) {
         Date startDate = newDate();
@@ -0,0 +1,189 @@
+package com.todoroo.astrid.service;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Orders startup work around the first frame of the first activity.
+ * <p>
+ * Steps the first frame depends on run on the main thread and are timed
+ * with {@link #now()} and {@link #record(String, long)}. Everything else is
+ * {@link #defer deferred}: held until the first frame is drawn and then
+ * submitted to the background executor, so independent steps in different
+ * lanes run in parallel. Outside of startup deferred steps run right away.
+ * Steps are kept in a trace that is logged once the deferred steps finish.
+ */
+@Singleton
+public class StartupPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupPipeline.class);
+
+    /** deferred steps are released if no frame is drawn by then */
+    private static final long FIRST_FRAME_TIMEOUT = 5000;
+    private static final String TIMEOUT_KEY = "startup-first-frame"; //$NON-NLS-1$
+
+    private final BackgroundExecutor backgroundExecutor;
+
+    private final List<String> trace = new ArrayList<>();
+    private final List<Runnable> deferred = new ArrayList<>();
+    private long origin = -1;
+    private boolean waiting;
+    private boolean settled;
+    private int running;
+
+    @Inject
+    public StartupPipeline(BackgroundExecutor backgroundExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Start the trace at the given {@link SystemClock#elapsedRealtime()}, which
+     * is kept if startup has already begun
+     */
+    public synchronized void begin(long start) {
+        if (origin < 0) {
+            origin = start;
+        }
+    }
+
+    /**
+     * Hold deferred steps until the activity draws its first frame
+     */
+    public void waitForFirstFrame(Activity activity) {
+        synchronized (this) {
+            if (settled) { // process was started earlier for a receiver or service
+                trace.clear();
+                origin = -1;
+                settled = false;
+            }
+            begin(now());
+            if (waiting) {
+                return;
+            }
+            waiting = true;
+        }
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // posted so that it runs once the frame has been drawn
+                decorView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        release("first frame");
+                    }
+                });
+                return true;
+            }
+        });
+        backgroundExecutor.schedule(Lane.UI_CRITICAL, TIMEOUT_KEY, FIRST_FRAME_TIMEOUT, new Runnable() {
+            @Override
+            public void run() {
+                release("first frame timed out");
+            }
+        });
+    }
+
+    public long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Add a step that ran on the calling thread since start to the trace
+     */
+    public synchronized void record(String step, long start) {
+        if (origin >= 0 && !settled) {
+            trace.add(format(step, start, now()));
+        }
+    }
+
+    /**
+     * Run the step in the given lane once the first frame is drawn, or now if
+     * not waiting for one
+     */
+    public void defer(final String step, final Lane lane, final Runnable runnable) {
+        Runnable submit = new Runnable() {
+            @Override
+            public void run() {
+                backgroundExecutor.execute(lane, new Runnable() {
+                    @Override
+                    public void run() {
+                        long start = now();
+                        try {
+                            runnable.run();
+                        } finally {
+                            finished(step, start);
+                        }
+                    }
+                });
+            }
+        };
+        synchronized (this) {
+            running++;
+            if (waiting) {
+                deferred.add(submit);
+                return;
+            }
+        }
+        submit.run();
+    }
+
+    public synchronized String getReport() {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        writer.println("Startup");
+        for (String line : trace) {
+            writer.println(line);
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    private void release(String mark) {
+        List<Runnable> released;
+        synchronized (this) {
+            if (!waiting) {
+                return;
+            }
+            waiting = false;
+            trace.add(format(mark, now(), now()));
+            released = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        backgroundExecutor.cancel(TIMEOUT_KEY);
+        for (Runnable submit : released) {
+            submit.run();
+        }
+    }
+
+    private void finished(String step, long start) {
+        synchronized (this) {
+            record(step + " [" + Thread.currentThread().getName() + "]", start);
+            if (--running > 0 || waiting || origin < 0 || settled) {
+                return;
+            }
+            settled = true;
+        }
+        log.info(getReport());
+    }
+
+    private String format(String step, long start, long end) {
+        return String.format("  +%5dms %5dms  %s", start - origin, end - start, step); //$NON-NLS-1$
+    }
+}
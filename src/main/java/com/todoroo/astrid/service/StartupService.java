@@ -6,14 +6,13 @@
 package com.todoroo.astrid.service;
 
 import android.app.Activity;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.database.sqlite.SQLiteException;
 import android.preference.PreferenceManager;
 
-import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
+import com.todoroo.andlib.data.ModelChange;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
@@ -39,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.tasks.Broadcaster;
 import org.tasks.R;
 import org.tasks.preferences.Preferences;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 
 import java.io.File;
 
@@ -69,6 +69,7 @@ public class StartupService {
     private final CalendarAlarmScheduler calendarAlarmScheduler;
     private final TaskDeleter taskDeleter;
     private Broadcaster broadcaster;
+    private final StartupPipeline startupPipeline;
 
     @Inject
     public StartupService(UpgradeService upgradeService, TagDataDao tagDataDao, Database database,
@@ -76,7 +77,7 @@ public class StartupService {
                           GtasksSyncService gtasksSyncService, MetadataDao metadataDao,
                           Preferences preferences, TasksXmlImporter xmlImporter,
                           CalendarAlarmScheduler calendarAlarmScheduler, TaskDeleter taskDeleter,
-                          Broadcaster broadcaster) {
+                          Broadcaster broadcaster, StartupPipeline startupPipeline) {
         this.upgradeService = upgradeService;
         this.tagDataDao = tagDataDao;
         this.database = database;
@@ -88,6 +89,7 @@ public class StartupService {
         this.calendarAlarmScheduler = calendarAlarmScheduler;
         this.taskDeleter = taskDeleter;
         this.broadcaster = broadcaster;
+        this.startupPipeline = startupPipeline;
     }
 
     /**
@@ -95,28 +97,36 @@ public class StartupService {
      */
     private static boolean hasStartedUp = false;
 
-    /** Called when this application is started up */
+    /**
+     * Called when this application is started up. Only the steps the first
+     * frame depends on run here, the rest are deferred until it is drawn.
+     */
     public synchronized void onStartupApplication(final Activity activity) {
         if(hasStartedUp || activity == null) {
             return;
         }
 
+        startupPipeline.waitForFirstFrame(activity);
+
         database.addListener(new DatabaseUpdateListener() {
             @Override
-            public void onDatabaseUpdated() {
+            public void onDatabaseUpdated(String table) {
                 Astrid2TaskProvider.notifyDatabaseModification(activity);
                 Astrid3ContentProvider.notifyDatabaseModification(activity);
             }
         });
 
+        long start = startupPipeline.now();
         try {
             database.openForWriting();
         } catch (SQLiteException e) {
             handleSQLiteError(activity, e);
             return;
         }
+        startupPipeline.record("open database", start);
 
         // read current version
+        start = startupPipeline.now();
         int latestSetVersion = 0;
         try {
             latestSetVersion = preferences.getCurrentVersion();
@@ -128,7 +138,7 @@ public class StartupService {
         String versionName = "0"; //$NON-NLS-1$
         try {
             PackageManager pm = activity.getPackageManager();
-            PackageInfo pi = pm.getPackageInfo(Constants.PACKAGE, PackageManager.GET_META_DATA);
+            PackageInfo pi = pm.getPackageInfo(Constants.PACKAGE, 0);
             version = pi.versionCode;
             versionName = pi.versionName;
         } catch (Exception e) {
@@ -149,31 +159,42 @@ public class StartupService {
             preferences.setCurrentVersion(version);
             preferences.setCurrentVersionName(versionName);
         }
+        startupPipeline.record("version check", start);
 
         initializeDatabaseListeners();
 
-        // perform startup activities in a background thread
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                taskDeleter.deleteTasksWithEmptyTitles(null);
-
-                // if sync ongoing flag was set, clear it
-                gtasksPreferenceService.stopOngoing();
-
-                gtasksSyncService.initialize();
-            }
-        }).start();
-
         if (!preferences.getBoolean(PreferenceManager.KEY_HAS_SET_DEFAULT_VALUES, false)) {
+            start = startupPipeline.now();
             preferences.setDefaults();
+            startupPipeline.record("preference defaults", start);
         }
 
         if (latestSetVersion == 0) {
             broadcaster.firstLaunch();
         }
 
-        calendarAlarmScheduler.scheduleCalendarAlarms(activity, false); // This needs to be after set preference defaults for the purposes of ab testing
+        // independent steps in separate lanes, run in parallel after the first frame
+        startupPipeline.defer("delete empty tasks", Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                taskDeleter.deleteTasksWithEmptyTitles(null);
+            }
+        });
+        startupPipeline.defer("start sync", Lane.USER_INITIATED, new Runnable() {
+            @Override
+            public void run() {
+                // if sync ongoing flag was set, clear it
+                gtasksPreferenceService.stopOngoing();
+
+                gtasksSyncService.startPushing();
+            }
+        });
+        startupPipeline.defer("calendar alarms", Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                calendarAlarmScheduler.scheduleCalendarAlarms(false); // This needs to be after set preference defaults for the purposes of ab testing
+            }
+        });
 
         hasStartedUp = true;
     }
@@ -181,18 +202,17 @@ public class StartupService {
     private void initializeDatabaseListeners() {
         // This listener makes sure that when a tag's name is created or changed,
         // the corresponding metadata will also update
-        tagDataDao.addListener(new ModelUpdateListener<TagData>() {
+        database.getModelChanges().subscribe(TagData.TABLE, ModelChange.columns(TagData.NAME), new ModelChange.Listener() {
             @Override
-            public void onModelUpdated(TagData model) {
-                ContentValues values = model.getSetValues();
-                Metadata m = new Metadata();
-                if (values != null) {
-                    if (values.containsKey(TagData.NAME.name)) {
-                        m.setValue(TaskToTagMetadata.TAG_NAME, model.getName());
-                        metadataDao.update(Criterion.and(MetadataCriteria.withKey(TaskToTagMetadata.KEY),
-                                TaskToTagMetadata.TAG_UUID.eq(model.getUUID())), m);
-                    }
+            public void onModelChanged(ModelChange change) {
+                TagData tagData = tagDataDao.fetch(change.getId(), TagData.NAME, TagData.UUID);
+                if (tagData == null) {
+                    return;
                 }
+                Metadata m = new Metadata();
+                m.setValue(TaskToTagMetadata.TAG_NAME, tagData.getName());
+                metadataDao.update(Criterion.and(MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                        TaskToTagMetadata.TAG_UUID.eq(tagData.getUUID())), m);
             }
         });
     }
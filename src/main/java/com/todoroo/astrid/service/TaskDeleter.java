@@ -3,6 +3,7 @@ package com.todoroo.astrid.service;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gcal.GCalHelper;
@@ -14,12 +15,14 @@ public class TaskDeleter {
     private final TaskService taskService;
     private final GCalHelper gcalHelper;
     private final TaskDao taskDao;
+    private final ArchiveDao archiveDao;
 
     @Inject
-    public TaskDeleter(TaskService taskService, GCalHelper gcalHelper, TaskDao taskDao) {
+    public TaskDeleter(TaskService taskService, GCalHelper gcalHelper, TaskDao taskDao, ArchiveDao archiveDao) {
         this.taskService = taskService;
         this.gcalHelper = gcalHelper;
         this.taskDao = taskDao;
+        this.archiveDao = archiveDao;
     }
 
     /**
@@ -45,7 +48,7 @@ public class TaskDeleter {
     }
 
     public int purgeDeletedTasks() {
-        return taskDao.deleteWhere(Task.DELETION_DATE.gt(0));
+        return taskDao.deleteWhere(Task.DELETION_DATE.gt(0)) + archiveDao.purgeDeleted();
     }
 
     /**
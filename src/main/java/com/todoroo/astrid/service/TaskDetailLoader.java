@@ -0,0 +1,228 @@
+package com.todoroo.astrid.service;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.text.TextUtils;
+
+import com.todoroo.andlib.data.Callback;
+import com.todoroo.andlib.data.ModelChange;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.dao.TaskAttachmentDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskAttachment;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+import org.tasks.location.Geofence;
+import org.tasks.location.GeofenceFields;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Loads {@link TaskDetails} for the task edit screen: the task, all of its
+ * tag, alarm and geofence metadata in one query, its attachments and
+ * whether its calendar event still exists.
+ * <p>
+ * The task list calls {@link #prefetch(long)} when a row is touched so that
+ * the details are usually ready by the time the edit screen asks for them.
+ * A prefetch is dropped when the task, metadata or attachments change.
+ */
+@Singleton
+public class TaskDetailLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskDetailLoader.class);
+
+    /** Prefetched details older than this are discarded */
+    static final long PREFETCH_TTL = 5000L;
+    /** Longest wait for a prefetch before loading on the calling thread */
+    static final long PREFETCH_WAIT = 250L;
+    /** Drop the prefetch whichever task it is for */
+    private static final long ANY_TASK = -1L;
+
+    private final TaskDao taskDao;
+    private final MetadataDao metadataDao;
+    private final TaskAttachmentDao taskAttachmentDao;
+    private final Context context;
+    private final BackgroundExecutor executor;
+
+    private long prefetchId;
+    private long prefetchTime;
+    private Future<TaskDetails> prefetch;
+
+    @Inject
+    public TaskDetailLoader(TaskDao taskDao, MetadataDao metadataDao, TaskAttachmentDao taskAttachmentDao,
+                            Database database, @ForApplication Context context, BackgroundExecutor executor) {
+        this.taskDao = taskDao;
+        this.metadataDao = metadataDao;
+        this.taskAttachmentDao = taskAttachmentDao;
+        this.context = context;
+        this.executor = executor;
+
+        database.getModelChanges().subscribe(Task.TABLE, ModelChange.columns(Task.PROPERTIES), new ModelChange.Listener() {
+            @Override
+            public void onModelChanged(ModelChange change) {
+                invalidate(change.getId());
+            }
+        });
+        // metadata and attachment changes do not carry the task id
+        ModelChange.Listener invalidateAll = new ModelChange.Listener() {
+            @Override
+            public void onModelChanged(ModelChange change) {
+                invalidate(ANY_TASK);
+            }
+        };
+        database.getModelChanges().subscribe(Metadata.TABLE, ModelChange.columns(Metadata.PROPERTIES), invalidateAll);
+        database.getModelChanges().subscribe(TaskAttachment.TABLE, ModelChange.columns(TaskAttachment.PROPERTIES), invalidateAll);
+    }
+
+    /**
+     * Start loading details in the background, replacing any earlier prefetch
+     */
+    public synchronized void prefetch(final long taskId) {
+        if (prefetch != null) {
+            if (prefetchId == taskId && !isExpired()) {
+                return;
+            }
+            prefetch.cancel(false);
+        }
+        prefetchId = taskId;
+        prefetchTime = DateUtilities.now();
+        FutureTask<TaskDetails> task = new FutureTask<>(new Callable<TaskDetails>() {
+            @Override
+            public TaskDetails call() {
+                return load(taskId);
+            }
+        });
+        executor.execute(Lane.UI_CRITICAL, task);
+        prefetch = task;
+    }
+
+    private synchronized void invalidate(long taskId) {
+        if (prefetch != null && (taskId == ANY_TASK || taskId == prefetchId)) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+    }
+
+    /**
+     * @return prefetched details if available, otherwise load them now. A
+     * prefetch that is not ready within {@link #PREFETCH_WAIT} is dropped.
+     * Returns null if the task does not exist
+     */
+    public TaskDetails get(long taskId) {
+        Future<TaskDetails> future = null;
+        synchronized (this) {
+            if (prefetch != null && prefetchId == taskId && !isExpired()) {
+                future = prefetch;
+            }
+            prefetch = null;
+        }
+        if (future != null) {
+            try {
+                return future.get(PREFETCH_WAIT, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(false);
+            } catch (CancellationException e) {
+                // invalidated by a change to the task
+            } catch (InterruptedException | ExecutionException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return load(taskId);
+    }
+
+    private boolean isExpired() {
+        return DateUtilities.now() - prefetchTime > PREFETCH_TTL;
+    }
+
+    TaskDetails load(long taskId) {
+        Task task = taskDao.fetch(taskId, Task.PROPERTIES);
+        if (task == null) {
+            return null;
+        }
+
+        final List<String> tagNames = new ArrayList<>();
+        final List<Long> alarms = new ArrayList<>();
+        final List<Geofence> geofences = new ArrayList<>();
+        metadataDao.query(Query.select(Metadata.PROPERTIES).where(Criterion.and(
+                MetadataCriteria.byTask(taskId),
+                Criterion.or(
+                        Criterion.and(MetadataCriteria.withKey(TaskToTagMetadata.KEY), Metadata.DELETION_DATE.eq(0)),
+                        MetadataCriteria.withKey(AlarmFields.METADATA_KEY),
+                        MetadataCriteria.withKey(GeofenceFields.METADATA_KEY)))), new Callback<Metadata>() {
+            @Override
+            public void apply(Metadata entry) {
+                String key = entry.getKey();
+                if (TaskToTagMetadata.KEY.equals(key)) {
+                    tagNames.add(entry.getValue(TaskToTagMetadata.TAG_NAME));
+                } else if (AlarmFields.METADATA_KEY.equals(key)) {
+                    alarms.add(entry.getValue(AlarmFields.TIME));
+                } else {
+                    geofences.add(new Geofence(entry));
+                }
+            }
+        });
+        Collections.sort(tagNames, String.CASE_INSENSITIVE_ORDER);
+        Collections.sort(alarms);
+        Collections.sort(geofences, new Comparator<Geofence>() {
+            @Override
+            public int compare(Geofence lhs, Geofence rhs) {
+                return String.valueOf(lhs.getName()).compareTo(String.valueOf(rhs.getName()));
+            }
+        });
+
+        final List<TaskAttachment> attachments = new ArrayList<>();
+        taskAttachmentDao.getAttachments(task.getUuid(), new Callback<TaskAttachment>() {
+            @Override
+            public void apply(TaskAttachment attachment) {
+                attachments.add(attachment);
+            }
+        });
+
+        return new TaskDetails(task, tagNames, alarms, geofences, attachments,
+                calendarEventExists(task.getCalendarURI()));
+    }
+
+    private boolean calendarEventExists(String uri) {
+        if (TextUtils.isEmpty(uri)) {
+            return false;
+        }
+        try {
+            Cursor cursor = context.getContentResolver().query(Uri.parse(uri), new String[] { "dtstart" }, null, null, null); //$NON-NLS-1$
+            try {
+                return cursor.getCount() > 0;
+            } finally {
+                cursor.close();
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return false;
+        }
+    }
+}
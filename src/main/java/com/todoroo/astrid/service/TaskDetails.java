@@ -0,0 +1,70 @@
+package com.todoroo.astrid.service;
+
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskAttachment;
+
+import org.tasks.location.Geofence;
+
+import java.util.List;
+
+/**
+ * Everything the task edit screen shows for a task, loaded at once by
+ * {@link TaskDetailLoader}. While the edit screen reads a task the details
+ * are attached to it as a transitory value, see {@link #from(Task)}.
+ */
+public class TaskDetails {
+
+    public static final String TRANSITORY = "task-details"; //$NON-NLS-1$
+
+    private final Task task;
+    private final List<String> tagNames;
+    private final List<Long> alarms;
+    private final List<Geofence> geofences;
+    private final List<TaskAttachment> attachments;
+    private final boolean calendarEventExists;
+
+    TaskDetails(Task task, List<String> tagNames, List<Long> alarms, List<Geofence> geofences,
+                List<TaskAttachment> attachments, boolean calendarEventExists) {
+        this.task = task;
+        this.tagNames = tagNames;
+        this.alarms = alarms;
+        this.geofences = geofences;
+        this.attachments = attachments;
+        this.calendarEventExists = calendarEventExists;
+    }
+
+    /**
+     * @return details attached to the task, or null if the caller must query
+     */
+    public static TaskDetails from(Task task) {
+        Object details = task.getTransitory(TRANSITORY);
+        return details instanceof TaskDetails ? (TaskDetails) details : null;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    /** @return tag names ordered by name, ignoring case */
+    public List<String> getTagNames() {
+        return tagNames;
+    }
+
+    /** @return alarm times in ascending order */
+    public List<Long> getAlarms() {
+        return alarms;
+    }
+
+    /** @return geofences ordered by place name */
+    public List<Geofence> getGeofences() {
+        return geofences;
+    }
+
+    public List<TaskAttachment> getAttachments() {
+        return attachments;
+    }
+
+    public boolean calendarEventExists() {
+        return calendarEventExists;
+    }
+}
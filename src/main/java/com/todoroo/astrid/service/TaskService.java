@@ -16,11 +16,9 @@ import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.dao.MetadataDao;
-import com.todoroo.astrid.dao.TagDataDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.RemoteModel;
-import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.tags.TagService;
 import com.todoroo.astrid.tags.TaskToTagMetadata;
@@ -33,6 +31,7 @@ import org.tasks.filters.FilterCounter;
 import org.tasks.scheduling.RefreshScheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -57,7 +56,6 @@ public class TaskService {
 
     public static final String TRANS_REPEAT_COMPLETE = "repeat-complete"; //$NON-NLS-1$
 
-    private final TagDataDao tagDataDao;
     private final TaskDao taskDao;
     private final Broadcaster broadcaster;
     private final FilterCounter filterCounter;
@@ -66,9 +64,8 @@ public class TaskService {
     private final MetadataDao metadataDao;
 
     @Inject
-    public TaskService(TagDataDao tagDataDao, TaskDao taskDao, Broadcaster broadcaster, FilterCounter filterCounter,
+    public TaskService(TaskDao taskDao, Broadcaster broadcaster, FilterCounter filterCounter,
                        RefreshScheduler refreshScheduler, TagService tagService, MetadataDao metadataDao) {
-        this.tagDataDao = tagDataDao;
         this.taskDao = taskDao;
         this.broadcaster = broadcaster;
         this.filterCounter = filterCounter;
@@ -93,6 +90,15 @@ public class TaskService {
         return taskDao.fetch(id, properties);
     }
 
+    /**
+     * Move an archived task back to the task list so that it can be edited
+     *
+     * @return true if the task was archived
+     */
+    public boolean restoreArchived(long id) {
+        return taskDao.restoreArchived(id);
+    }
+
     /**
      * Mark the given task as completed and save it.
      */
@@ -152,7 +158,7 @@ public class TaskService {
 
         sql = PermaSql.replacePlaceholders(sql);
 
-        return taskDao.query(Query.select(properties).withQueryTemplate(sql));
+        return taskDao.queryFilter(sql, properties);
     }
 
     /**
@@ -197,15 +203,10 @@ public class TaskService {
     }
 
     /**
-     * Count tasks overall
+     * Count tasks overall, including archived tasks
      */
     public int countTasks() {
-        TodorooCursor<Task> cursor = query(Query.select(Task.ID));
-        try {
-            return cursor.getCount();
-        } finally {
-            cursor.close();
-        }
+        return taskDao.countWithArchive();
     }
 
     /**
@@ -217,9 +218,7 @@ public class TaskService {
      */
     private void quickAdd(Task task, List<String> tags) {
         saveWithoutPublishingFilterUpdate(task);
-        for(String tag : tags) {
-            createLink(task, tag);
-        }
+        tagService.addTags(Task.ID.eq(task.getId()), tags);
         broadcastFilterListUpdated();
     }
 
@@ -300,7 +299,7 @@ public class TaskService {
                     createLink(task, metadata.getValue(TaskToTagMetadata.TAG_NAME), metadata.getValue(TaskToTagMetadata.TAG_UUID));
                 } else {
                     // This is necessary for backwards compatibility
-                    createLink(task, metadata.getValue(TaskToTagMetadata.TAG_NAME));
+                    tagService.addTags(Task.ID.eq(task.getId()), Collections.singletonList(metadata.getValue(TaskToTagMetadata.TAG_NAME)));
                 }
             } else {
                 metadataDao.persist(metadata);
@@ -310,16 +309,6 @@ public class TaskService {
         return task;
     }
 
-    private void createLink(Task task, String tagName) {
-        TagData tagData = tagDataDao.getTagByName(tagName, TagData.NAME, TagData.UUID);
-        if (tagData == null) {
-            tagData = new TagData();
-            tagData.setName(tagName);
-            tagDataDao.persist(tagData);
-        }
-        createLink(task, tagData.getName(), tagData.getUUID());
-    }
-
     private void createLink(Task task, String tagName, String tagUuid) {
         Metadata link = TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), tagName, tagUuid);
         if (metadataDao.update(Criterion.and(MetadataDao.MetadataCriteria.byTaskAndwithKey(task.getId(), TaskToTagMetadata.KEY),
@@ -0,0 +1,114 @@
+package com.todoroo.astrid.tags;
+
+import com.todoroo.andlib.data.Callback;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.DatabaseUpdateListener;
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.data.TagData;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Process-wide lookup of tag names and uuids, ignoring case. The dictionary
+ * is loaded on first use and dropped whenever the tagdata table changes, so
+ * renames and deletes are picked up by the next lookup.
+ */
+@Singleton
+public class TagDictionary implements DatabaseUpdateListener {
+
+    private final TagDataDao tagDataDao;
+
+    /** folded name to {name, uuid}, or null if not loaded */
+    private Map<String, String[]> tags;
+
+    @Inject
+    public TagDictionary(Database database, TagDataDao tagDataDao) {
+        this.tagDataDao = tagDataDao;
+
+        database.addListener(this);
+    }
+
+    @Override
+    public void onDatabaseUpdated(String table) {
+        if (TagData.TABLE.name.equals(table)) {
+            invalidate();
+        }
+    }
+
+    public synchronized void invalidate() {
+        tags = null;
+    }
+
+    /**
+     * @return uuid of the tag with the given name ignoring case, or null
+     */
+    public String getUuid(String name) {
+        String[] tag = get(name);
+        return tag == null ? null : tag[1];
+    }
+
+    /**
+     * @return name of the tag with the given name ignoring case, or null
+     */
+    public String getName(String name) {
+        String[] tag = get(name);
+        return tag == null ? null : tag[0];
+    }
+
+    /**
+     * @return uuid of the tag with the given name ignoring case, creating
+     * the tag if it does not exist
+     */
+    public String getOrCreate(String name) {
+        String uuid = getUuid(name);
+        if (uuid != null) {
+            return uuid;
+        }
+        // not synchronized around the insert, it may be waiting on a transaction
+        // held by a thread that is about to look up a tag
+        TagData tagData = new TagData();
+        tagData.setName(name);
+        tagDataDao.persist(tagData);
+        put(name, tagData.getUuid());
+        return tagData.getUuid();
+    }
+
+    private synchronized String[] get(String name) {
+        if (name == null) {
+            return null;
+        }
+        if (tags == null) {
+            final Map<String, String[]> loaded = new HashMap<>();
+            tagDataDao.tagNames(new Callback<TagData>() {
+                @Override
+                public void apply(TagData tagData) {
+                    String key = fold(tagData.getName());
+                    if (!loaded.containsKey(key)) {
+                        loaded.put(key, new String[] { tagData.getName(), tagData.getUuid() });
+                    }
+                }
+            });
+            tags = loaded;
+        }
+        return tags.get(fold(name));
+    }
+
+    /**
+     * Listeners are not notified until an enclosing transaction ends, so new
+     * tags are added directly
+     */
+    private synchronized void put(String name, String uuid) {
+        if (tags != null && !tags.containsKey(fold(name))) {
+            tags.put(fold(name), new String[] { name, uuid });
+        }
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
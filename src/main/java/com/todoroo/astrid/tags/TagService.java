@@ -8,12 +8,16 @@ package com.todoroo.astrid.tags;
 import android.text.TextUtils;
 
 import com.todoroo.andlib.data.Callback;
+import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Property.CountProperty;
 import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Field;
 import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TagDataDao;
@@ -22,7 +26,11 @@ import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -36,13 +44,17 @@ import javax.inject.Singleton;
 @Singleton
 public final class TagService {
 
+    private final Database database;
     private final MetadataDao metadataDao;
     private final TagDataDao tagDataDao;
+    private final TagDictionary tagDictionary;
 
     @Inject
-    public TagService(MetadataDao metadataDao, TagDataDao tagDataDao) {
+    public TagService(Database database, MetadataDao metadataDao, TagDataDao tagDataDao, TagDictionary tagDictionary) {
+        this.database = database;
         this.metadataDao = metadataDao;
         this.tagDataDao = tagDataDao;
+        this.tagDictionary = tagDictionary;
     }
 
     /**
@@ -59,29 +71,20 @@ public final class TagService {
      * @return empty array if no tags, otherwise array
      */
     public TagData[] getGroupedTags(Order order, Criterion activeStatus) {
-        Query query = Query.select(TaskToTagMetadata.TAG_NAME, TaskToTagMetadata.TAG_UUID, COUNT).
+        Property<?>[] fields = Arrays.copyOf(TagData.PROPERTIES, TagData.PROPERTIES.length + 1);
+        fields[TagData.PROPERTIES.length] = COUNT;
+        Query query = Query.select(fields).
+                join(Join.inner(Metadata.TABLE, TaskToTagMetadata.TAG_UUID.eq(TagData.UUID))).
                 join(Join.inner(Task.TABLE, Metadata.TASK.eq(Task.ID))).
                 where(Criterion.and(
                         activeStatus,
-                        MetadataCriteria.withKey(TaskToTagMetadata.KEY))).
-                orderBy(order).groupBy(TaskToTagMetadata.TAG_NAME);
-        final List<TagData> array = new ArrayList<>();
-        metadataDao.query(query, new Callback<Metadata>() {
-            @Override
-            public void apply(Metadata metadata) {
-                TagData tag = tagFromUUID(metadata.getValue(TaskToTagMetadata.TAG_UUID));
-                if (tag != null) {
-                    array.add(tag);
-                }
-            }
-        });
+                        MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                        Metadata.DELETION_DATE.eq(0))).
+                orderBy(order).groupBy(TagData.ID);
+        List<TagData> array = tagDataDao.toList(query);
         return array.toArray(new TagData[array.size()]);
     }
 
-    private TagData tagFromUUID(String uuid) {
-        return tagDataDao.getByUuid(uuid, TagData.PROPERTIES);
-    }
-
     public List<String> getTagNames(long taskId) {
         Query query = Query.select(TaskToTagMetadata.TAG_NAME, TaskToTagMetadata.TAG_UUID).where(
                 Criterion.and(
@@ -120,15 +123,16 @@ public final class TagService {
      * given tag, return that. Otherwise, return the argument
      */
     public String getTagWithCase(String tag) {
+        String name = tagDictionary.getName(tag);
+        if (name != null) {
+            return name;
+        }
+
+        // links to tags that no longer have a TagData entry
         Metadata tagMetadata = metadataDao.getFirst(Query.select(TaskToTagMetadata.TAG_NAME).where(tagEqIgnoreCase(tag, Criterion.all)).limit(1));
         if (tagMetadata != null) {
             return tagMetadata.getValue(TaskToTagMetadata.TAG_NAME);
         }
-
-        TagData tagData = tagDataDao.getTagByName(tag, TagData.NAME);
-        if (tagData != null) {
-            return tagData.getName();
-        }
         return tag;
     }
 
@@ -138,6 +142,95 @@ public final class TagService {
                 additionalCriterion);
     }
 
+    /**
+     * Replace the tags on a task with the given tag names, creating tags as
+     * needed. Links are changed with one update and one insert.
+     */
+    public void synchronizeTags(long taskId, Collection<String> tags) {
+        Set<String> tagUuids = getOrCreate(tags);
+        Criterion task = Task.ID.eq(taskId);
+        database.beginTransaction();
+        try {
+            deleteOtherLinks(task, tagUuids);
+            insertLinks(task, tagUuids);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Link every task matching the criterion to the given tag names, creating
+     * tags as needed
+     *
+     * @param tasks criterion on the task table
+     */
+    public void addTags(Criterion tasks, Collection<String> tags) {
+        Set<String> tagUuids = getOrCreate(tags);
+        if (tagUuids.isEmpty()) {
+            return;
+        }
+        insertLinks(tasks, tagUuids);
+    }
+
+    private Set<String> getOrCreate(Collection<String> tags) {
+        Set<String> tagUuids = new LinkedHashSet<>();
+        for (String tag : tags) {
+            tagUuids.add(tagDictionary.getOrCreate(tag));
+        }
+        return tagUuids;
+    }
+
+    /**
+     * Mark as deleted the links between tasks matching the criterion and all
+     * tags other than the given ones
+     */
+    private void deleteOtherLinks(Criterion tasks, Collection<String> tagUuids) {
+        Criterion tagCriterion = tagUuids.isEmpty()
+                ? Criterion.all
+                : Criterion.not(TaskToTagMetadata.TAG_UUID.in(tagUuids.toArray(new String[tagUuids.size()])));
+        Metadata deleteTemplate = new Metadata();
+        deleteTemplate.setDeletionDate(DateUtilities.now());
+        metadataDao.update(Criterion.and(
+                MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                Metadata.DELETION_DATE.eq(0),
+                Metadata.TASK.in(Query.select(Task.ID).from(Task.TABLE).where(tasks)),
+                tagCriterion), deleteTemplate);
+    }
+
+    /**
+     * Link tasks to tags with a single INSERT ... SELECT, skipping links that
+     * already exist
+     */
+    private void insertLinks(Criterion tasks, Collection<String> tagUuids) {
+        if (tagUuids.isEmpty()) {
+            return;
+        }
+        Query existing = Query.select(TaskToTagMetadata.TAG_UUID).from(Metadata.TABLE).where(Criterion.and(
+                Metadata.TASK.eq(Task.ID),
+                MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                Metadata.DELETION_DATE.eq(0)));
+        Query links = Query.select(
+                Task.ID,
+                Field.field("'" + TaskToTagMetadata.KEY + "'"),
+                TagData.NAME,
+                TagData.UUID,
+                Task.UUID,
+                Field.field(Long.toString(DateUtilities.now())),
+                Field.field("0"))
+                .from(Task.TABLE)
+                .join(Join.inner(TagData.TABLE, TagData.UUID.in(tagUuids.toArray(new String[tagUuids.size()]))))
+                .where(Criterion.and(tasks, Criterion.not(TagData.UUID.in(existing))));
+        database.execSQL(Metadata.TABLE.name, "INSERT INTO " + Metadata.TABLE.name + " (" +
+                Metadata.TASK.name + "," +
+                Metadata.KEY.name + "," +
+                TaskToTagMetadata.TAG_NAME.name + "," +
+                TaskToTagMetadata.TAG_UUID.name + "," +
+                TaskToTagMetadata.TASK_UUID.name + "," +
+                Metadata.CREATION_DATE.name + "," +
+                Metadata.DELETION_DATE.name + ") " + links);
+    }
+
     public int rename(String uuid, String newName) {
         TagData template = new TagData();
         template.setName(newName);
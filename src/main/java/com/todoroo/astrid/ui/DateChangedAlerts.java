@@ -25,6 +25,7 @@ import com.google.ical.values.RRule;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gcal.GCalHelper;
+import com.todoroo.astrid.repeats.RRuleCache;
 import com.todoroo.astrid.repeats.RepeatTaskCompleteListener;
 import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.ui.DateAndTimeDialog.DateAndTimeDialogListener;
@@ -243,7 +244,7 @@ public class DateChangedAlerts {
 
     private String getRecurrenceString(Context context, Task task) {
         try {
-            RRule rrule = new RRule(task.sanitizedRecurrence());
+            RRule rrule = RRuleCache.get(task.sanitizedRecurrence());
 
             String[] dateAbbrev = context.getResources().getStringArray(
                     R.array.repeat_interval);
@@ -23,6 +23,7 @@ import com.todoroo.astrid.alarms.AlarmService;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.helper.TaskEditControlSetBase;
+import com.todoroo.astrid.service.TaskDetails;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -271,13 +272,21 @@ public class ReminderControlSet extends TaskEditControlSetBase implements Adapte
         if (model.hasRandomReminder()) {
             addRandomReminder();
         }
-        alarmService.getAlarms(model.getId(), new Callback<Metadata>() {
-            @Override
-            public void apply(Metadata entry) {
-                addAlarmRow(entry.getValue(AlarmFields.TIME));
+        TaskDetails details = TaskDetails.from(model);
+        if (details == null) {
+            alarmService.getAlarms(model.getId(), new Callback<Metadata>() {
+                @Override
+                public void apply(Metadata entry) {
+                    addAlarmRow(entry.getValue(AlarmFields.TIME));
+                }
+            });
+        } else {
+            for (Long alarm : details.getAlarms()) {
+                addAlarmRow(alarm);
             }
-        });
-        for (Geofence geofence : geofenceService.getGeofences(model.getId())) {
+        }
+        List<Geofence> geofences = details == null ? geofenceService.getGeofences(model.getId()) : details.getGeofences();
+        for (Geofence geofence : geofences) {
             addGeolocationReminder(geofence);
         }
         updateSpinner();
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,15 +31,121 @@ public class TitleParser {
 
     private static final Logger log = LoggerFactory.getLogger(TitleParser.class);
 
+    // --- token classes, see classify()
+
+    private static final int TOKEN_TAG = 1;
+    private static final int TOKEN_PRIORITY = 1 << 1;
+    private static final int TOKEN_REPEAT = 1 << 2;
+    private static final int TOKEN_DAY_OF_WEEK = 1 << 3;
+    private static final int TOKEN_MONTH = 1 << 4;
+    private static final int TOKEN_DAY_TIME = 1 << 5;
+    private static final int TOKEN_DIGIT = 1 << 6;
+
+    private static final int TOKEN_DATE = TOKEN_DAY_OF_WEEK | TOKEN_MONTH | TOKEN_DAY_TIME | TOKEN_DIGIT;
+
+    private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+    private static final Map<String, Integer> KEYWORD_PREFIXES = new HashMap<>();
+
+    static {
+        KEYWORDS.put("today", TOKEN_DAY_OF_WEEK);
+        KEYWORDS.put("tomorrow", TOKEN_DAY_OF_WEEK);
+        for (String word : new String[] { "daily", "weekly", "monthly", "yearly" }) {
+            KEYWORDS.put(word, TOKEN_REPEAT);
+        }
+        for (String word : new String[] { "breakfast", "lunch", "supper", "dinner", "brunch", "morning",
+                "afternoon", "evening", "night", "midnight", "noon" }) {
+            KEYWORDS.put(word, TOKEN_DAY_TIME);
+        }
+        for (String prefix : new String[] { "mon", "tue", "wed", "thu", "fri", "sat", "sun" }) {
+            KEYWORD_PREFIXES.put(prefix, TOKEN_DAY_OF_WEEK);
+        }
+        for (String prefix : new String[] { "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep",
+                "oct", "nov", "dec" }) {
+            KEYWORD_PREFIXES.put(prefix, TOKEN_MONTH);
+        }
+    }
+
     public static boolean parse(TagService tagService, Task task, ArrayList<String> tags) {
-        boolean markup;
-        markup = repeatHelper(task);
-        listHelper(tagService, task,tags); // Don't need to know if tags affected things since we don't show alerts for them
-        markup = dayHelper(task) || markup;
-        markup = priorityHelper(task) || markup;
+        String title = task.getTitle().trim();
+        task.setTitle(title);
+        int tokens = classify(title);
+        boolean markup = false;
+        if ((tokens & TOKEN_REPEAT) != 0) {
+            markup = repeatHelper(task);
+        }
+        if ((tokens & TOKEN_TAG) != 0) {
+            listHelper(tagService, task,tags); // Don't need to know if tags affected things since we don't show alerts for them
+            tokens = reclassify(title, task.getTitle(), tokens);
+            title = task.getTitle();
+        }
+        if ((tokens & TOKEN_DATE) != 0) {
+            markup = dayHelper(task, tokens) || markup;
+            tokens = reclassify(title, task.getTitle(), tokens);
+        }
+        if ((tokens & TOKEN_PRIORITY) != 0) {
+            markup = priorityHelper(task) || markup;
+        }
+        task.setTitle(task.getTitle().trim());
         return markup;
     }
 
+    /**
+     * Single pass over the title that records which kinds of markup could be
+     * present. Every helper only runs its patterns when its token class was
+     * seen, so plain titles never touch the regular expressions or Chronic.
+     * This may report markup that the patterns end up rejecting, but never
+     * misses markup that they would accept.
+     */
+    private static int classify(String text) {
+        String lower = text.toLowerCase(Locale.ENGLISH);
+        int tokens = 0;
+        if (lower.indexOf('#') >= 0 || lower.indexOf('@') >= 0) {
+            tokens |= TOKEN_TAG;
+        }
+        if (lower.indexOf('!') >= 0 || lower.contains("bang") || lower.contains("priority")) {
+            tokens |= TOKEN_PRIORITY;
+        }
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            if (!Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(lower.charAt(i))) {
+                if (Character.isDigit(lower.charAt(i))) {
+                    tokens |= TOKEN_DIGIT;
+                }
+                i++;
+            }
+            tokens |= classifyWord(lower.substring(start, i));
+        }
+        return tokens;
+    }
+
+    private static int classifyWord(String word) {
+        Integer tokens = KEYWORDS.get(word);
+        if (tokens != null) {
+            return tokens;
+        }
+        if (word.startsWith("every")) {
+            return TOKEN_REPEAT;
+        }
+        if (word.length() >= 3) {
+            tokens = KEYWORD_PREFIXES.get(word.substring(0, 3));
+            if (tokens != null) {
+                return tokens;
+            }
+        }
+        return 0;
+    }
+
+    // removing markup can join the surrounding text into new words
+    private static int reclassify(String before, String after, int tokens) {
+        return before.equals(after) ? tokens : classify(after);
+    }
+
     public static String trimParenthesis(String pattern){
         if (pattern.charAt(0) == '#' || pattern.charAt(0) == '@') {
             pattern = pattern.substring(1);
@@ -47,15 +155,17 @@ public class TitleParser {
         }
         return pattern;
     }
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("(\\s|^)#(\\(.*\\)|[^\\s]+)");
+    private static final Pattern CONTEXT_PATTERN = Pattern.compile("(\\s|^)@(\\(.*\\)|[^\\s]+)");
+
     public static void listHelper(TagService tagService, Task task, ArrayList<String> tags) {
         String inputText = task.getTitle();
-        Pattern tagPattern = Pattern.compile("(\\s|^)#(\\(.*\\)|[^\\s]+)");
-        Pattern contextPattern = Pattern.compile("(\\s|^)@(\\(.*\\)|[^\\s]+)");
 
         Set<String> addedTags = new HashSet<>();
 
         while(true) {
-            Matcher m = tagPattern.matcher(inputText);
+            Matcher m = TAG_PATTERN.matcher(inputText);
             if(m.find()) {
                 String tag = TitleParser.trimParenthesis(m.group(2));
                 String tagWithCase = tagService.getTagWithCase(tag);
@@ -64,7 +174,7 @@ public class TitleParser {
                 }
                 addedTags.add(tagWithCase);
             } else {
-                m = contextPattern.matcher(inputText);
+                m = CONTEXT_PATTERN.matcher(inputText);
                 if(m.find()) {
                     String tag = TitleParser.trimParenthesis(m.group(2));
                     String tagWithCase = tagService.getTagWithCase(tag);
@@ -99,19 +209,19 @@ public class TitleParser {
         return priority;
     }
 
+    private static final Pattern[] IMPORTANCE_PATTERNS = compile(
+            "()((^|[^\\w!])!+|(^|[^\\w!])!\\d)($|[^\\w!])",
+            "()(?i)((\\s?bang){1,})$",
+            "(?i)(\\spriority\\s?(\\d)$)",
+            "(?i)(\\sbang\\s?(\\d)$)",
+            "(?i)()(\\shigh(est)?|\\slow(est)?|\\stop|\\sleast) ?priority$"
+    );
+
     //priorityHelper parses the string and sets the Task's importance
     private static boolean priorityHelper(Task task) {
         String inputText = task.getTitle();
-        String[] importanceStrings = {
-                "()((^|[^\\w!])!+|(^|[^\\w!])!\\d)($|[^\\w!])",
-                "()(?i)((\\s?bang){1,})$",
-                "(?i)(\\spriority\\s?(\\d)$)",
-                "(?i)(\\sbang\\s?(\\d)$)",
-                "(?i)()(\\shigh(est)?|\\slow(est)?|\\stop|\\sleast) ?priority$"
-        };
         boolean result = false;
-        for (String importanceString:importanceStrings){
-            Pattern importancePattern = Pattern.compile(importanceString);
+        for (Pattern importancePattern : IMPORTANCE_PATTERNS){
             while (true){
                 Matcher m = importancePattern.matcher(inputText);
                 if(m.find()) {
@@ -164,86 +274,120 @@ public class TitleParser {
     }
 
     //---------------------DATE--------------------------
+    private static final Pattern[] DAY_OF_WEEK_PATTERNS = compile(
+            "(?i)(\\(|\\b)today(\\)|\\b)",
+            "(?i)(\\(|\\b)tomorrow(\\)|\\b)",
+            "(?i)(\\(|\\b)mon(day(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)tue(sday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)wed(nesday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)thu(rsday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)fri(day(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)sat(urday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)sun(day(\\)|\\b)|(\\)|\\.))"
+    );
+
+    // m.group(2) = "month"
+    //m.group(5) = "day"
+    private static final Pattern[] MONTH_PATTERNS = compile(
+            "(?i)(\\(|\\b)(jan(\\.|uary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(feb(\\.|ruary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(mar(\\.|ch))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(apr(\\.|il))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(may())(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(jun(\\.|e))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(jul(\\.|y))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(aug(\\.|ust))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(sep(\\.|tember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(oct(\\.|ober))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(nov(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(dec(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)"
+    );
+
+    // for dates in the format MM/DD
+    private static final Pattern MONTH_SLASH_DAY_PATTERN = Pattern.compile(
+            "(?i)(\\(|\\b)(1[0-2]|0?[1-9])(\\/|-)(3[0-1]|[0-2]?[0-9])(\\/|-)?(\\d{4}|\\d{2})?(\\)|\\b)");
+
+    private static final Pattern[] DAY_TIME_PATTERNS = compile(
+            "(?i)\\bbreakfast\\b",
+            "(?i)\\blunch\\b",
+            "(?i)\\bsupper\\b",
+            "(?i)\\bdinner\\b",
+            "(?i)\\bbrunch\\b",
+            "(?i)\\bmorning\\b",
+            "(?i)\\bafternoon\\b",
+            "(?i)\\bevening\\b",
+            "(?i)\\bnight\\b",
+            "(?i)\\bmidnight\\b",
+            "(?i)\\bnoon\\b"
+    );
+    private static final int[] DAY_TIME_HOURS = { 8, 12, 18, 18, 10, 8, 15, 19, 19, 0, 12 };
+
+    private static final Pattern[] TIME_PATTERNS = compile(
+            //[time] am/pm
+            "(?i)(\\b)([01]?\\d):?([0-5]\\d)? ?([ap]\\.?m?\\.?)\\b",
+            //army time
+            "(?i)\\b(([0-2]?[0-9]):([0-5][0-9]))(\\b)",
+            //[int] o'clock
+            "(?i)\\b(([01]?\\d)() ?o'? ?clock) ?([ap]\\.?m\\.?)?\\b",
+            //at [int]
+            "(?i)(\\bat) ([01]?\\d)()($|\\D($|\\D))"
+
+            //m.group(2) holds the hour
+            //m.group(3) holds the minutes
+            //m.group(4) holds am/pm
+    );
+
     //Handles setting the task's date.
     //Day of week (e.g. Monday, Tuesday,..) is overridden by a set date (e.g. October 23 2013).
     //Vague times (e.g. breakfast, night) are overridden by a set time (9 am, at 10, 17:00)
-    private static boolean dayHelper(Task task ) {
+    private static boolean dayHelper(Task task, int tokens) {
         if (task.containsNonNullValue(Task.DUE_DATE)) {
             return false;
         }
         String inputText = task.getTitle();
         Calendar cal = null;
         Boolean containsSpecificTime = false;
-        String[] daysOfWeek = {
-                "(?i)(\\(|\\b)today(\\)|\\b)",
-                "(?i)(\\(|\\b)tomorrow(\\)|\\b)",
-                "(?i)(\\(|\\b)mon(day(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)tue(sday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)wed(nesday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)thu(rsday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)fri(day(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)sat(urday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)sun(day(\\)|\\b)|(\\)|\\.))"
-        };
 
-        for (String date : daysOfWeek){
-            Pattern pattern = Pattern.compile(date);
-            Matcher m = pattern.matcher(inputText);
-            if (m.find()) {
-                String toParse = stripParens(m.group(0));
-                cal = AstridChronic.parse(toParse).getBeginCalendar();
-                inputText = removeIfParenthetical(m, inputText);
-                //then put it into task
+        if ((tokens & TOKEN_DAY_OF_WEEK) != 0) {
+            for (Pattern pattern : DAY_OF_WEEK_PATTERNS) {
+                Matcher m = pattern.matcher(inputText);
+                if (m.find()) {
+                    String toParse = stripParens(m.group(0));
+                    cal = AstridChronic.parse(toParse).getBeginCalendar();
+                    inputText = removeIfParenthetical(m, inputText);
+                    //then put it into task
+                }
             }
         }
 
-        String[] dates = {
-                "(?i)(\\(|\\b)(jan(\\.|uary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(feb(\\.|ruary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(mar(\\.|ch))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(apr(\\.|il))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(may())(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(jun(\\.|e))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(jul(\\.|y))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(aug(\\.|ust))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(sep(\\.|tember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(oct(\\.|ober))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(nov(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(dec(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)"
-        };
-
-        // m.group(2) = "month"
-        //m.group(5) = "day"
-        for (String date: dates) {
-            Pattern pattern = Pattern.compile(date);
-            Matcher m = pattern.matcher(inputText);
-
-            if (m.find()){
-                Calendar dateCal = Chronic.parse(m.group(2)).getBeginCalendar();
-                if (m.group(5) != null) {
-                    dateCal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(5)));
-                }
-                Calendar today = Calendar.getInstance();
-                if (m.group(6) != null) {
-                    dateCal.set(Calendar.YEAR, Integer.parseInt(m.group(6).trim()));
-                } else if (today.get(Calendar.MONTH) - dateCal.get(Calendar.MONTH) > 1) { //if more than a month in the past
-                    dateCal.set(Calendar.YEAR, dateCal.get(Calendar.YEAR) + 1);
-                }
-                if (cal == null) {
-                    cal = dateCal;
-                } else{
-                    cal.set(Calendar.DAY_OF_MONTH, dateCal.get(Calendar.DAY_OF_MONTH));
-                    cal.set(Calendar.MONTH,dateCal.get(Calendar.MONTH) );
-                    cal.set(Calendar.YEAR, dateCal.get(Calendar.YEAR));
+        if ((tokens & TOKEN_MONTH) != 0 && (tokens & TOKEN_DIGIT) != 0) {
+            for (Pattern pattern : MONTH_PATTERNS) {
+                Matcher m = pattern.matcher(inputText);
+                if (m.find()) {
+                    Calendar dateCal = Chronic.parse(m.group(2)).getBeginCalendar();
+                    if (m.group(5) != null) {
+                        dateCal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(5)));
+                    }
+                    Calendar today = Calendar.getInstance();
+                    if (m.group(6) != null) {
+                        dateCal.set(Calendar.YEAR, Integer.parseInt(m.group(6).trim()));
+                    } else if (today.get(Calendar.MONTH) - dateCal.get(Calendar.MONTH) > 1) { //if more than a month in the past
+                        dateCal.set(Calendar.YEAR, dateCal.get(Calendar.YEAR) + 1);
+                    }
+                    if (cal == null) {
+                        cal = dateCal;
+                    } else {
+                        cal.set(Calendar.DAY_OF_MONTH, dateCal.get(Calendar.DAY_OF_MONTH));
+                        cal.set(Calendar.MONTH, dateCal.get(Calendar.MONTH));
+                        cal.set(Calendar.YEAR, dateCal.get(Calendar.YEAR));
+                    }
+                    inputText = removeIfParenthetical(m, inputText);
                 }
-                inputText = removeIfParenthetical(m, inputText);
             }
         }
 
-        // for dates in the format MM/DD
-        Pattern p = Pattern.compile("(?i)(\\(|\\b)(1[0-2]|0?[1-9])(\\/|-)(3[0-1]|[0-2]?[0-9])(\\/|-)?(\\d{4}|\\d{2})?(\\)|\\b)");
-        Matcher match = p.matcher(inputText);
-        if (match.find()){
+        Matcher match = MONTH_SLASH_DAY_PATTERN.matcher(inputText);
+        if ((tokens & TOKEN_DIGIT) != 0 && match.find()) {
             Calendar dCal = Calendar.getInstance();
             setCalendarToDefaultTime(dCal);
             dCal.set(Calendar.MONTH, Integer.parseInt(match.group(2).trim()) - 1);
@@ -266,95 +410,68 @@ public class TitleParser {
             inputText = removeIfParenthetical(match, inputText);
         }
 
-        HashMap<String, Integer> dayTimes = new HashMap<>();
-        dayTimes.put("(?i)\\bbreakfast\\b", 8);
-        dayTimes.put("(?i)\\blunch\\b", 12);
-        dayTimes.put("(?i)\\bsupper\\b", 18);
-        dayTimes.put("(?i)\\bdinner\\b", 18);
-        dayTimes.put("(?i)\\bbrunch\\b", 10);
-        dayTimes.put("(?i)\\bmorning\\b", 8);
-        dayTimes.put("(?i)\\bafternoon\\b", 15);
-        dayTimes.put("(?i)\\bevening\\b", 19);
-        dayTimes.put("(?i)\\bnight\\b", 19);
-        dayTimes.put("(?i)\\bmidnight\\b", 0);
-        dayTimes.put("(?i)\\bnoon\\b", 12);
-
-        Set<String> keys = dayTimes.keySet();
-        for (String dayTime : keys) {
-            Pattern pattern = Pattern.compile(dayTime);
-            Matcher m = pattern.matcher(inputText);
-            if (m.find()) {
-                containsSpecificTime = true;
-                int timeHour = dayTimes.get(dayTime);
-                Calendar dayTimesCal = Calendar.getInstance();
-                setCalendarToDefaultTime(dayTimesCal);
-                dayTimesCal.set(Calendar.HOUR, timeHour);
-                if (cal == null) {
-                    cal = dayTimesCal;
-                } else {
-                    setCalendarToDefaultTime(cal);
-                    cal.set(Calendar.HOUR, timeHour);
+        if ((tokens & TOKEN_DAY_TIME) != 0) {
+            for (int i = 0; i < DAY_TIME_PATTERNS.length; i++) {
+                Matcher m = DAY_TIME_PATTERNS[i].matcher(inputText);
+                if (m.find()) {
+                    containsSpecificTime = true;
+                    int timeHour = DAY_TIME_HOURS[i];
+                    Calendar dayTimesCal = Calendar.getInstance();
+                    setCalendarToDefaultTime(dayTimesCal);
+                    dayTimesCal.set(Calendar.HOUR, timeHour);
+                    if (cal == null) {
+                        cal = dayTimesCal;
+                    } else {
+                        setCalendarToDefaultTime(cal);
+                        cal.set(Calendar.HOUR, timeHour);
+                    }
                 }
             }
         }
 
-        String[] times = {
-                //[time] am/pm
-                "(?i)(\\b)([01]?\\d):?([0-5]\\d)? ?([ap]\\.?m?\\.?)\\b",
-                //army time
-                "(?i)\\b(([0-2]?[0-9]):([0-5][0-9]))(\\b)",
-                //[int] o'clock
-                "(?i)\\b(([01]?\\d)() ?o'? ?clock) ?([ap]\\.?m\\.?)?\\b",
-                //at [int]
-                "(?i)(\\bat) ([01]?\\d)()($|\\D($|\\D))"
-
-                //m.group(2) holds the hour
-                //m.group(3) holds the minutes
-                //m.group(4) holds am/pm
-        };
-
-        for (String time : times){
-            Pattern pattern = Pattern.compile(time);
-            Matcher m = pattern.matcher(inputText);
-            if (m.find()) {
-                containsSpecificTime = true;
-                Calendar today = Calendar.getInstance();
-                Calendar timeCal = Calendar.getInstance();
-                setCalendarToDefaultTime(timeCal);
-                timeCal.set(Calendar.HOUR, Integer.parseInt(m.group(2)));
-
-                if (m.group(3) != null && !m.group(3).trim().equals("")) {
-                    timeCal.set(Calendar.MINUTE, Integer.parseInt(m.group(3)));
-                } else {
-                    timeCal.set(Calendar.MINUTE, 0);
-                }
-                if (Integer.parseInt(m.group(2)) <= 12) {
-                    timeCal.set(Calendar.AM_PM, ampmToNumber(m.group(4)));
-                }
-
-                //sets it to the next occurrence of that hour if no am/pm is provided. doesn't include military time
-                if (Integer.parseInt(m.group(2))<= 12 && (m.group(4)==null || (m.group(4).trim()).equals(""))) {
-                    while (timeCal.getTime().getTime() < today.getTime().getTime()){
-                        timeCal.set(Calendar.HOUR_OF_DAY, timeCal.get(Calendar.HOUR_OF_DAY)+12);
+        if ((tokens & TOKEN_DIGIT) != 0) {
+            for (int i = 0; i < TIME_PATTERNS.length; i++) {
+                Matcher m = TIME_PATTERNS[i].matcher(inputText);
+                if (m.find()) {
+                    containsSpecificTime = true;
+                    Calendar today = Calendar.getInstance();
+                    Calendar timeCal = Calendar.getInstance();
+                    setCalendarToDefaultTime(timeCal);
+                    timeCal.set(Calendar.HOUR, Integer.parseInt(m.group(2)));
+
+                    if (m.group(3) != null && !m.group(3).trim().equals("")) {
+                        timeCal.set(Calendar.MINUTE, Integer.parseInt(m.group(3)));
+                    } else {
+                        timeCal.set(Calendar.MINUTE, 0);
                     }
-                } else { //if am/pm is provided and the time is in the past, set it to the next day. Military time included.
-                    if (timeCal.get(Calendar.HOUR) !=0 && (timeCal.getTime().getTime() < today.getTime().getTime())) {
-                        timeCal.set(Calendar.DAY_OF_MONTH, timeCal.get(Calendar.DAY_OF_MONTH) + 1);
+                    if (Integer.parseInt(m.group(2)) <= 12) {
+                        timeCal.set(Calendar.AM_PM, ampmToNumber(m.group(4)));
                     }
-                    if (timeCal.get(Calendar.HOUR) == 0){
-                        timeCal.set(Calendar.HOUR, 12);
+
+                    //sets it to the next occurrence of that hour if no am/pm is provided. doesn't include military time
+                    if (Integer.parseInt(m.group(2))<= 12 && (m.group(4)==null || (m.group(4).trim()).equals(""))) {
+                        while (timeCal.getTime().getTime() < today.getTime().getTime()){
+                            timeCal.set(Calendar.HOUR_OF_DAY, timeCal.get(Calendar.HOUR_OF_DAY)+12);
+                        }
+                    } else { //if am/pm is provided and the time is in the past, set it to the next day. Military time included.
+                        if (timeCal.get(Calendar.HOUR) !=0 && (timeCal.getTime().getTime() < today.getTime().getTime())) {
+                            timeCal.set(Calendar.DAY_OF_MONTH, timeCal.get(Calendar.DAY_OF_MONTH) + 1);
+                        }
+                        if (timeCal.get(Calendar.HOUR) == 0){
+                            timeCal.set(Calendar.HOUR, 12);
+                        }
                     }
-                }
 
-                if (cal == null){
-                    cal = timeCal;
-                } else {
-                    cal.set(Calendar.HOUR, timeCal.get(Calendar.HOUR));
-                    cal.set(Calendar.MINUTE,timeCal.get(Calendar.MINUTE) );
-                    cal.set(Calendar.SECOND, timeCal.get(Calendar.SECOND));
-                    cal.set(Calendar.AM_PM, timeCal.get(Calendar.AM_PM));
+                    if (cal == null){
+                        cal = timeCal;
+                    } else {
+                        cal.set(Calendar.HOUR, timeCal.get(Calendar.HOUR));
+                        cal.set(Calendar.MINUTE,timeCal.get(Calendar.MINUTE) );
+                        cal.set(Calendar.SECOND, timeCal.get(Calendar.SECOND));
+                        cal.set(Calendar.AM_PM, timeCal.get(Calendar.AM_PM));
+                    }
+                    break;
                 }
-                break;
             }
         }
 
@@ -373,81 +490,72 @@ public class TitleParser {
     }
     //---------------------DATE--------------------------
 
+    private static final Pattern[] REPEAT_PATTERNS = compile(
+            "(?i)\\bevery ?\\w{0,6} days?\\b",
+            "(?i)\\bevery ?\\w{0,6} ?nights?\\b",
+            "(?i)\\bevery ?\\w{0,6} ?mornings?\\b",
+            "(?i)\\bevery ?\\w{0,6} ?evenings?\\b",
+            "(?i)\\bevery ?\\w{0,6} ?afternoons?\\b",
+            "(?i)\\bevery \\w{0,6} ?weeks?\\b",
+            "(?i)\\bevery \\w{0,6} ?(mon|tues|wednes|thurs|fri|satur|sun)days?\\b",
+            "(?i)\\bevery \\w{0,6} ?months?\\b",
+            "(?i)\\bevery \\w{0,6} ?years?\\b",
+            //pre-determined intervals of 1
+            "(?i)\\bdaily\\b",
+            "(?i)\\beveryday\\b",
+            "(?i)\\bweekly\\b",
+            "(?i)\\bmonthly\\b",
+            "(?i)\\byearly\\b"
+    );
+    private static final Frequency[] REPEAT_FREQUENCIES = {
+            Frequency.DAILY, Frequency.DAILY, Frequency.DAILY, Frequency.DAILY, Frequency.DAILY,
+            Frequency.WEEKLY, Frequency.WEEKLY, Frequency.MONTHLY, Frequency.YEARLY,
+            Frequency.DAILY, Frequency.DAILY, Frequency.WEEKLY, Frequency.MONTHLY, Frequency.YEARLY
+    };
+    private static final int FIRST_INTERVAL_ONE_PATTERN = 9;
+
     //Parses through the text and sets the frequency of the task.
     private static boolean repeatHelper(Task task) {
         if (task.containsNonNullValue(Task.RECURRENCE)) {
             return false;
         }
         String inputText = task.getTitle();
-        HashMap<String, Frequency> repeatTimes = new HashMap<>();
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} days?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?nights?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?mornings?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?evenings?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?afternoons?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?weeks?\\b", Frequency.WEEKLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?(mon|tues|wednes|thurs|fri|satur|sun)days?\\b", Frequency.WEEKLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?months?\\b", Frequency.MONTHLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?years?\\b", Frequency.YEARLY);
-
-        HashMap<String, Frequency> repeatTimesIntervalOne = new HashMap<>();
-        //pre-determined intervals of 1
-        repeatTimesIntervalOne.put( "(?i)\\bdaily\\b" , Frequency.DAILY);
-        repeatTimesIntervalOne.put( "(?i)\\beveryday\\b" , Frequency.DAILY);
-        repeatTimesIntervalOne.put( "(?i)\\bweekly\\b" , Frequency.WEEKLY);
-        repeatTimesIntervalOne.put( "(?i)\\bmonthly\\b" ,Frequency.MONTHLY);
-        repeatTimesIntervalOne.put( "(?i)\\byearly\\b" , Frequency.YEARLY);
-
-        Set<String> keys = repeatTimes.keySet();
-        for (String repeatTime : keys){
-            Pattern pattern = Pattern.compile(repeatTime);
-            Matcher m = pattern.matcher(inputText);
-            if (m.find()){
-                Frequency rtime = repeatTimes.get(repeatTime);
-                RRule rrule = new RRule();
-                rrule.setFreq(rtime);
-                rrule.setInterval(findInterval(inputText));
-                task.setRecurrence(rrule.toIcal());
-                return true;
-            }
-        }
-
-        for (String repeatTimeIntervalOne:repeatTimesIntervalOne.keySet()){
-            Pattern pattern = Pattern.compile(repeatTimeIntervalOne);
-            Matcher m = pattern.matcher(inputText);
+        for (int i = 0; i < REPEAT_PATTERNS.length; i++) {
+            Matcher m = REPEAT_PATTERNS[i].matcher(inputText);
             if (m.find()) {
-                Frequency rtime = repeatTimesIntervalOne.get(repeatTimeIntervalOne);
                 RRule rrule = new RRule();
-                rrule.setFreq(rtime);
-                rrule.setInterval(1);
-                String thing = rrule.toIcal();
-                task.setRecurrence(thing);
+                rrule.setFreq(REPEAT_FREQUENCIES[i]);
+                rrule.setInterval(i < FIRST_INTERVAL_ONE_PATTERN ? findInterval(inputText) : 1);
+                task.setRecurrence(rrule.toIcal());
                 return true;
             }
         }
         return false;
     }
 
-    //helper method for repeatHelper.
-    private static int findInterval(String inputText) {
-        HashMap<String,Integer> wordsToNum = new HashMap<>();
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile("(?i)\\bevery (\\w*)\\b");
+    private static final Map<String, Integer> WORDS_TO_NUM = new HashMap<>();
+
+    static {
         String[] words = new String[] {
                 "one", "two", "three", "four", "five", "six",
                 "seven", "eight", "nine", "ten", "eleven", "twelve"
         };
         for(int i = 0; i < words.length; i++) {
-            wordsToNum.put(words[i], i+1);
-            wordsToNum.put(Integer.toString(i + 1), i + 1);
+            WORDS_TO_NUM.put(words[i], i+1);
+            WORDS_TO_NUM.put(Integer.toString(i + 1), i + 1);
         }
-        wordsToNum.put("other" , 2);
+        WORDS_TO_NUM.put("other" , 2);
+    }
 
-        Pattern pattern = Pattern.compile("(?i)\\bevery (\\w*)\\b");
+    //helper method for repeatHelper.
+    private static int findInterval(String inputText) {
         int interval = 1;
-        Matcher m = pattern.matcher(inputText);
+        Matcher m = INTERVAL_PATTERN.matcher(inputText);
         if (m.find() && m.group(1)!=null){
             String intervalStr = m.group(1);
-            if (wordsToNum.containsKey(intervalStr)) {
-                interval = wordsToNum.get(intervalStr);
+            if (WORDS_TO_NUM.containsKey(intervalStr)) {
+                interval = WORDS_TO_NUM.get(intervalStr);
             } else {
                 try {
                     interval = Integer.parseInt(intervalStr);
@@ -460,6 +568,14 @@ public class TitleParser {
         return interval;
     }
 
+    private static Pattern[] compile(String... regexes) {
+        Pattern[] patterns = new Pattern[regexes.length];
+        for (int i = 0; i < regexes.length; i++) {
+            patterns[i] = Pattern.compile(regexes[i]);
+        }
+        return patterns;
+    }
+
     //helper method for DayHelper. Resets the time on the calendar to 00:00:00 am
     private static void setCalendarToDefaultTime(Calendar cal){
         cal.set(Calendar.HOUR, 0);
@@ -10,15 +10,9 @@ import android.os.IBinder;
 import android.view.View;
 import android.widget.RemoteViews;
 
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.astrid.actfm.TagViewFragment;
 import com.todoroo.astrid.api.Filter;
-import com.todoroo.astrid.api.FilterWithCustomIntent;
 import com.todoroo.astrid.core.SortHelper;
-import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.data.Task;
-import com.todoroo.astrid.service.TaskService;
-import com.todoroo.astrid.subtasks.SubtasksHelper;
 import com.todoroo.astrid.utility.Constants;
 
 import org.slf4j.Logger;
@@ -27,7 +21,9 @@ import org.tasks.R;
 import org.tasks.injection.InjectingService;
 import org.tasks.preferences.Preferences;
 import org.tasks.widget.DueDateFormatter;
+import org.tasks.widget.WidgetDataService;
 import org.tasks.widget.WidgetHelper;
+import org.tasks.widget.WidgetSnapshot;
 
 import javax.inject.Inject;
 
@@ -39,11 +35,9 @@ public class WidgetUpdateService extends InjectingService {
 
     public static final String EXTRA_WIDGET_ID = "widget_id"; //$NON-NLS-1$
 
-    @Inject Database database;
-    @Inject TaskService taskService;
     @Inject WidgetHelper widgetHelper;
     @Inject Preferences preferences;
-    @Inject SubtasksHelper subtasksHelper;
+    @Inject WidgetDataService widgetDataService;
     @Inject DueDateFormatter dueDateFormatter;
 
     @Override
@@ -112,32 +106,19 @@ public class WidgetUpdateService extends InjectingService {
 
         int numberOfTasks = NUM_VISIBLE_TASKS;
 
-        TodorooCursor<Task> cursor = null;
         Filter filter = null;
         try {
             filter = widgetHelper.getFilter(context, widgetId);
-            if (filter.isTagFilter()) {
-                ((FilterWithCustomIntent) filter).customTaskList = new ComponentName(context, TagViewFragment.class); // In case legacy widget was created with subtasks fragment
-            }
             views.setTextViewText(R.id.widget_title, filter.title);
             views.removeAllViews(R.id.taskbody);
 
-            int flags = preferences.getSortFlags();
-            int sort = preferences.getSortMode();
-            String query = SortHelper.adjustQueryForFlagsAndSort(
-                    filter.getSqlQuery(), flags, sort).replaceAll("LIMIT \\d+", "") + " LIMIT " + numberOfTasks;
-
             String tagName = preferences.getStringValue(WidgetConfigActivity.PREF_TITLE + widgetId);
             boolean showDueDates = preferences.getBoolean(WidgetConfigActivity.PREF_SHOW_DUE_DATE + widgetId, false);
-            query = subtasksHelper.applySubtasksToWidgetFilter(filter, query, tagName, numberOfTasks);
-
-            database.openForReading();
-            cursor = taskService.fetchFiltered(query, null, Task.ID, Task.TITLE, Task.DUE_DATE, Task.COMPLETION_DATE);
+            WidgetSnapshot snapshot = widgetDataService.getSnapshot(filter, tagName, SortHelper.SORT_AUTO, numberOfTasks);
             int i;
             Resources r = context.getResources();
-            for (i = 0; i < cursor.getCount() && i < numberOfTasks; i++) {
-                cursor.moveToPosition(i);
-                Task task = new Task(cursor);
+            for (i = 0; i < snapshot.size() && i < numberOfTasks; i++) {
+                Task task = snapshot.get(i);
                 String textContent = task.getTitle();
                 int textColor = r.getColor(darkTheme
                         ? R.color.widget_text_color_dark
@@ -160,7 +141,7 @@ public class WidgetUpdateService extends InjectingService {
                 views.addView(R.id.taskbody, row);
 
                 RemoteViews separator = new RemoteViews(Constants.PACKAGE, R.layout.widget_separator);
-                boolean isLastRow = (i == cursor.getCount() - 1) || (i == numberOfTasks - 1);
+                boolean isLastRow = (i == snapshot.size() - 1) || (i == numberOfTasks - 1);
                 if (!isLastRow) {
                     views.addView(R.id.taskbody, separator);
                 }
@@ -173,10 +154,6 @@ public class WidgetUpdateService extends InjectingService {
 
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-        } finally {
-            if(cursor != null) {
-                cursor.close();
-            }
         }
 
         PendingIntent pListIntent = widgetHelper.getListIntent(context, filter, widgetId);
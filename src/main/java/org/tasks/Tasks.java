@@ -1,5 +1,7 @@
 package org.tasks;
 
+import android.os.SystemClock;
+
 import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.StoreObjectDao;
@@ -13,6 +15,7 @@ import com.todoroo.astrid.gtasks.GtasksMetadataService;
 import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.GtasksTaskListUpdater;
 import com.todoroo.astrid.gtasks.sync.GtasksSyncService;
+import com.todoroo.astrid.service.StartupPipeline;
 import com.todoroo.astrid.service.SyncV2Service;
 import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.service.UpgradeService;
@@ -51,11 +54,22 @@ public class Tasks extends InjectingApplication {
     @Inject RefreshScheduler refreshScheduler;
     @Inject SyncThrottle syncThrottle;
     @Inject Preferences preferences;
+    @Inject StartupPipeline startupPipeline;
 
     @Override
     public void onCreate() {
+        long start = SystemClock.elapsedRealtime();
+
         super.onCreate();
 
+        startupPipeline.begin(start);
+        startupPipeline.record("create application", start);
+
         preferences.setupLogger();
+
+        // synchronously, so that changes are queued whichever component woke the process
+        start = startupPipeline.now();
+        gtasksSyncService.initialize();
+        startupPipeline.record("sync listener", start);
     }
 }
@@ -0,0 +1,28 @@
+package org.tasks.activities;
+
+import com.todoroo.astrid.service.StartupPipeline;
+
+import org.tasks.scheduling.BackgroundExecutor;
+
+import javax.inject.Inject;
+
+public class BackgroundWorkActivity extends ReportActivity {
+
+    @Inject BackgroundExecutor backgroundExecutor;
+    @Inject StartupPipeline startupPipeline;
+
+    @Override
+    protected String getReport() {
+        return startupPipeline.getReport() + "\n" + backgroundExecutor.getReport();
+    }
+
+    @Override
+    protected void reset() {
+        backgroundExecutor.reset();
+    }
+
+    @Override
+    protected String getExportFileName() {
+        return "tasks-background-work.txt";
+    }
+}
@@ -4,9 +4,8 @@ import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DialogUtilities;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gcal.GCalHelper;
 import com.todoroo.astrid.service.TaskService;
@@ -20,6 +19,7 @@ public class DeleteAllCalendarEventsActivity extends InjectingActivity {
 
     @Inject TaskService taskService;
     @Inject GCalHelper gcalHelper;
+    @Inject ArchiveDao archiveDao;
 
     private ProgressDialog pd;
 
@@ -36,21 +36,7 @@ public class DeleteAllCalendarEventsActivity extends InjectingActivity {
                         pd = DialogUtilities.runWithProgressDialog(DeleteAllCalendarEventsActivity.this, new Runnable() {
                             @Override
                             public void run() {
-                                int deletedEventCount = 0;
-                                TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID, Task.CALENDAR_URI).where(
-                                        Task.CALENDAR_URI.isNotNull()));
-                                try {
-                                    int length = cursor.getCount();
-                                    for (int i = 0; i < length; i++) {
-                                        cursor.moveToNext();
-                                        Task task = new Task(cursor);
-                                        if (gcalHelper.deleteTaskEvent(task)) {
-                                            deletedEventCount++;
-                                        }
-                                    }
-                                } finally {
-                                    cursor.close();
-                                }
+                                int deletedEventCount = gcalHelper.deleteTaskEvents(Task.CALENDAR_URI.isNotNull());
                                 // mass update the CALENDAR_URI here,
                                 // since the GCalHelper doesnt save it due to performance-reasons
                                 Task template = new Task();
@@ -58,6 +44,7 @@ public class DeleteAllCalendarEventsActivity extends InjectingActivity {
                                 taskService.update(
                                         Task.CALENDAR_URI.isNotNull(),
                                         template);
+                                archiveDao.update(Task.CALENDAR_URI.isNotNull(), template);
                                 showResult(R.string.EPr_manage_delete_all_gcal_status, deletedEventCount);
                             }
                         });
@@ -4,11 +4,9 @@ import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gcal.GCalHelper;
 import com.todoroo.astrid.service.TaskService;
@@ -22,6 +20,7 @@ public class DeleteCompletedActivity extends InjectingActivity {
 
     @Inject TaskService taskService;
     @Inject GCalHelper gcalHelper;
+    @Inject ArchiveDao archiveDao;
 
     private ProgressDialog pd;
 
@@ -39,23 +38,13 @@ public class DeleteCompletedActivity extends InjectingActivity {
                         pd = DialogUtilities.runWithProgressDialog(DeleteCompletedActivity.this, new Runnable() {
                             @Override
                             public void run() {
-                                TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID, Task.CALENDAR_URI).where(
-                                        Criterion.and(Task.COMPLETION_DATE.gt(0), Task.CALENDAR_URI.isNotNull())));
-                                try {
-                                    int length = cursor.getCount();
-                                    for (int i = 0; i < length; i++) {
-                                        cursor.moveToNext();
-                                        Task task = new Task(cursor);
-                                        gcalHelper.deleteTaskEvent(task);
-                                    }
-                                } finally {
-                                    cursor.close();
-                                }
+                                gcalHelper.deleteTaskEvents(Task.COMPLETION_DATE.gt(0));
                                 Task template = new Task();
                                 template.setDeletionDate(
                                         DateUtilities.now());
                                 int result = taskService.update(
-                                        Task.COMPLETION_DATE.gt(0), template);
+                                        Task.COMPLETION_DATE.gt(0), template) +
+                                        archiveDao.update(Task.COMPLETION_DATE.gt(0), template);
                                 showResult(
                                         R.string.EPr_manage_delete_completed_status,
                                         result);
@@ -4,10 +4,9 @@ import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 
-import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DialogUtilities;
+import com.todoroo.astrid.dao.ArchiveDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gcal.GCalHelper;
 import com.todoroo.astrid.service.TaskService;
@@ -21,6 +20,7 @@ public class DeleteCompletedEventsActivity extends InjectingActivity {
 
     @Inject TaskService taskService;
     @Inject GCalHelper gcalHelper;
+    @Inject ArchiveDao archiveDao;
 
     private ProgressDialog pd;
 
@@ -38,28 +38,14 @@ public class DeleteCompletedEventsActivity extends InjectingActivity {
                         pd = DialogUtilities.runWithProgressDialog(DeleteCompletedEventsActivity.this, new Runnable() {
                             @Override
                             public void run() {
-                                int deletedEventCount = 0;
-                                TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID, Task.CALENDAR_URI).where(
-                                        Criterion.and(Task.COMPLETION_DATE.gt(0), Task.CALENDAR_URI.isNotNull())));
-                                try {
-                                    int length = cursor.getCount();
-                                    for (int i = 0; i < length; i++) {
-                                        cursor.moveToNext();
-                                        Task task = new Task(cursor);
-                                        if (gcalHelper.deleteTaskEvent(task)) {
-                                            deletedEventCount++;
-                                        }
-                                    }
-                                } finally {
-                                    cursor.close();
-                                }
+                                int deletedEventCount = gcalHelper.deleteTaskEvents(Task.COMPLETION_DATE.gt(0));
                                 // mass update the CALENDAR_URI here,
                                 // since the GCalHelper doesnt save it due to performance-reasons
                                 Task template = new Task();
                                 template.setCalendarUri(""); //$NON-NLS-1$
-                                taskService.update(
-                                        Criterion.and(Task.COMPLETION_DATE.gt(0), Task.CALENDAR_URI.isNotNull()),
-                                        template);
+                                Criterion completedWithEvent = Criterion.and(Task.COMPLETION_DATE.gt(0), Task.CALENDAR_URI.isNotNull());
+                                taskService.update(completedWithEvent, template);
+                                archiveDao.update(completedWithEvent, template);
                                 showResult(R.string.EPr_manage_delete_completed_gcal_status, deletedEventCount);
                             }
                         });
@@ -4,9 +4,6 @@ import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.data.Task;
@@ -42,18 +39,7 @@ public class PurgeDeletedActivity extends InjectingActivity {
                         pd = DialogUtilities.runWithProgressDialog(PurgeDeletedActivity.this, new Runnable() {
                             @Override
                             public void run() {
-                                TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID, Task.TITLE, Task.CALENDAR_URI).where(
-                                        Criterion.and(Task.DELETION_DATE.gt(0), Task.CALENDAR_URI.isNotNull())));
-                                try {
-                                    int length = cursor.getCount();
-                                    for (int i = 0; i < length; i++) {
-                                        cursor.moveToNext();
-                                        Task task = new Task(cursor);
-                                        gcalHelper.deleteTaskEvent(task);
-                                    }
-                                } finally {
-                                    cursor.close();
-                                }
+                                gcalHelper.deleteTaskEvents(Task.DELETION_DATE.gt(0));
                                 int result = taskDeleter.purgeDeletedTasks();
                                 metadataDao.removeDanglingMetadata();
                                 showResult(R.string.EPr_manage_purge_deleted_status, result);
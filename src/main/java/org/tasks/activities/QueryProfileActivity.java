@@ -0,0 +1,29 @@
+package org.tasks.activities;
+
+import com.todoroo.astrid.dao.Database;
+
+import org.tasks.scheduling.DatabaseMaintenanceIntentService;
+
+import javax.inject.Inject;
+
+public class QueryProfileActivity extends ReportActivity {
+
+    @Inject Database database;
+
+    @Override
+    protected String getReport() {
+        String maintenance = preferences.getStringValue(DatabaseMaintenanceIntentService.PREF_LAST_REPORT);
+        String profile = database.getProfiler().getReport();
+        return maintenance == null ? profile : maintenance + "\n" + profile;
+    }
+
+    @Override
+    protected void reset() {
+        database.getProfiler().reset();
+    }
+
+    @Override
+    protected String getExportFileName() {
+        return "tasks-query-profile.txt";
+    }
+}
@@ -0,0 +1,97 @@
+package org.tasks.activities;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.R;
+import org.tasks.injection.InjectingActivity;
+import org.tasks.preferences.Preferences;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.inject.Inject;
+
+/**
+ * Shows a plain text diagnostics report that can be reset or exported to the
+ * backup directory
+ */
+public abstract class ReportActivity extends InjectingActivity {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportActivity.class);
+
+    @Inject Preferences preferences;
+
+    private TextView report;
+
+    protected abstract String getReport();
+
+    protected abstract void reset();
+
+    protected abstract String getExportFileName();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.report_activity);
+        report = (TextView) findViewById(R.id.report);
+
+        findViewById(R.id.export).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                export();
+            }
+        });
+        findViewById(R.id.reset).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                reset();
+                refresh();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        refresh();
+    }
+
+    private void refresh() {
+        report.setText(getReport());
+    }
+
+    private void export() {
+        File directory = preferences.getBackupDirectory();
+        if (directory == null) {
+            Toast.makeText(this, R.string.external_storage_unavailable, Toast.LENGTH_LONG).show();
+            return;
+        }
+        File file = new File(directory, getExportFileName());
+        Writer writer = null;
+        try {
+            writer = new FileWriter(file);
+            writer.write(getReport());
+            Toast.makeText(this, getString(R.string.report_exported, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            Toast.makeText(this, R.string.external_storage_unavailable, Toast.LENGTH_LONG).show();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.tasks.activities;
+
+import org.tasks.sync.SyncTelemetry;
+
+import javax.inject.Inject;
+
+public class SyncTelemetryActivity extends ReportActivity {
+
+    @Inject SyncTelemetry telemetry;
+
+    @Override
+    protected String getReport() {
+        return telemetry.getReport();
+    }
+
+    @Override
+    protected void reset() {
+        telemetry.reset();
+    }
+
+    @Override
+    protected String getExportFileName() {
+        return "tasks-sync-telemetry.txt";
+    }
+}
@@ -1,58 +1,81 @@
 package org.tasks.filters;
 
 import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.actfm.TagViewFragment;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterListItem;
+import com.todoroo.astrid.api.FilterWithCustomIntent;
 import com.todoroo.astrid.api.PermaSql;
+import com.todoroo.astrid.dao.TagCountDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class FilterCounter {
-    // Previous solution involved a queue of filters and a filterSizeLoadingThread. The filterSizeLoadingThread had
-    // a few problems: how to make sure that the thread is resumed when the controlling activity is resumed, and
-    // how to make sure that the the filterQueue does not accumulate filters without being processed. I am replacing
-    // both the queue and a the thread with a thread pool, which will shut itself off after a second if it has
-    // nothing to do (corePoolSize == 0, which makes it available for garbage collection), and will wake itself up
-    // if new filters are queued (obviously it cannot be garbage collected if it is possible for new filters to
-    // be added).
-    private final ExecutorService executorService;
+    private static final String REFRESH_KEY = "filter-counts"; //$NON-NLS-1$
 
     private final Map<Filter, Integer> filterCounts = new ConcurrentHashMap<>();
 
+    /** callbacks waiting on the queued refresh */
+    private final List<Runnable> pendingCallbacks = new ArrayList<>();
+
     private final TaskDao taskDao;
+    private final TagCountDao tagCountDao;
+    private final BackgroundExecutor backgroundExecutor;
 
     @Inject
-    public FilterCounter(TaskDao taskDao) {
-        this(taskDao, new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
-    }
-
-    FilterCounter(TaskDao taskDao, ExecutorService executorService) {
+    public FilterCounter(TaskDao taskDao, TagCountDao tagCountDao, BackgroundExecutor backgroundExecutor) {
         this.taskDao = taskDao;
-        this.executorService = executorService;
+        this.tagCountDao = tagCountDao;
+        this.backgroundExecutor = backgroundExecutor;
     }
 
-    public void refreshFilterCounts(final Runnable onComplete) {
-        executorService.submit(new Runnable() {
+    /**
+     * Recount all registered filters. Requests made while a refresh is
+     * still queued are folded into it, and every callback runs once the
+     * counts are updated.
+     */
+    public void refreshFilterCounts(Runnable onComplete) {
+        if (onComplete != null) {
+            synchronized (pendingCallbacks) {
+                pendingCallbacks.add(onComplete);
+            }
+        }
+        backgroundExecutor.execute(Lane.UI_CRITICAL, REFRESH_KEY, new Runnable() {
             @Override
             public void run() {
+                List<Runnable> callbacks;
+                synchronized (pendingCallbacks) {
+                    callbacks = new ArrayList<>(pendingCallbacks);
+                    pendingCallbacks.clear();
+                }
+                // tag filters are read from the tag count table in one query
+                Map<String, Integer> tagCounts = tagCountDao.getVisibleCounts(DateUtilities.now());
                 for (Filter filter : filterCounts.keySet()) {
-                    int size = countTasks(filter);
+                    String tagUuid = getTagUuid(filter);
+                    int size;
+                    if (tagUuid != null && tagCounts != null) {
+                        Integer count = tagCounts.get(tagUuid);
+                        size = count == null ? 0 : count;
+                    } else {
+                        size = countTasks(filter);
+                    }
                     filterCounts.put(filter, size);
                 }
-                if (onComplete != null) {
-                    onComplete.run();
+                for (Runnable callback : callbacks) {
+                    callback.run();
                 }
             }
         });
@@ -70,10 +93,20 @@ public class FilterCounter {
         return filterCounts.get(filter);
     }
 
+    private static String getTagUuid(Filter filter) {
+        if (filter instanceof FilterWithCustomIntent) {
+            FilterWithCustomIntent customFilter = (FilterWithCustomIntent) filter;
+            if (customFilter.customExtras != null && customFilter.customTaskList != null &&
+                    TagViewFragment.class.getName().equals(customFilter.customTaskList.getClassName())) {
+                return customFilter.customExtras.getString(TagViewFragment.EXTRA_TAG_UUID);
+            }
+        }
+        return null;
+    }
+
     private int countTasks(Filter filter) {
         String queryTemplate = PermaSql.replacePlaceholders(filter.getSqlQuery());
-        TodorooCursor<Task> cursor = taskDao.query(
-                Query.select(Task.ID).withQueryTemplate(queryTemplate));
+        TodorooCursor<Task> cursor = taskDao.queryFilter(queryTemplate, Task.ID);
         try {
             return cursor.getCount();
         } finally {
@@ -32,6 +32,9 @@ import org.tasks.activities.DeleteCompletedEventsActivity;
 import org.tasks.activities.ExportTaskActivity;
 import org.tasks.activities.ImportTaskActivity;
 import org.tasks.activities.PurgeDeletedActivity;
+import org.tasks.activities.BackgroundWorkActivity;
+import org.tasks.activities.QueryProfileActivity;
+import org.tasks.activities.SyncTelemetryActivity;
 import org.tasks.preferences.AppearancePreferences;
 import org.tasks.preferences.BackupPreferences;
 import org.tasks.preferences.BasicPreferences;
@@ -74,6 +77,9 @@ import dagger.Provides;
                 ExportTaskActivity.class,
                 ClearAllDataActivity.class,
                 PurgeDeletedActivity.class,
+                QueryProfileActivity.class,
+                BackgroundWorkActivity.class,
+                SyncTelemetryActivity.class,
                 DeleteCompletedActivity.class,
                 DeleteCompletedEventsActivity.class,
                 DeleteAllCalendarEventsActivity.class,
@@ -8,7 +8,9 @@ import dagger.Module;
 @Module(addsTo = TasksModule.class,
         injects = {
                 AlarmSchedulingIntentService.class,
+                ArchiveIntentService.class,
                 BackupIntentService.class,
+                DatabaseMaintenanceIntentService.class,
                 GtasksBackgroundService.class,
                 MidnightRefreshService.class,
                 RefreshSchedulerIntentService.class,
@@ -2,7 +2,11 @@ package org.tasks.injection;
 
 import android.content.Context;
 
+import com.todoroo.astrid.gtasks.api.GtasksRequestPolicy;
+import com.todoroo.astrid.gtasks.api.RequestPolicy;
+
 import org.tasks.Tasks;
+import org.tasks.scheduling.BackgroundExecutor;
 
 import javax.inject.Singleton;
 
@@ -23,4 +27,15 @@ public class TasksModule {
     public Context getApplicationContext() {
         return context.getApplicationContext();
     }
+
+    @Singleton
+    @Provides
+    public BackgroundExecutor getBackgroundExecutor() {
+        return new BackgroundExecutor();
+    }
+
+    @Provides
+    public RequestPolicy getRequestPolicy(GtasksRequestPolicy requestPolicy) {
+        return requestPolicy;
+    }
 }
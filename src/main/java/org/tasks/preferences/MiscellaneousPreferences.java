@@ -113,7 +113,9 @@ public class MiscellaneousPreferences extends InjectingPreferenceActivity {
                 @Override
                 public boolean onPreferenceChange(Preference preference, Object newValue) {
                     if (newValue != null && ((Boolean) newValue)) {
-                        calendarAlarmScheduler.scheduleCalendarAlarms(MiscellaneousPreferences.this, true);
+                        calendarAlarmScheduler.scheduleCalendarAlarms(true);
+                    } else {
+                        calendarAlarmScheduler.cancelCalendarAlarms();
                     }
                     return true;
                 }
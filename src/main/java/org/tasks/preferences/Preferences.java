@@ -105,6 +105,14 @@ public class Preferences {
         return getIntegerFromString(R.string.p_default_reminders_mode_key, 0);
     }
 
+    /**
+     * @return days after completion or deletion that tasks are archived, or 0
+     * to keep them in the task tables
+     */
+    public int getArchiveAfterDays() {
+        return getIntegerFromString(R.string.p_archive_after, 90);
+    }
+
     public int getIntegerFromString(int keyResource, int defaultValue) {
         Resources r = context.getResources();
         String value = prefs.getString(r.getString(keyResource), null);
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.Broadcaster;
 import org.tasks.injection.InjectingBroadcastReceiver;
+import org.tasks.scheduling.RefreshSchedulerIntentService;
 
 import javax.inject.Inject;
 
@@ -23,5 +24,7 @@ public class RefreshReceiver extends InjectingBroadcastReceiver {
         log.debug("onReceive(context, {})", intent);
 
         broadcaster.refresh();
+
+        context.startService(new Intent(context, RefreshSchedulerIntentService.class));
     }
 }
@@ -0,0 +1,41 @@
+package org.tasks.scheduling;
+
+import com.todoroo.astrid.dao.ArchiveDao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
+public class ArchiveIntentService extends MidnightIntentService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveIntentService.class);
+
+    @Inject ArchiveDao archiveDao;
+
+    public ArchiveIntentService() {
+        super(ArchiveIntentService.class.getSimpleName());
+    }
+
+    @Override
+    void run() {
+        int days = preferences.getArchiveAfterDays();
+        if (days <= 0) {
+            return;
+        }
+        try {
+            int archived = archiveDao.archive(currentTimeMillis() - DAYS.toMillis(days));
+            log.info("Archived {} tasks", archived);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    String getLastRunPreference() {
+        return "archiveDate";
+    }
+}
@@ -0,0 +1,327 @@
+package org.tasks.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs background work on a small, fixed set of threads split into
+ * {@link Lane lanes}, so that maintenance cannot delay work the user is
+ * waiting on.
+ * <p>
+ * Work submitted with a key is coalesced: while a job with the same key is
+ * still queued, submitting again returns the queued job instead of adding
+ * another. Keyed jobs and schedules can be cancelled together with
+ * {@link #cancel(String)}, which is how screens drop their work when they
+ * are paused. Queue depth and wait and run times are kept for each lane.
+ */
+public class BackgroundExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundExecutor.class);
+
+    public enum Lane {
+        /** work the visible screen is waiting on, like list and count refreshes */
+        UI_CRITICAL(2, Thread.NORM_PRIORITY),
+        /** long running work the user started, like sync, backups and imports */
+        USER_INITIATED(3, Thread.NORM_PRIORITY - 1),
+        /** cleanup and scheduling that nobody is waiting on, run one job at a time in order */
+        MAINTENANCE(1, Thread.MIN_PRIORITY);
+
+        private final int threads;
+        private final int priority;
+
+        Lane(int threads, int priority) {
+            this.threads = threads;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+    private final ScheduledExecutorService timer;
+
+    /** keyed jobs that are queued or running, and keyed schedules */
+    private final Map<String, List<Job>> keyed = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> schedules = new HashMap<>();
+
+    public BackgroundExecutor() {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneExecutor(lane));
+        }
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new LaneThreadFactory("timer", Thread.NORM_PRIORITY));
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timer = timer;
+    }
+
+    public Future<?> execute(Lane lane, Runnable runnable) {
+        return execute(lane, null, runnable);
+    }
+
+    /**
+     * @param key jobs with the same key are coalesced while queued, or null
+     * @return the queued job, which may be an earlier job with the same key
+     */
+    public Future<?> execute(Lane lane, String key, Runnable runnable) {
+        LaneExecutor executor = lanes.get(lane);
+        Job job;
+        synchronized (keyed) {
+            if (key != null) {
+                List<Job> jobs = keyed.get(key);
+                if (jobs != null) {
+                    for (Job existing : jobs) {
+                        if (!existing.started && existing.lane == lane) {
+                            executor.stats.coalesced.incrementAndGet();
+                            return existing;
+                        }
+                    }
+                } else {
+                    jobs = new ArrayList<>();
+                    keyed.put(key, jobs);
+                }
+                job = new Job(lane, key, runnable);
+                jobs.add(job);
+            } else {
+                job = new Job(lane, null, runnable);
+            }
+        }
+        executor.stats.submitted.incrementAndGet();
+        executor.execute(job);
+        executor.stats.recordDepth(executor.getQueue().size());
+        return job;
+    }
+
+    /**
+     * Submit the runnable after a delay
+     */
+    public void schedule(final Lane lane, final String key, long delay, final Runnable runnable) {
+        schedule(lane, key, delay, 0, runnable);
+    }
+
+    /**
+     * Submit the runnable after a delay and then every period milliseconds
+     * until the key is cancelled. A run is skipped if the previous one is
+     * still queued.
+     *
+     * @param period time between runs, or 0 to run once
+     */
+    public void schedule(final Lane lane, final String key, long delay, long period, final Runnable runnable) {
+        Runnable submit = new Runnable() {
+            @Override
+            public void run() {
+                execute(lane, key, runnable);
+            }
+        };
+        synchronized (keyed) {
+            ScheduledFuture<?> previous = schedules.put(key, period > 0
+                    ? timer.scheduleAtFixedRate(submit, delay, period, TimeUnit.MILLISECONDS)
+                    : timer.schedule(submit, delay, TimeUnit.MILLISECONDS));
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Cancel the schedule and any queued or running jobs for this key.
+     * Running jobs are interrupted.
+     */
+    public void cancel(String key) {
+        List<Job> jobs;
+        synchronized (keyed) {
+            ScheduledFuture<?> schedule = schedules.remove(key);
+            if (schedule != null) {
+                schedule.cancel(false);
+            }
+            jobs = keyed.remove(key);
+        }
+        if (jobs != null) {
+            for (Job job : jobs) {
+                if (job.cancel(true)) {
+                    lanes.get(job.lane).remove(job);
+                }
+            }
+        }
+    }
+
+    public String getReport() {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        for (Lane lane : Lane.values()) {
+            LaneExecutor executor = lanes.get(lane);
+            writer.println(lane + " (" + lane.threads + (lane.threads == 1 ? " thread)" : " threads)"));
+            writer.println("  queued " + executor.getQueue().size() + ", running " + executor.getActiveCount());
+            executor.stats.print(writer);
+            writer.println();
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    public void reset() {
+        for (LaneExecutor executor : lanes.values()) {
+            executor.stats.reset();
+        }
+    }
+
+    private void finished(Job job) {
+        if (job.key == null) {
+            return;
+        }
+        synchronized (keyed) {
+            List<Job> jobs = keyed.get(job.key);
+            if (jobs != null) {
+                jobs.remove(job);
+                if (jobs.isEmpty()) {
+                    keyed.remove(job.key);
+                }
+            }
+        }
+    }
+
+    private class Job extends FutureTask<Void> {
+        final Lane lane;
+        final String key;
+        final long queued = System.nanoTime();
+        volatile boolean started;
+
+        Job(Lane lane, String key, Runnable runnable) {
+            super(runnable, null);
+            this.lane = lane;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+            synchronized (keyed) {
+                started = true;
+            }
+            LaneStats stats = lanes.get(lane).stats;
+            long start = System.nanoTime();
+            stats.waited(start - queued);
+            super.run();
+            stats.ran(System.nanoTime() - start);
+        }
+
+        @Override
+        protected void done() {
+            finished(this);
+            LaneStats stats = lanes.get(lane).stats;
+            try {
+                get();
+                stats.completed.incrementAndGet();
+            } catch (CancellationException e) {
+                stats.cancelled.incrementAndGet();
+            } catch (ExecutionException e) {
+                stats.failed.incrementAndGet();
+                log.error(e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class LaneExecutor extends ThreadPoolExecutor {
+        final LaneStats stats = new LaneStats();
+
+        LaneExecutor(Lane lane) {
+            super(lane.threads, lane.threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new LaneThreadFactory(lane.name().toLowerCase(), lane.priority));
+            allowCoreThreadTimeOut(true);
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int priority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "tasks-" + name + "-" + count.incrementAndGet());
+            thread.setPriority(priority);
+            return thread;
+        }
+    }
+
+    static class LaneStats {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong maxDepth = new AtomicLong();
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong runNanos = new AtomicLong();
+        final AtomicLong maxRunNanos = new AtomicLong();
+
+        void recordDepth(long depth) {
+            max(maxDepth, depth);
+        }
+
+        void waited(long nanos) {
+            started.incrementAndGet();
+            waitNanos.addAndGet(nanos);
+            max(maxWaitNanos, nanos);
+        }
+
+        void ran(long nanos) {
+            runNanos.addAndGet(nanos);
+            max(maxRunNanos, nanos);
+        }
+
+        void reset() {
+            for (AtomicLong counter : new AtomicLong[] { submitted, coalesced, completed, failed, cancelled,
+                    maxDepth, started, waitNanos, maxWaitNanos, runNanos, maxRunNanos }) {
+                counter.set(0);
+            }
+        }
+
+        void print(PrintWriter writer) {
+            long count = Math.max(1, started.get());
+            writer.println("  submitted " + submitted + ", coalesced " + coalesced + ", max queued " + maxDepth);
+            writer.println("  completed " + completed + ", failed " + failed + ", cancelled " + cancelled);
+            writer.println("  wait avg " + millis(waitNanos.get() / count) + ", max " + millis(maxWaitNanos.get()));
+            writer.println("  run avg " + millis(runNanos.get() / count) + ", max " + millis(maxRunNanos.get()));
+        }
+
+        private static String millis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+        }
+
+        private static void max(AtomicLong max, long value) {
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+    }
+}
@@ -3,31 +3,55 @@ package org.tasks.scheduling;
 import android.content.Context;
 import android.content.Intent;
 
+import com.todoroo.astrid.service.StartupPipeline;
+
 import org.tasks.injection.ForApplication;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 
 import javax.inject.Inject;
 
 public class BackgroundScheduler {
     private Context context;
+    private final StartupPipeline startupPipeline;
 
     @Inject
-    public BackgroundScheduler(@ForApplication Context context) {
+    public BackgroundScheduler(@ForApplication Context context, StartupPipeline startupPipeline) {
         this.context = context;
+        this.startupPipeline = startupPipeline;
     }
 
+    /**
+     * Start the scheduling services. If the app is starting up they are held
+     * until its first frame is drawn so they do not compete with it.
+     */
     public void scheduleEverything() {
-        context.startService(new Intent(context, RefreshSchedulerIntentService.class));
-        context.startService(new Intent(context, AlarmSchedulingIntentService.class));
-        context.startService(new Intent(context, ReminderSchedulerIntentService.class));
-        scheduleBackupService();
-        scheduleMidnightRefresh();
-        scheduleGtaskSync();
+        startupPipeline.defer("schedule services", Lane.MAINTENANCE, new Runnable() {
+            @Override
+            public void run() {
+                context.startService(new Intent(context, RefreshSchedulerIntentService.class));
+                context.startService(new Intent(context, AlarmSchedulingIntentService.class));
+                context.startService(new Intent(context, ReminderSchedulerIntentService.class));
+                scheduleBackupService();
+                scheduleArchiveService();
+                scheduleDatabaseMaintenance();
+                scheduleMidnightRefresh();
+                scheduleGtaskSync();
+            }
+        });
     }
 
     public void scheduleBackupService() {
         context.startService(new Intent(context, BackupIntentService.class));
     }
 
+    public void scheduleArchiveService() {
+        context.startService(new Intent(context, ArchiveIntentService.class));
+    }
+
+    public void scheduleDatabaseMaintenance() {
+        context.startService(new Intent(context, DatabaseMaintenanceIntentService.class));
+    }
+
     public void scheduleMidnightRefresh() {
         context.startService(new Intent(context, MidnightRefreshService.class));
     }
@@ -0,0 +1,120 @@
+package org.tasks.scheduling;
+
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.SystemClock;
+
+import com.todoroo.astrid.dao.DatabaseMaintenance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.inject.Inject;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+import static org.tasks.date.DateTimeUtils.printTimestamp;
+
+public class DatabaseMaintenanceIntentService extends MidnightIntentService {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseMaintenanceIntentService.class);
+
+    /** report of the last run, shown with the query profile */
+    public static final String PREF_LAST_REPORT = "databaseMaintenanceReport"; //$NON-NLS-1$
+
+    /** soft-deleted metadata is kept this long */
+    private static final long TOMBSTONE_RETENTION = DAYS.toMillis(30);
+    /** pages freed per incremental vacuum step, so other writers are not held up */
+    private static final int VACUUM_SLICE = 256;
+    private static final long VACUUM_BUDGET = SECONDS.toMillis(30);
+
+    @Inject DatabaseMaintenance maintenance;
+
+    public DatabaseMaintenanceIntentService() {
+        super(DatabaseMaintenanceIntentService.class.getSimpleName());
+    }
+
+    @Override
+    void run() {
+        StringWriter out = new StringWriter();
+        PrintWriter report = new PrintWriter(out);
+        report.println("Database maintenance " + printTimestamp(currentTimeMillis()));
+        try {
+            long sizeBefore = maintenance.getSize();
+            long freeBefore = maintenance.getFreeSize();
+
+            long start = SystemClock.elapsedRealtime();
+            int purged = maintenance.purgeTombstones(currentTimeMillis() - TOMBSTONE_RETENTION);
+            start = step(report, "purged " + purged + " tombstones", start);
+
+            int dangling = maintenance.removeDangling();
+            start = step(report, "removed " + dangling + " dangling rows", start);
+
+            maintenance.analyze();
+            start = step(report, "analyzed", start);
+
+            if (isCharging()) {
+                vacuum(report, start);
+            } else {
+                report.println("  vacuum skipped, not charging");
+            }
+
+            report.println("  size " + kilobytes(sizeBefore) + " -> " + kilobytes(maintenance.getSize()) +
+                    ", free " + kilobytes(freeBefore) + " -> " + kilobytes(maintenance.getFreeSize()));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            report.println("  failed: " + e.getMessage());
+        }
+        report.flush();
+        log.info(out.toString());
+        preferences.setString(PREF_LAST_REPORT, out.toString());
+    }
+
+    @Override
+    String getLastRunPreference() {
+        return "databaseMaintenanceDate";
+    }
+
+    /**
+     * Free pages one slice at a time while the device stays on the charger,
+     * up to a time budget. Databases that are not incremental yet are
+     * rebuilt once they are fragmented enough.
+     */
+    private void vacuum(PrintWriter report, long start) {
+        if (!maintenance.isIncremental()) {
+            if (maintenance.rebuildIfFragmented()) {
+                step(report, "rebuilt for incremental vacuum", start);
+            } else {
+                report.println("  vacuum skipped, too little free space to rebuild");
+            }
+            return;
+        }
+        int slices = 0;
+        long end = start + VACUUM_BUDGET;
+        while (maintenance.getFreeSize() > 0 && SystemClock.elapsedRealtime() < end && isCharging()) {
+            maintenance.vacuum(VACUUM_SLICE);
+            slices++;
+        }
+        step(report, "vacuumed in " + slices + (slices == 1 ? " slice" : " slices"), start);
+    }
+
+    private boolean isCharging() {
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    private static long step(PrintWriter report, String step, long start) {
+        long now = SystemClock.elapsedRealtime();
+        report.println("  " + step + " in " + (now - start) + "ms");
+        return now;
+    }
+
+    private static String kilobytes(long bytes) {
+        return (bytes / 1024) + "kB";
+    }
+}
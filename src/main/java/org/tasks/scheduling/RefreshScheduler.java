@@ -5,7 +5,8 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 
-import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Property.LongFunctionProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
@@ -19,19 +20,28 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
+import static com.todoroo.andlib.sql.Functions.caseStatement;
+import static com.todoroo.andlib.sql.Functions.min;
 import static com.todoroo.andlib.utility.DateUtilities.ONE_MINUTE;
 import static org.tasks.date.DateTimeUtils.currentTimeMillis;
 
+/**
+ * Keeps a single alarm armed for the next instant at which the task list
+ * changes without user input: a due date passing, a hide until date
+ * passing or a completed task dropping off the list. When the alarm fires
+ * {@link RefreshReceiver} refreshes the list and the next instant is found
+ * with one aggregate query.
+ */
 @Singleton
 public class RefreshScheduler {
 
     private final TaskDao taskDao;
     private final Context context;
 
-    private static final Property<?>[] REFRESH_PROPERTIES = new Property<?>[]{
-            Task.DUE_DATE,
-            Task.HIDE_UNTIL
-    };
+    /** armedAt before anything was armed in this process, see {@link #scheduleRefresh(Task)} */
+    private static final long UNKNOWN = -1;
+
+    private long armedAt = UNKNOWN;
 
     @Inject
     public RefreshScheduler(TaskDao taskDao, @ForApplication Context context) {
@@ -39,47 +49,96 @@ public class RefreshScheduler {
         this.context = context;
     }
 
-    public void scheduleApplicationRefreshes() {
-        TodorooCursor<Task> cursor = getTasks();
-        try {
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                Task task = new Task(cursor);
-                scheduleRefresh(task);
-            }
-        } finally {
-            cursor.close();
+    /**
+     * Replace the armed alarm with one for the next refresh instant
+     */
+    public synchronized void scheduleApplicationRefreshes() {
+        long next = getNextRefresh(currentTimeMillis());
+        if (next > 0) {
+            arm(next);
+        } else {
+            cancel();
         }
     }
 
-    public void scheduleRefresh(Task task) {
+    /**
+     * Arm an earlier alarm if the saved task changes the list before the
+     * currently armed instant. The armed instant is not known after the
+     * process restarts, so the first call queries for the next instant
+     * rather than replace an alarm that may be earlier.
+     */
+    public synchronized void scheduleRefresh(Task task) {
+        if (armedAt == UNKNOWN) {
+            scheduleApplicationRefreshes();
+            return;
+        }
+        long now = currentTimeMillis();
+        long next = 0;
         if (task.containsValue(Task.DUE_DATE)) {
-            scheduleRefresh(task.getDueDate());
+            next = earliest(next, task.getDueDate(), now);
         }
         if (task.containsValue(Task.HIDE_UNTIL)) {
-            scheduleRefresh(task.getHideUntil());
+            next = earliest(next, task.getHideUntil(), now);
+        }
+        if (task.containsValue(Task.COMPLETION_DATE) && task.getCompletionDate() > 0) {
+            next = earliest(next, task.getCompletionDate() + ONE_MINUTE, now);
         }
-        if (task.containsValue(Task.COMPLETION_DATE)) {
-            scheduleRefresh(task.getCompletionDate() + ONE_MINUTE);
+        if (next > 0 && (armedAt <= now || next < armedAt)) {
+            arm(next);
         }
     }
 
-    private void scheduleRefresh(Long dueDate) {
-        if (currentTimeMillis() > dueDate) {
-            return;
+    private static long earliest(long current, long candidate, long now) {
+        if (candidate <= now) {
+            return current;
         }
+        return current == 0 ? candidate : Math.min(current, candidate);
+    }
 
-        dueDate += 1000; // this is ghetto
-        Intent intent = new Intent(context, RefreshReceiver.class);
-        intent.setAction(Long.toString(dueDate));
+    private void arm(long time) {
+        armedAt = time;
         AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, FLAG_UPDATE_CURRENT);
-        am.set(AlarmManager.RTC, dueDate, pendingIntent);
+        am.set(AlarmManager.RTC, time + 1000, getPendingIntent());
     }
 
-    private TodorooCursor<Task> getTasks() {
-        long now = currentTimeMillis();
-        return taskDao.query(Query.select(REFRESH_PROPERTIES).where(Criterion.and(
-                TaskDao.TaskCriteria.isActive(),
-                Criterion.or(Task.HIDE_UNTIL.gt(now), Task.DUE_DATE.gt(now)))));
+    private void cancel() {
+        armedAt = 0;
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        am.cancel(getPendingIntent());
+    }
+
+    private PendingIntent getPendingIntent() {
+        Intent intent = new Intent(context, RefreshReceiver.class);
+        return PendingIntent.getBroadcast(context, 0, intent, FLAG_UPDATE_CURRENT);
+    }
+
+    private long getNextRefresh(long now) {
+        Criterion active = TaskDao.TaskCriteria.isActive();
+        LongProperty nextDue = new LongFunctionProperty(min(
+                caseStatement(Criterion.and(active, Task.DUE_DATE.gt(now)), Task.DUE_DATE, "NULL")).toString(),
+                "nextDue");
+        LongProperty nextHide = new LongFunctionProperty(min(
+                caseStatement(Criterion.and(active, Task.HIDE_UNTIL.gt(now)), Task.HIDE_UNTIL, "NULL")).toString(),
+                "nextHide");
+        LongProperty lastCompleted = new LongFunctionProperty(min(
+                caseStatement(Task.COMPLETION_DATE.gt(now - ONE_MINUTE), Task.COMPLETION_DATE, "NULL")).toString(),
+                "lastCompleted");
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(nextDue, nextHide, lastCompleted).where(Criterion.and(
+                TaskDao.TaskCriteria.notDeleted(),
+                Criterion.or(Task.DUE_DATE.gt(now), Task.HIDE_UNTIL.gt(now), Task.COMPLETION_DATE.gt(now - ONE_MINUTE)))));
+        try {
+            if (!cursor.moveToFirst()) {
+                return 0;
+            }
+            long next = earliest(0, cursor.get(nextDue), now);
+            next = earliest(next, cursor.get(nextHide), now);
+            long completed = cursor.get(lastCompleted);
+            if (completed > 0) {
+                next = earliest(next, completed + ONE_MINUTE, now);
+            }
+            return next;
+        } finally {
+            cursor.close();
+        }
     }
 }
@@ -2,35 +2,32 @@ package org.tasks.sync;
 
 import com.todoroo.astrid.sync.SyncResultCallback;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.scheduling.BackgroundExecutor;
+import org.tasks.scheduling.BackgroundExecutor.Lane;
 
 import javax.inject.Inject;
 
-import static java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
-
 public class SyncExecutor {
 
-    private final ExecutorService executor = new ThreadPoolExecutor(
-            0, Integer.MAX_VALUE,
-            60L, TimeUnit.SECONDS,
-            new SynchronousQueue<Runnable>(),
-            new DiscardPolicy());
+    private static final Logger log = LoggerFactory.getLogger(SyncExecutor.class);
+
+    private final BackgroundExecutor backgroundExecutor;
 
     @Inject
-    public SyncExecutor() {
+    public SyncExecutor(BackgroundExecutor backgroundExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
     }
 
     public void execute(final SyncResultCallback callback, final Runnable command) {
-        executor.execute(new Runnable() {
+        backgroundExecutor.execute(Lane.USER_INITIATED, new Runnable() {
             @Override
             public void run() {
                 try {
                     command.run();
                 } catch (Exception e) {
-                    executor.shutdownNow();
+                    log.error(e.getMessage(), e);
                     callback.finished();
                 }
             }
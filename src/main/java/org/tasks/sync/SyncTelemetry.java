@@ -0,0 +1,248 @@
+package org.tasks.sync;
+
+import org.tasks.preferences.Preferences;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Metrics for Google Tasks API calls and sync runs.
+ * <p>
+ * Every API call is aggregated by operation since the process started.
+ * Calls, phase durations and per-list durations made while a run is active
+ * are also added to that run. When the run finishes its summary is written
+ * to preferences, keeping the last {@link #MAX_RUNS} runs.
+ */
+@Singleton
+public class SyncTelemetry {
+
+    public enum Phase {
+        LIST_FETCH, PULL, MERGE, PUSH, ORDER
+    }
+
+    public static final int STATUS_IO_ERROR = -1;
+    public static final int STATUS_PAUSED = -2;
+
+    static final int MAX_RUNS = 10;
+
+    private static final String PREF_RUNS = "sync_telemetry_runs"; //$NON-NLS-1$
+    private static final String RUN_SEPARATOR = "\n\n"; //$NON-NLS-1$
+    private static final int MAX_OPERATIONS = 64;
+
+    private final Preferences preferences;
+    private final ConcurrentMap<String, CallStats> operations = new ConcurrentHashMap<>();
+    private volatile Run current;
+
+    @Inject
+    public SyncTelemetry(Preferences preferences) {
+        this.preferences = preferences;
+    }
+
+    public Run startRun() {
+        Run run = new Run();
+        current = run;
+        return run;
+    }
+
+    public void finishRun(Run run) {
+        if (current == run) {
+            current = null;
+        }
+        run.finish();
+        List<String> runs = getRuns();
+        runs.add(0, run.toString());
+        while (runs.size() > MAX_RUNS) {
+            runs.remove(runs.size() - 1);
+        }
+        preferences.setString(PREF_RUNS, join(runs));
+    }
+
+    /**
+     * @param status HTTP status code, {@link #STATUS_IO_ERROR} or {@link #STATUS_PAUSED}
+     * @param bytes response size, or -1 if unknown
+     * @param retries number of times the request was reissued
+     */
+    public void recordCall(String operation, String listId, int status, long bytes, long elapsedNanos, int retries) {
+        CallStats stats = operations.get(operation);
+        if (stats == null && operations.size() < MAX_OPERATIONS) {
+            CallStats created = new CallStats();
+            stats = operations.putIfAbsent(operation, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        if (stats != null) {
+            stats.add(status, bytes, elapsedNanos, retries);
+        }
+        Run run = current;
+        if (run != null) {
+            run.calls.add(status, bytes, elapsedNanos, retries);
+            if (listId != null) {
+                run.list(listId).calls.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Record a 401 or 403 that caused the auth token to be revalidated
+     */
+    public void recordRevalidation() {
+        Run run = current;
+        if (run != null) {
+            run.revalidations.incrementAndGet();
+        }
+    }
+
+    public void reset() {
+        operations.clear();
+        preferences.clear(PREF_RUNS);
+    }
+
+    public String getReport() {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        writer.println("API calls since start");
+        List<String> names = new ArrayList<>(operations.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            writer.printf("  %-22s %s%n", name, operations.get(name));
+        }
+        for (String run : getRuns()) {
+            writer.printf("%n%s%n", run);
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    private List<String> getRuns() {
+        List<String> runs = new ArrayList<>();
+        String value = preferences.getStringValue(PREF_RUNS);
+        if (value != null && value.length() > 0) {
+            Collections.addAll(runs, value.split(RUN_SEPARATOR));
+        }
+        return runs;
+    }
+
+    private static String join(List<String> runs) {
+        StringBuilder builder = new StringBuilder();
+        for (String run : runs) {
+            if (builder.length() > 0) {
+                builder.append(RUN_SEPARATOR);
+            }
+            builder.append(run);
+        }
+        return builder.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public static class Run {
+        private final long started = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLongArray phases = new AtomicLongArray(Phase.values().length);
+        private final ConcurrentMap<String, ListStats> lists = new ConcurrentHashMap<>();
+        private final CallStats calls = new CallStats();
+        private final AtomicInteger revalidations = new AtomicInteger();
+        private volatile long elapsedNanos;
+
+        public void addPhase(Phase phase, long elapsedNanos) {
+            phases.addAndGet(phase.ordinal(), elapsedNanos);
+        }
+
+        public void addList(String listId, String listName, long elapsedNanos) {
+            ListStats stats = list(listId);
+            stats.name = listName;
+            stats.totalNanos.addAndGet(elapsedNanos);
+        }
+
+        private ListStats list(String listId) {
+            ListStats stats = lists.get(listId);
+            if (stats == null) {
+                ListStats created = new ListStats();
+                stats = lists.putIfAbsent(listId, created);
+                if (stats == null) {
+                    stats = created;
+                }
+            }
+            return stats;
+        }
+
+        private void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringWriter out = new StringWriter();
+            PrintWriter writer = new PrintWriter(out);
+            writer.printf("Sync %s %.0fms, revalidations=%d%n", new Date(started), millis(elapsedNanos), revalidations.get());
+            writer.printf("  calls %s%n", calls);
+            for (Phase phase : Phase.values()) {
+                writer.printf("  %-10s %.0fms%n", phase.name().toLowerCase(), millis(phases.get(phase.ordinal())));
+            }
+            for (Map.Entry<String, ListStats> entry : lists.entrySet()) {
+                ListStats stats = entry.getValue();
+                writer.printf("  list %s %.0fms calls=%d%n", stats.name == null ? entry.getKey() : stats.name,
+                        millis(stats.totalNanos.get()), stats.calls.get());
+            }
+            writer.flush();
+            return out.toString().trim();
+        }
+    }
+
+    private static class ListStats {
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicInteger calls = new AtomicInteger();
+        volatile String name;
+    }
+
+    private static class CallStats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        volatile int lastStatus;
+
+        void add(int status, long responseBytes, long elapsedNanos, int retryCount) {
+            count.incrementAndGet();
+            if (status < 200 || status >= 300) {
+                failures.incrementAndGet();
+            }
+            retries.addAndGet(retryCount);
+            if (responseBytes > 0) {
+                bytes.addAndGet(responseBytes);
+            }
+            totalNanos.addAndGet(elapsedNanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (elapsedNanos > max && !maxNanos.compareAndSet(max, elapsedNanos));
+            lastStatus = status;
+        }
+
+        @Override
+        public String toString() {
+            long n = count.get();
+            return String.format("n=%d failed=%d retries=%d bytes=%d avg=%.0fms max=%.0fms status=%d",
+                    n, failures.get(), retries.get(), bytes.get(),
+                    n == 0 ? 0 : millis(totalNanos.get()) / n, millis(maxNanos.get()), lastStatus);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.tasks.widget;
 
 import android.annotation.TargetApi;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
@@ -12,18 +11,13 @@ import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.astrid.actfm.TagViewFragment;
+import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.activity.TaskEditFragment;
 import com.todoroo.astrid.activity.TaskListActivity;
 import com.todoroo.astrid.adapter.TaskAdapter;
 import com.todoroo.astrid.api.Filter;
-import com.todoroo.astrid.api.FilterWithCustomIntent;
 import com.todoroo.astrid.core.SortHelper;
-import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.data.Task;
-import com.todoroo.astrid.service.TaskService;
-import com.todoroo.astrid.subtasks.SubtasksHelper;
 import com.todoroo.astrid.utility.Constants;
 import com.todoroo.astrid.widget.TasksWidget;
 import com.todoroo.astrid.widget.WidgetConfigActivity;
@@ -33,14 +27,15 @@ import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.preferences.Preferences;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
 public class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
 
     private static final Logger log = LoggerFactory.getLogger(ScrollableViewsFactory.class);
 
-    private final Database database;
-    private final TaskService taskService;
-    private final SubtasksHelper subtasksHelper;
+    private final WidgetDataService widgetDataService;
     private final Preferences preferences;
     private final Context context;
     private final Filter filter;
@@ -50,23 +45,20 @@ public class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFac
     private final boolean hideCheckboxes;
     private final DueDateFormatter dueDateFormatter;
 
-    private TodorooCursor<Task> cursor;
+    private WidgetSnapshot snapshot;
+    private Map<Task, CachedRow> rows = new HashMap<>();
 
     public ScrollableViewsFactory(
-            SubtasksHelper subtasksHelper,
+            WidgetDataService widgetDataService,
             Preferences preferences,
             Context context,
             Filter filter,
-            int widgetId,
-            Database database,
-            TaskService taskService) {
-        this.subtasksHelper = subtasksHelper;
+            int widgetId) {
+        this.widgetDataService = widgetDataService;
         this.preferences = preferences;
         this.context = context;
         this.filter = filter;
         this.widgetId = widgetId;
-        this.database = database;
-        this.taskService = taskService;
 
         dueDateFormatter = new DueDateFormatter(context);
         dark = preferences.useDarkWidgetTheme(widgetId);
@@ -76,28 +68,51 @@ public class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFac
 
     @Override
     public void onCreate() {
-        database.openForReading();
-        cursor = getCursor();
+        snapshot = getSnapshot();
     }
 
     @Override
     public void onDataSetChanged() {
-        cursor = getCursor();
+        WidgetSnapshot updated = getSnapshot();
+        if (updated == snapshot) {
+            return;
+        }
+        // keep views for rows that did not change
+        Map<Task, CachedRow> retained = new HashMap<>();
+        for (Task task : updated.getTasks()) {
+            CachedRow cached = rows.get(task);
+            if (cached != null) {
+                retained.put(task, cached);
+            }
+        }
+        rows = retained;
+        snapshot = updated;
     }
 
     @Override
     public void onDestroy() {
-        cursor.close();
+        rows.clear();
     }
 
     @Override
     public int getCount() {
-        return cursor.getCount();
+        return snapshot.size();
     }
 
     @Override
     public RemoteViews getViewAt(int position) {
-        return buildUpdate(position);
+        Task task = getTask(position);
+        long today = DateUtilities.getStartOfDay(DateUtilities.now());
+        boolean overdue = task.hasDueDate() && task.isOverdue();
+        CachedRow cached = rows.get(task);
+        if (cached != null && cached.day == today && cached.overdue == overdue) {
+            return cached.views;
+        }
+        RemoteViews views = buildUpdate(position);
+        if (views != null) {
+            rows.put(task, new CachedRow(views, today, overdue));
+        }
+        return views;
     }
 
     @Override
@@ -188,32 +203,24 @@ public class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFac
         return null;
     }
 
-    private TodorooCursor<Task> getCursor() {
-        String query = getQuery(context);
-        return taskService.fetchFiltered(query, null, Task.ID, Task.TITLE, Task.DUE_DATE, Task.COMPLETION_DATE, Task.IMPORTANCE, Task.RECURRENCE);
+    private WidgetSnapshot getSnapshot() {
+        String tagName = preferences.getStringValue(WidgetConfigActivity.PREF_TITLE + widgetId);
+        return widgetDataService.getSnapshot(filter, tagName, SortHelper.SORT_WIDGET, 0);
     }
 
     private Task getTask(int position) {
-        cursor.moveToPosition(position);
-        return new Task(cursor);
+        return snapshot.get(position);
     }
 
-    private String getQuery(Context context) {
-        if (filter.isTagFilter()) {
-            ((FilterWithCustomIntent) filter).customTaskList = new ComponentName(context, TagViewFragment.class); // In case legacy widget was created with subtasks fragment
-        }
+    private static class CachedRow {
+        final RemoteViews views;
+        final long day;
+        final boolean overdue;
 
-        int flags = preferences.getSortFlags();
-        int sort = preferences.getSortMode();
-        if(sort == 0) {
-            sort = SortHelper.SORT_WIDGET;
+        CachedRow(RemoteViews views, long day, boolean overdue) {
+            this.views = views;
+            this.day = day;
+            this.overdue = overdue;
         }
-
-        String query = SortHelper.adjustQueryForFlagsAndSort(
-                filter.getSqlQuery(), flags, sort).replaceAll("LIMIT \\d+", "");
-
-        String tagName = preferences.getStringValue(WidgetConfigActivity.PREF_TITLE + widgetId);
-
-        return subtasksHelper.applySubtasksToWidgetFilter(filter, query, tagName, 0);
     }
 }
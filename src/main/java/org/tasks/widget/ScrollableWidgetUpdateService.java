@@ -5,9 +5,6 @@ import android.content.Intent;
 import android.os.Bundle;
 
 import com.todoroo.astrid.api.Filter;
-import com.todoroo.astrid.dao.Database;
-import com.todoroo.astrid.service.TaskService;
-import com.todoroo.astrid.subtasks.SubtasksHelper;
 
 import org.tasks.injection.InjectingRemoteViewsService;
 import org.tasks.preferences.Preferences;
@@ -18,10 +15,8 @@ public class ScrollableWidgetUpdateService extends InjectingRemoteViewsService {
 
     public static final String FILTER = "org.tasks.widget.FILTER";
 
-    @Inject Database database;
-    @Inject TaskService taskService;
     @Inject Preferences preferences;
-    @Inject SubtasksHelper subtasksHelper;
+    @Inject WidgetDataService widgetDataService;
 
     @Override
     public void onStart(Intent intent, int startId) {
@@ -44,7 +39,6 @@ public class ScrollableWidgetUpdateService extends InjectingRemoteViewsService {
         Bundle bundle = extras.getBundle(FILTER);
         Filter filter = (Filter) bundle.get(FILTER);
         int widgetId = extras.getInt(AppWidgetManager.EXTRA_APPWIDGET_ID);
-        return new ScrollableViewsFactory(subtasksHelper, preferences, this, filter,
-                widgetId, database, taskService);
+        return new ScrollableViewsFactory(widgetDataService, preferences, this, filter, widgetId);
     }
 }
@@ -0,0 +1,154 @@
+package org.tasks.widget;
+
+import android.content.ComponentName;
+import android.content.Context;
+
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.actfm.TagViewFragment;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.api.FilterWithCustomIntent;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.DatabaseUpdateListener;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.subtasks.SubtasksHelper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+import org.tasks.preferences.Preferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Computes one {@link WidgetSnapshot} per distinct filter, sort and limit and
+ * shares it between all widgets. Snapshots are dropped when tasks, metadata or
+ * manual orderings change, and expire after a minute because widget queries
+ * depend on the current time.
+ */
+@Singleton
+public class WidgetDataService implements DatabaseUpdateListener {
+
+    private static final Logger log = LoggerFactory.getLogger(WidgetDataService.class);
+
+    private static final long MAX_AGE = DateUtilities.ONE_MINUTE;
+
+    private static final String[] WATCHED_TABLES = new String[] {
+            Task.TABLE.name,
+            Metadata.TABLE.name,
+            TaskListMetadata.TABLE.name
+    };
+
+    private final Context context;
+    private final Database database;
+    private final TaskService taskService;
+    private final SubtasksHelper subtasksHelper;
+    private final Preferences preferences;
+
+    private final Map<String, WidgetSnapshot> snapshots = new HashMap<>();
+    private long generation = 0;
+
+    @Inject
+    public WidgetDataService(@ForApplication Context context, Database database, TaskService taskService,
+                             SubtasksHelper subtasksHelper, Preferences preferences) {
+        this.context = context;
+        this.database = database;
+        this.taskService = taskService;
+        this.subtasksHelper = subtasksHelper;
+        this.preferences = preferences;
+
+        database.addListener(this);
+    }
+
+    @Override
+    public void onDatabaseUpdated(String table) {
+        for (String watched : WATCHED_TABLES) {
+            if (watched.equals(table)) {
+                invalidate();
+                return;
+            }
+        }
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        snapshots.clear();
+    }
+
+    /**
+     * @param sort sort mode to use when the user has not picked one
+     * @param limit maximum number of rows, or 0 for no limit
+     */
+    public WidgetSnapshot getSnapshot(Filter filter, String tagName, int sort, int limit) {
+        if (filter.isTagFilter()) {
+            ((FilterWithCustomIntent) filter).customTaskList = new ComponentName(context, TagViewFragment.class); // In case legacy widget was created with subtasks fragment
+        }
+        filter.setFilterQueryOverride(null); // key on the unmodified filter query
+
+        int flags = preferences.getSortFlags();
+        int sortMode = preferences.getSortMode();
+        if (sortMode == SortHelper.SORT_AUTO) {
+            sortMode = sort;
+        }
+        String key = filter.getSqlQuery() + '|' + flags + '|' + sortMode + '|' + tagName + '|' + limit;
+
+        long startGeneration;
+        synchronized (this) {
+            WidgetSnapshot snapshot = snapshots.get(key);
+            if (snapshot != null && DateUtilities.now() - snapshot.getCreatedAt() < MAX_AGE) {
+                return snapshot;
+            }
+            startGeneration = generation;
+        }
+
+        WidgetSnapshot snapshot = buildSnapshot(filter, tagName, flags, sortMode, limit);
+
+        synchronized (this) {
+            if (startGeneration == generation) {
+                snapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    private WidgetSnapshot buildSnapshot(Filter filter, String tagName, int flags, int sort, int limit) {
+        long now = DateUtilities.now();
+        List<Task> tasks = new ArrayList<>();
+        TodorooCursor<Task> cursor = null;
+        try {
+            database.openForReading();
+            cursor = taskService.fetchFiltered(getQuery(filter, tagName, flags, sort, limit), null,
+                    Task.ID, Task.TITLE, Task.DUE_DATE, Task.COMPLETION_DATE, Task.IMPORTANCE, Task.RECURRENCE);
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                tasks.add(new Task(cursor));
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return new WidgetSnapshot(tasks, now);
+    }
+
+    private String getQuery(Filter filter, String tagName, int flags, int sort, int limit) {
+        String query = SortHelper.adjustQueryForFlagsAndSort(
+                filter.getSqlQuery(), flags, sort).replaceAll("LIMIT \\d+", "");
+        if (limit > 0) {
+            query += " LIMIT " + limit;
+        }
+
+        return subtasksHelper.applySubtasksToWidgetFilter(filter, query, tagName, limit);
+    }
+}
@@ -0,0 +1,38 @@
+package org.tasks.widget;
+
+import com.todoroo.astrid.data.Task;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a widget filter query. A snapshot is shared by every
+ * widget showing the same filter, sort and limit, so callers must treat the
+ * returned tasks as read-only.
+ */
+public class WidgetSnapshot {
+
+    private final List<Task> tasks;
+    private final long createdAt;
+
+    WidgetSnapshot(List<Task> tasks, long createdAt) {
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.createdAt = createdAt;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public Task get(int position) {
+        return tasks.get(position);
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+}